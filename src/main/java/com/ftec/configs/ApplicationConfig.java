@@ -1,8 +1,14 @@
 package com.ftec.configs;
 
+import com.ftec.modules.arbitrage.QuoteFeed;
+import com.ftec.modules.arbitrage.ReplayQuoteFeed;
+import com.ftec.resources.Resources;
+import com.ftec.utils.local_sendpulse.restapi.Sendpulse;
+import com.ftec.utils.local_sendpulse.restapi.SendpulseTransport;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.boot.web.servlet.support.SpringBootServletInitializer;
@@ -14,6 +20,8 @@ import org.springframework.context.support.ResourceBundleMessageSource;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.nio.file.Paths;
+
 @SpringBootApplication(scanBasePackages = {"com.ftec.*"})
 @EnableJpaRepositories(value = {"com.ftec.repositories"})
 @EntityScan("com.ftec.entities")
@@ -51,6 +59,27 @@ public class ApplicationConfig extends SpringBootServletInitializer implements
         return messageSource;
     }
 
+    /**
+     * One Sendpulse client for the whole application, so all senders share its connection pool and OAuth token.
+     */
+    @Bean(destroyMethod = "close")
+    public Sendpulse sendpulse(Resources resources) {
+        SendpulseTransport transport = new SendpulseTransport(resources.getSendpulseMaxConnections(),
+                resources.getSendpulseConnectTimeout(), resources.getSendpulseSocketTimeout());
+        return new Sendpulse(resources.getUserId(), resources.getUserSecret(), resources.getSendpulseApiUrl(), transport);
+    }
+
+    /**
+     * Quotes for ArbitrageModule: recorded file if {@code ftec.arbitrageReplayFile} is set, otherwise none.
+     * Live exchange feed is plugged in as a QuoteFeed bean for another value of {@code ftec.arbitrageQuoteFeed}.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "ftec", name = "arbitrageQuoteFeed", havingValue = "replay", matchIfMissing = true)
+    public QuoteFeed quoteFeed(Resources resources) {
+        if (resources.getArbitrageReplayFile() == null) return QuoteFeed.NONE;
+        return new ReplayQuoteFeed(Paths.get(resources.getArbitrageReplayFile()), resources.getArbitrageReplaySpeed());
+    }
+
     @Override
     public void run(String... args) throws Exception {
 
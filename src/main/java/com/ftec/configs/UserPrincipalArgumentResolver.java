@@ -0,0 +1,33 @@
+package com.ftec.configs;
+
+import com.ftec.resources.models.UserPrincipal;
+import com.ftec.services.PrincipalCache;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Injects {@link UserPrincipal} of the request's token owner into controller methods, {@code null} if there is none.
+ */
+public class UserPrincipalArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private final PrincipalCache principalCache;
+
+    public UserPrincipalArgumentResolver(PrincipalCache principalCache) {
+        this.principalCache = principalCache;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return UserPrincipal.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer, NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        return principalCache.resolve(webRequest.getNativeRequest(HttpServletRequest.class)).orElse(null);
+    }
+}
@@ -5,34 +5,37 @@ import com.ftec.configs.middlewares.SupportMiddleware;
 import com.ftec.configs.middlewares.TokenSecurityMiddleware;
 import com.ftec.configs.middlewares.TutorialMiddleware;
 import com.ftec.controllers.TicketController;
-import com.ftec.repositories.UserDAO;
 import com.ftec.resources.Resources;
+import com.ftec.services.PrincipalCache;
 import com.ftec.services.interfaces.TokenService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.List;
+
 @Configuration
 public class WebMvcConfig implements WebMvcConfigurer {
 
     private final TokenService tokenService;
     private final Resources resources;
-    private final UserDAO userDAO;
+    private final PrincipalCache principalCache;
 
     @Autowired
-    public WebMvcConfig(TokenService tokenService, Resources resources, UserDAO userDAO) {
+    public WebMvcConfig(TokenService tokenService, Resources resources, PrincipalCache principalCache) {
         this.tokenService = tokenService;
         this.resources = resources;
-        this.userDAO = userDAO;
+        this.principalCache = principalCache;
     }
 
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
         registry.addInterceptor(new TokenSecurityMiddleware(tokenService)).addPathPatterns("/cabinet", "/cabinet/**", "/changeUserSetting", "/logout")
                 .order(0);
-        registry.addInterceptor(new SupportMiddleware(userDAO)).addPathPatterns(TicketController.ADM_PREF + "/**")
+        registry.addInterceptor(new SupportMiddleware(tokenService, principalCache)).addPathPatterns(TicketController.ADM_PREF + "/**")
                 .order(1);
 
 //        registry.addInterceptor(new BanMiddleware()).addPathPatterns("/","/*","/**").excludePathPatterns("/API/**","/API/*","/error/banned");
@@ -40,6 +43,11 @@ public class WebMvcConfig implements WebMvcConfigurer {
         registry.addInterceptor(new CORSMiddleware()).addPathPatterns("/**");
     }
 
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new UserPrincipalArgumentResolver(principalCache));
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         String staticPath = resources.getUploadPath();
@@ -1,7 +1,8 @@
 package com.ftec.configs.middlewares;
 
-import com.ftec.repositories.UserDAO;
+import com.ftec.exceptions.token.TokenException;
 import com.ftec.resources.enums.UserRole;
+import com.ftec.services.PrincipalCache;
 import com.ftec.services.interfaces.TokenService;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.HandlerInterceptor;
@@ -12,20 +13,29 @@ import javax.servlet.http.HttpServletResponse;
 @Service
 public class SupportMiddleware implements HandlerInterceptor {
 
-    private  final UserDAO userDAO;
+    private final TokenService tokenService;
+    private final PrincipalCache principalCache;
 
-    public SupportMiddleware(UserDAO userDAO) {
-        this.userDAO = userDAO;
+    public SupportMiddleware(TokenService tokenService, PrincipalCache principalCache) {
+        this.tokenService = tokenService;
+        this.principalCache = principalCache;
     }
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
         try {
-            UserRole userRole = userDAO.findById(TokenService.getUserIdFromToken(request.getHeader(TokenService.TOKEN_NAME))).get().getUserRole();
+            String token = request.getHeader(TokenService.TOKEN_NAME);
+            // the role is looked up by the user id of the token, so the token itself is checked first
+            tokenService.processToken(token);
+            UserRole userRole = tokenService.getRoleFromToken(token)
+                    .orElseGet(() -> principalCache.resolve(request).get().getUserRole());
             if(!userRole.equals(UserRole.SUPPORT)){
                 response.setStatus(403);
                 return false;
             }
+        } catch (TokenException e) {
+            response.setStatus(403);
+            return false;
         } catch (Exception e){
             response.setStatus(400);
             response.addHeader("error", "Unexpected error");
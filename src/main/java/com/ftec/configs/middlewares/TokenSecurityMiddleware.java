@@ -34,13 +34,13 @@ public class TokenSecurityMiddleware implements HandlerInterceptor{
 		} catch(TokenException ex) {
 			response.setStatus(403);
 			if(isExpiredException(ex)) tokenService.deleteByToken(token);
-            Logger.logException("Expected exception in security middleware!", ex, true);
+            Logger.logException(TokenSecurityMiddleware.class, "Expected exception in security middleware!", ex, false);
 
 			response.getWriter().append(mapper.writeValueAsString(new MvcResponse(403, ex.getMessage())));
 			return false;
 		} catch (Exception e){
 			response.setStatus(500);
-			Logger.logException("Unexpected exception in token security middleware!", e, true);
+			Logger.logException(TokenSecurityMiddleware.class, "Unexpected exception in token security middleware!", e, true);
 
             response.getWriter().append(mapper.writeValueAsString(new MvcResponse(500, "Unexpected exception in token security middleware!")));
             return false;
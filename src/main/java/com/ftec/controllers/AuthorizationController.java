@@ -7,15 +7,19 @@ import com.ftec.exceptions.TwoStepVerificationException;
 import com.ftec.repositories.UserDAO;
 import com.ftec.resources.enums.Statuses;
 import com.ftec.resources.models.MvcResponse;
+import com.ftec.services.PasswordHashingExecutor;
 import com.ftec.services.interfaces.AuthorizationService;
 import com.ftec.services.interfaces.TokenService;
+import com.ftec.utils.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
-import javax.servlet.http.HttpServletResponse;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 public class AuthorizationController {
@@ -23,38 +27,47 @@ public class AuthorizationController {
 	private final TokenService tokenService;
 	private final UserDAO userDAO;
     private final AuthorizationService authorizationService;
+    private final PasswordHashingExecutor passwordHashingExecutor;
 
     public static final String AUTHORIZATION_URL = "/login";
 
 	@Autowired
-	public AuthorizationController(TokenService tokenService, UserDAO userDAO, AuthorizationService authorizationService) {
+	public AuthorizationController(TokenService tokenService, UserDAO userDAO, AuthorizationService authorizationService, PasswordHashingExecutor passwordHashingExecutor) {
 			super();
 			this.tokenService = tokenService;
 			this.userDAO = userDAO;
             this.authorizationService = authorizationService;
+            this.passwordHashingExecutor = passwordHashingExecutor;
     }
 	
 	@PostMapping(value = AUTHORIZATION_URL, produces = "application/json", consumes = "application/json")
-	public MvcResponse authorization(HttpServletResponse response, @RequestBody UserAuth userAuth) {
+	public CompletableFuture<ResponseEntity<MvcResponse>> authorization(@RequestBody UserAuth userAuth) {
 	    Optional<User> userOpt = userDAO.findByUsername(userAuth.username);
-	    long userId;
-
-		try {
-            authorizationService.authorizate(userOpt,userAuth);
-			userId = userOpt.get().getId();
-		} catch(AuthorizationException e) {
-			response.setStatus(403);
-			return MvcResponse.getMvcErrorResponse(Statuses.InvalidCredentials.getStatus(), e.getMessage());
-
-		} catch (TwoStepVerificationException e){
-            response.setStatus(403);
-            return MvcResponse.getMvcErrorResponse(Statuses.Invalid2FA.getStatus(), e.getMessage());
-
-        } catch (Exception e) {
-			response.setStatus(500);
-			return MvcResponse.getMvcErrorResponse(Statuses.UnexpectedError.getStatus(), "Unexpected error");
+
+		// only the password check runs on the hashing pool, DB writes are done on its callback thread
+		return passwordHashingExecutor.submit(() -> authorizationService.authorizate(userOpt, userAuth))
+				.thenApply(newPasswordHash -> {
+					User user = userOpt.get();
+					if (newPasswordHash != null) authorizationService.updatePasswordHash(user, newPasswordHash);
+					return ResponseEntity.ok(new MvcResponse(Statuses.Ok.getStatus(), "token", tokenService.createSaveAndGetNewToken(user.getId())));
+				})
+				.exceptionally(this::getErrorResponse);
+	}
+
+	private ResponseEntity<MvcResponse> getErrorResponse(Throwable e) {
+		Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+
+		if (cause instanceof AuthorizationException) {
+			return ResponseEntity.status(403).body(MvcResponse.getMvcErrorResponse(Statuses.InvalidCredentials.getStatus(), cause.getMessage()));
+		}
+		if (cause instanceof TwoStepVerificationException) {
+			return ResponseEntity.status(403).body(MvcResponse.getMvcErrorResponse(Statuses.Invalid2FA.getStatus(), cause.getMessage()));
+		}
+		if (PasswordHashingExecutor.isRejected(cause)) {
+			return ResponseEntity.status(503).body(MvcResponse.getMvcErrorResponse(Statuses.ServerBusy.getStatus(), "Server is busy, try again later"));
 		}
-		return new MvcResponse(Statuses.Ok.getStatus(), "token", tokenService.createSaveAndGetNewToken(userId));
+		Logger.logException(AuthorizationController.class, "While authorizing user", cause instanceof Exception ? (Exception) cause : new RuntimeException(cause), true);
+		return ResponseEntity.status(500).body(MvcResponse.getMvcErrorResponse(Statuses.UnexpectedError.getStatus(), "Unexpected error"));
 	}
 
 
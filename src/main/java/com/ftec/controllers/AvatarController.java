@@ -1,10 +1,10 @@
 package com.ftec.controllers;
 
-import com.ftec.entities.User;
 import com.ftec.repositories.UserDAO;
 import com.ftec.resources.Resources;
 import com.ftec.resources.models.MvcResponse;
-import com.ftec.services.interfaces.TokenService;
+import com.ftec.resources.models.UserPrincipal;
+import com.ftec.services.PrincipalCache;
 import com.google.common.io.Files;
 import org.apache.commons.io.FilenameUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,28 +13,24 @@ import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("/cabinet/image")
 public class AvatarController {
 
     private final UserDAO userDAO;
+    private final PrincipalCache principalCache;
     private static String UPLOADED_FOLDER;
 
     @GetMapping(value = "/getImage", produces = MediaType.IMAGE_JPEG_VALUE)
-    public byte[] getImage(HttpServletRequest request) throws IOException {
-        String token = request.getHeader(TokenService.TOKEN_NAME);
-        Optional<User> userByToken = userDAO.findById(TokenService.getUserIdFromToken(token));
-
-        if (userByToken.isPresent()) {
-            long userFromDBId = userByToken.get().getId();
+    public byte[] getImage(UserPrincipal principal) throws IOException {
+        if (principal != null) {
+            long userFromDBId = principal.getId();
             String fileName = userFromDBId + ".jpg";
             UPLOADED_FOLDER = Resources.uploadPathStatic;
             File file = new File(UPLOADED_FOLDER + fileName);
@@ -52,20 +48,17 @@ public class AvatarController {
 
 
     @PostMapping(value = "/deleteImage", consumes = "application/json", produces = "application/json")
-    public MvcResponse deleteImage(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        String token = request.getHeader(TokenService.TOKEN_NAME);
-        Optional<User> userByToken = userDAO.findById(TokenService.getUserIdFromToken(token));
-
-        if (userByToken.isPresent()) {
-            if (userByToken.get().getImageName() != null) {
-                long userFromDBId = userByToken.get().getId();
+    public MvcResponse deleteImage(UserPrincipal principal, HttpServletResponse response) throws IOException {
+        if (principal != null) {
+            if (principal.getImageName() != null) {
+                long userFromDBId = principal.getId();
                 String fileName = userFromDBId + ".jpg";
                 UPLOADED_FOLDER = Resources.uploadPathStatic;
                 File file = new File(UPLOADED_FOLDER + fileName);
 
                 if (file.delete()) {
-                    userByToken.get().setImageName(null);
-                    userDAO.save(userByToken.get());
+                    userDAO.updateImageName(userFromDBId, null);
+                    principalCache.evict(userFromDBId);
                     return new MvcResponse(200);
                 } else {
                     response.setStatus(400);
@@ -82,21 +75,18 @@ public class AvatarController {
     }
 
     @PostMapping(value = "/uploadImage", produces = "application/json")
-    public MvcResponse uploadFile(@RequestParam("file") MultipartFile uploadFile, HttpServletRequest request, HttpServletResponse response) {
+    public MvcResponse uploadFile(@RequestParam("file") MultipartFile uploadFile, UserPrincipal principal, HttpServletResponse response) {
 
         if (uploadFile.isEmpty()) {
             return MvcResponse.getMvcErrorResponse(404, "Please select a file");
         }
 
         try {
-            String token = request.getHeader(TokenService.TOKEN_NAME);
-            Optional<User> user = userDAO.findById(TokenService.getUserIdFromToken(token));
-
-            if (user.isPresent()) {
-                long userFromDBId = user.get().getId();
+            if (principal != null) {
+                long userFromDBId = principal.getId();
                 String uploadFileNameForUser = userFromDBId + "." + FilenameUtils.getExtension(String.valueOf(uploadFile.getOriginalFilename()));
-                user.get().setImageName(uploadFileNameForUser);
-                userDAO.save(user.get());
+                userDAO.updateImageName(userFromDBId, uploadFileNameForUser);
+                principalCache.evict(userFromDBId);
 
                 saveUploadedFiles(uploadFile, uploadFileNameForUser);
             }
@@ -115,7 +105,8 @@ public class AvatarController {
     }
 
     @Autowired
-    public AvatarController(UserDAO userDao) {
+    public AvatarController(UserDAO userDao, PrincipalCache principalCache) {
         this.userDAO = userDao;
+        this.principalCache = principalCache;
     }
 }
\ No newline at end of file
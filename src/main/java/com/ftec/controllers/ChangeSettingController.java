@@ -5,47 +5,72 @@ import com.ftec.constratints.UniqueEmail;
 import com.ftec.exceptions.UserNotExistsException;
 import com.ftec.resources.enums.Statuses;
 import com.ftec.resources.models.MvcResponse;
+import com.ftec.services.PasswordHashingExecutor;
 import com.ftec.services.interfaces.ChangeSettingsService;
+import com.ftec.services.interfaces.PasswordHasher;
 import com.ftec.services.interfaces.TokenService;
+import com.ftec.utils.Logger;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.Email;
 import javax.validation.constraints.Pattern;
 import javax.validation.constraints.Size;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 @RestController
 public class ChangeSettingController {
 	private final ChangeSettingsService changeSettingsService;
+	private final PasswordHashingExecutor passwordHashingExecutor;
+	private final PasswordHasher passwordHasher;
 
 	public static final String CHANGE_USER_SETTING_URL = "/changeUserSetting";
 
-	public ChangeSettingController(ChangeSettingsService changeSettingsService) {
+	public ChangeSettingController(ChangeSettingsService changeSettingsService, PasswordHashingExecutor passwordHashingExecutor, PasswordHasher passwordHasher) {
 		this.changeSettingsService = changeSettingsService;
+		this.passwordHashingExecutor = passwordHashingExecutor;
+		this.passwordHasher = passwordHasher;
 	}
 
 	@PostMapping(value = CHANGE_USER_SETTING_URL, produces = "application/json")
-	public MvcResponse changeUserSetting(@RequestBody @Valid UserUpdate userUpdate, BindingResult br, HttpServletRequest request, HttpServletResponse response) {
+	public CompletableFuture<ResponseEntity<MvcResponse>> changeUserSetting(@RequestBody @Valid UserUpdate userUpdate, BindingResult br, HttpServletRequest request) {
 		if(br.hasErrors()) {
-		    response.setStatus(400);
-		    return MvcResponse.getMvcErrorResponse(Statuses.InvalidCredentials.getStatus(), br.getAllErrors().stream().map(DefaultMessageSourceResolvable::getDefaultMessage).collect(Collectors.joining("")));
+		    return CompletableFuture.completedFuture(ResponseEntity.status(400).body(MvcResponse.getMvcErrorResponse(Statuses.InvalidCredentials.getStatus(), br.getAllErrors().stream().map(DefaultMessageSourceResolvable::getDefaultMessage).collect(Collectors.joining("")))));
 		}
+		long userId = TokenService.getUserIdFromToken(request.getHeader(TokenService.TOKEN_NAME));
+		if (userUpdate.getPassword() == null) return CompletableFuture.completedFuture(updatePreferences(userUpdate, userId, null));
+
+		// only the hashing runs on the hashing pool, the user is saved on its callback thread
+		return passwordHashingExecutor.submit(() -> passwordHasher.hash(userUpdate.getPassword()))
+				.thenApply(passwordHash -> updatePreferences(userUpdate, userId, passwordHash))
+				.exceptionally(e -> {
+					if (PasswordHashingExecutor.isRejected(e)) {
+						return ResponseEntity.status(503).body(MvcResponse.getMvcErrorResponse(Statuses.ServerBusy.getStatus(), "Server is busy, try again later"));
+					}
+					Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+					Logger.logException(ChangeSettingController.class, "While changing user settings",
+							cause instanceof Exception ? (Exception) cause : new RuntimeException(cause), true);
+					return ResponseEntity.status(500).body(MvcResponse.getMvcErrorResponse(Statuses.UnexpectedError.getStatus(), "Unexpected error"));
+				});
+	}
+
+	private ResponseEntity<MvcResponse> updatePreferences(UserUpdate userUpdate, long userId, String passwordHash) {
 		try {
-			changeSettingsService.updatePreferences(userUpdate, TokenService.getUserIdFromToken(request.getHeader(TokenService.TOKEN_NAME)));
+			changeSettingsService.updatePreferences(userUpdate, userId, passwordHash);
 		} catch (UserNotExistsException ex){
-			response.setStatus(400);
-			return MvcResponse.getMvcErrorResponse(Statuses.UserNotExist.getStatus(), ex.getMessage());
+			return ResponseEntity.status(400).body(MvcResponse.getMvcErrorResponse(Statuses.UserNotExist.getStatus(), ex.getMessage()));
 		}
-		return new MvcResponse(Statuses.Ok.getStatus());
+		return ResponseEntity.ok(new MvcResponse(Statuses.Ok.getStatus()));
 	}
 
 
@@ -6,28 +6,37 @@ import com.ftec.exceptions.WeakPasswordException;
 import com.ftec.resources.enums.Statuses;
 import com.ftec.resources.models.MvcResponse;
 import com.ftec.services.ConfirmEmailService;
+import com.ftec.services.PasswordHashingExecutor;
 import com.ftec.services.PasswordRestoreService;
+import com.ftec.services.interfaces.PasswordHasher;
 import com.ftec.utils.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 public class ManageDataController {
 
     private final ConfirmEmailService confirmEmailService;
     private final PasswordRestoreService passwordRestoreService;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final PasswordHasher passwordHasher;
 
     public static final String SEND_RESTORE_URL = "/sendRestoreUrl";
 
     @Autowired
-    public ManageDataController(ConfirmEmailService confirmEmailService, PasswordRestoreService passwordRestoreService) {
+    public ManageDataController(ConfirmEmailService confirmEmailService, PasswordRestoreService passwordRestoreService, PasswordHashingExecutor passwordHashingExecutor, PasswordHasher passwordHasher) {
 
         this.confirmEmailService = confirmEmailService;
         this.passwordRestoreService = passwordRestoreService;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.passwordHasher = passwordHasher;
     }
 
     @PostMapping(value = SEND_RESTORE_URL, consumes = "application/json", produces = "application/json")
@@ -40,7 +49,7 @@ public class ManageDataController {
             return MvcResponse.getMvcErrorResponse(Statuses.InvalidUserData.getStatus(), e.getMessage());
         }
         catch (Exception e) {
-            Logger.logException("While executing sending restore url", e, true);
+            Logger.logException(ManageDataController.class, "While executing sending restore url", e, true);
             response.setStatus(500);
             return MvcResponse.getMvcErrorResponse(Statuses.UnexpectedError.getStatus(), "Unexpected error");
         }
@@ -50,24 +59,48 @@ public class ManageDataController {
 
 
     @PostMapping(value = "/changePass", consumes = "application/json")
-    public MvcResponse changePass(@RequestParam(name = "hash") String hash, @RequestParam("new_pass") String new_pass, HttpServletResponse response) {
+    public CompletableFuture<ResponseEntity<MvcResponse>> changePass(@RequestParam(name = "hash") String hash, @RequestParam("new_pass") String new_pass) {
         try {
-            passwordRestoreService.processChangingPass(hash, new_pass);
+            passwordRestoreService.checkChangingPass(hash, new_pass);
         }
         catch (InvalidHashException e){
-            response.setStatus(400);
-            return MvcResponse.getMvcErrorResponse(Statuses.InvalidHash.getStatus(),"Invalid hash!");
+            return CompletableFuture.completedFuture(ResponseEntity.status(400).body(MvcResponse.getMvcErrorResponse(Statuses.InvalidHash.getStatus(),"Invalid hash!")));
         } catch (WeakPasswordException e){
-            response.setStatus(400);
-            return MvcResponse.getMvcErrorResponse(Statuses.WeakPassword.getStatus(),"Weak password!");
+            return CompletableFuture.completedFuture(ResponseEntity.status(400).body(MvcResponse.getMvcErrorResponse(Statuses.WeakPassword.getStatus(),"Weak password!")));
         }
         catch (Exception e){
-            Logger.logException("While executing changing pass", e, true);
-            response.setStatus(500);
-            return MvcResponse.getMvcErrorResponse(Statuses.UnexpectedError.getStatus(),"Unexpected error");
+            return CompletableFuture.completedFuture(getUnexpectedErrorResponse(e));
         }
 
-        return new MvcResponse(Statuses.Ok.getStatus());
+        // only the hashing runs on the hashing pool, the password is saved on its callback thread
+        return passwordHashingExecutor.submit(() -> passwordHasher.hash(new_pass))
+                .thenApply(passwordHash -> saveNewPassword(hash, passwordHash))
+                .exceptionally(e -> {
+                    if (PasswordHashingExecutor.isRejected(e)) {
+                        return ResponseEntity.status(503).body(MvcResponse.getMvcErrorResponse(Statuses.ServerBusy.getStatus(), "Server is busy, try again later"));
+                    }
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    return getUnexpectedErrorResponse(cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+                });
+    }
+
+    private ResponseEntity<MvcResponse> saveNewPassword(String hash, String passwordHash) {
+        try {
+            passwordRestoreService.processChangingPass(hash, passwordHash);
+        }
+        catch (InvalidHashException e){
+            return ResponseEntity.status(400).body(MvcResponse.getMvcErrorResponse(Statuses.InvalidHash.getStatus(),"Invalid hash!"));
+        }
+        catch (Exception e){
+            return getUnexpectedErrorResponse(e);
+        }
+
+        return ResponseEntity.ok(new MvcResponse(Statuses.Ok.getStatus()));
+    }
+
+    private ResponseEntity<MvcResponse> getUnexpectedErrorResponse(Exception e) {
+        Logger.logException(ManageDataController.class, "While executing changing pass", e, true);
+        return ResponseEntity.status(500).body(MvcResponse.getMvcErrorResponse(Statuses.UnexpectedError.getStatus(),"Unexpected error"));
     }
 
     @PostMapping(value = "/confirmEmail")
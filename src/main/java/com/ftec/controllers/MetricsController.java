@@ -0,0 +1,76 @@
+package com.ftec.controllers;
+
+import com.ftec.modules.ArbitrageModule;
+import com.ftec.resources.models.MvcResponse;
+import com.ftec.services.EmailDispatcher;
+import com.ftec.services.EmailOutbox;
+import com.ftec.services.PasswordHashingExecutor;
+import com.ftec.services.TicketEvents;
+import com.ftec.services.TicketSearchIndex;
+import com.ftec.services.TokenExpirationWriter;
+import com.ftec.utils.Logger;
+import com.ftec.utils.RequestsHelper;
+import com.ftec.utils.local_sendpulse.restapi.Sendpulse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@RestController
+public class MetricsController {
+
+    // absent with signed tokens
+    private final Optional<TokenExpirationWriter> tokenExpirationWriter;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final EmailDispatcher emailDispatcher;
+    private final EmailOutbox emailOutbox;
+    private final Sendpulse sendpulse;
+    private final ArbitrageModule arbitrageModule;
+    private final TicketEvents ticketEvents;
+    private final TicketSearchIndex ticketSearchIndex;
+
+    public static final String METRICS_URL = TicketController.ADM_PREF + "/metrics";
+    public static final String EXCEPTIONS_URL = METRICS_URL + "/exceptions";
+    public static final String EMAIL_CAMPAIGNS_URL = METRICS_URL + "/emails";
+
+    @Autowired
+    public MetricsController(Optional<TokenExpirationWriter> tokenExpirationWriter, PasswordHashingExecutor passwordHashingExecutor, EmailDispatcher emailDispatcher, EmailOutbox emailOutbox, Sendpulse sendpulse, ArbitrageModule arbitrageModule, TicketEvents ticketEvents, TicketSearchIndex ticketSearchIndex) {
+        this.tokenExpirationWriter = tokenExpirationWriter;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.emailDispatcher = emailDispatcher;
+        this.emailOutbox = emailOutbox;
+        this.sendpulse = sendpulse;
+        this.arbitrageModule = arbitrageModule;
+        this.ticketEvents = ticketEvents;
+        this.ticketSearchIndex = ticketSearchIndex;
+    }
+
+    @GetMapping(value = METRICS_URL, produces = "application/json")
+    public MvcResponse getMetrics() {
+        MvcResponse response = new MvcResponse(200);
+        tokenExpirationWriter.ifPresent(writer -> response.getParams().put("tokenExpirationWriter", writer.getMetrics()));
+        response.getParams().put("passwordHashing", passwordHashingExecutor.getMetrics());
+        response.getParams().put("emailDispatch", emailDispatcher.getMetrics());
+        response.getParams().put("emailOutbox", emailOutbox.getMetrics());
+        response.getParams().put("sendpulseConnections", sendpulse.getTransport().getMetrics());
+        response.getParams().put("outgoingRequests", RequestsHelper.getMetrics());
+        response.getParams().put("arbitrage", arbitrageModule.getMetrics());
+        response.getParams().put("ticketEvents", ticketEvents.getMetrics());
+        response.getParams().put("ticketSearch", ticketSearchIndex.getMetrics());
+        return response;
+    }
+
+    @GetMapping(value = EXCEPTIONS_URL, produces = "application/json")
+    public MvcResponse getExceptionCounters() {
+        return new MvcResponse(200, "exceptions", Logger.getExceptionCounters());
+    }
+
+    @GetMapping(value = EMAIL_CAMPAIGNS_URL, produces = "application/json")
+    public MvcResponse getEmailCampaigns() {
+        return new MvcResponse(200, "campaigns", emailDispatcher.getCampaigns().stream()
+                .map(EmailDispatcher.Campaign::toMap)
+                .collect(Collectors.toList()));
+    }
+}
@@ -7,6 +7,8 @@ import com.ftec.resources.enums.Statuses;
 import com.ftec.resources.models.MvcResponse;
 import com.ftec.services.ConfirmEmailService;
 import com.ftec.services.Implementations.RegistrationServiceImpl;
+import com.ftec.services.PasswordHashingExecutor;
+import com.ftec.services.interfaces.PasswordHasher;
 import com.ftec.services.interfaces.ReferralService;
 import com.ftec.services.interfaces.RegistrationService;
 import com.ftec.services.interfaces.TokenService;
@@ -16,6 +18,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.*;
@@ -27,6 +30,8 @@ import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
 import javax.validation.constraints.Size;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 @RestController
@@ -38,27 +43,46 @@ public class RegistrationController {
     private final UniqueLoginValidator uniqueLoginValidator;
     private final UniqueEmailValidator uniqueEmailValidator;
     private final ConfirmEmailService confirmEmailService;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final PasswordHasher passwordHasher;
 
     @PostMapping(path = "/registration", consumes = "application/json", produces = "application/json")
-    public MvcResponse createUser(@RequestBody @Valid UserRegistration userRegistration, BindingResult br, HttpServletResponse response) {
-        try {
+    public CompletableFuture<ResponseEntity<MvcResponse>> createUser(@RequestBody @Valid UserRegistration userRegistration, BindingResult br) {
+        if (br.hasErrors()) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(400).body(getValidationErrorResponse(br)));
+        }
 
-            if (br.hasErrors()) {
-                response.setStatus(400);
-                List<FieldError> errors = br.getFieldErrors();
-                for (FieldError error : errors) {
-                    if (error.getField().equals("username")) {
-                        return MvcResponse.getMvcErrorResponse(Statuses.LoginTaken.getStatus(), error.getDefaultMessage());
-                    }
-                    if (error.getField().equals("email")) {
-                        return MvcResponse.getMvcErrorResponse(Statuses.EmailTaken.getStatus(), error.getDefaultMessage());
+        // only the hashing runs on the hashing pool, the user is saved on its callback thread
+        return passwordHashingExecutor.submit(() -> passwordHasher.hash(userRegistration.getPassword()))
+                .thenApply(passwordHash -> register(userRegistration, passwordHash))
+                .exceptionally(e -> {
+                    if (PasswordHashingExecutor.isRejected(e)) {
+                        return ResponseEntity.status(503).body(MvcResponse.getMvcErrorResponse(Statuses.ServerBusy.getStatus(), "Server is busy, try again later"));
                     }
-                }
-                return MvcResponse.getMvcErrorResponse(Statuses.ModelMalformed.getStatus(), br.getAllErrors().stream().map(DefaultMessageSourceResolvable::getDefaultMessage).collect(Collectors.joining("")));
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    Logger.logException(RegistrationController.class, "Registration Controller while hashing password",
+                            cause instanceof Exception ? (Exception) cause : new RuntimeException(cause), true);
+                    return ResponseEntity.status(500).body(MvcResponse.getMvcErrorResponse(Statuses.UnexpectedError.getStatus(), "Unexpected error"));
+                });
+    }
+
+    private MvcResponse getValidationErrorResponse(BindingResult br) {
+        List<FieldError> errors = br.getFieldErrors();
+        for (FieldError error : errors) {
+            if (error.getField().equals("username")) {
+                return MvcResponse.getMvcErrorResponse(Statuses.LoginTaken.getStatus(), error.getDefaultMessage());
             }
+            if (error.getField().equals("email")) {
+                return MvcResponse.getMvcErrorResponse(Statuses.EmailTaken.getStatus(), error.getDefaultMessage());
+            }
+        }
+        return MvcResponse.getMvcErrorResponse(Statuses.ModelMalformed.getStatus(), br.getAllErrors().stream().map(DefaultMessageSourceResolvable::getDefaultMessage).collect(Collectors.joining("")));
+    }
 
+    private ResponseEntity<MvcResponse> register(UserRegistration userRegistration, String passwordHash) {
+        try {
             User userToSave = RegistrationServiceImpl.registerUser(userRegistration);
-            registrationService.registerNewUserAccount(userToSave);
+            registrationService.registerNewUserAccount(userToSave, passwordHash);
             confirmEmailService.sendConfirmEmailUrl(userToSave.getEmail(), userToSave.getId()); // send email confirm
 
             long referrerId = userRegistration.getReferrerId();
@@ -67,16 +91,13 @@ public class RegistrationController {
             }
 
             String token = tokenService.createSaveAndGetNewToken(userToSave.getId());
-            response.setStatus(200);
-            return new MvcResponse(Statuses.Ok.getStatus(), "token", token);
+            return ResponseEntity.ok(new MvcResponse(Statuses.Ok.getStatus(), "token", token));
         } catch (TokenException e) {
-            Logger.logException("Registration Controller while generation token", e, true);
-            response.setStatus(403);
-            return MvcResponse.getMvcErrorResponse(Statuses.TokenNotCreated.getStatus(), "Token Not Created");
+            Logger.logException(RegistrationController.class, "Registration Controller while generation token", e, true);
+            return ResponseEntity.status(403).body(MvcResponse.getMvcErrorResponse(Statuses.TokenNotCreated.getStatus(), "Token Not Created"));
         } catch (Exception e) {
-            Logger.logException("Registration Controller while register user", e, true);
-            response.setStatus(500);
-            return MvcResponse.getMvcErrorResponse(Statuses.UnexpectedError.getStatus(), e.getMessage());
+            Logger.logException(RegistrationController.class, "Registration Controller while register user", e, true);
+            return ResponseEntity.status(500).body(MvcResponse.getMvcErrorResponse(Statuses.UnexpectedError.getStatus(), e.getMessage()));
         }
     }
 
@@ -126,12 +147,14 @@ public class RegistrationController {
     }
 
     @Autowired
-    public RegistrationController(TokenService tokenService, RegistrationService registrationService, ReferralService referralService, UniqueLoginValidator uniqueLoginValidator, UniqueEmailValidator uniqueEmailValidator, ConfirmEmailService confirmEmailService) {
+    public RegistrationController(TokenService tokenService, RegistrationService registrationService, ReferralService referralService, UniqueLoginValidator uniqueLoginValidator, UniqueEmailValidator uniqueEmailValidator, ConfirmEmailService confirmEmailService, PasswordHashingExecutor passwordHashingExecutor, PasswordHasher passwordHasher) {
         this.referralService = referralService;
         this.tokenService = tokenService;
         this.registrationService = registrationService;
         this.uniqueLoginValidator = uniqueLoginValidator;
         this.uniqueEmailValidator = uniqueEmailValidator;
         this.confirmEmailService = confirmEmailService;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.passwordHasher = passwordHasher;
     }
 }
\ No newline at end of file
@@ -1,21 +1,31 @@
 package com.ftec.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ftec.entities.Comment;
 import com.ftec.entities.Ticket;
-import com.ftec.entities.User;
 import com.ftec.exceptions.TicketException;
+import com.ftec.exceptions.token.TokenException;
+import com.ftec.resources.enums.TicketCategory;
 import com.ftec.resources.enums.TicketStatus;
 import com.ftec.resources.models.MvcResponse;
+import com.ftec.resources.models.TicketSummary;
+import com.ftec.resources.models.UserPrincipal;
+import com.ftec.services.TicketEvents;
+import com.ftec.services.TicketSearchIndex;
 import com.ftec.services.interfaces.CommentService;
 import com.ftec.services.interfaces.TicketService;
 import com.ftec.services.interfaces.TokenService;
-import com.ftec.services.interfaces.UserService;
 import com.ftec.utils.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -25,33 +35,108 @@ public class TicketController {
 
     private final TicketService ticketService;
     private final CommentService commentService;
-    private final UserService userService;
+    private final ObjectMapper mapper;
+    private final TicketEvents ticketEvents;
+    private final TicketSearchIndex searchIndex;
+    private final TokenService tokenService;
 
     public static final String ADM_PREF = "/manage";
     public static final String CREATE_TICKET_URL = "/createTicket";
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
 
     @Autowired
-    public TicketController(TicketService ticketService, CommentService commentService, UserService userService) {
+    public TicketController(TicketService ticketService, CommentService commentService, ObjectMapper mapper, TicketEvents ticketEvents, TicketSearchIndex searchIndex,
+                            TokenService tokenService) {
         this.ticketService = ticketService;
         this.commentService = commentService;
-        this.userService = userService;
+        this.mapper = mapper;
+        this.ticketEvents = ticketEvents;
+        this.searchIndex = searchIndex;
+        this.tokenService = tokenService;
     }
 
+    /**
+     * Page of tickets, the newest first, as {"status":200,"response":{"Tickets":[...],"next":id}}.
+     * "next" is passed as {@code before} to get the following page, it is absent on the last page.
+     * Tickets are written to the response one by one, without building the whole MvcResponse first.
+     */
     @GetMapping("support/getAllTickets")
-    public MvcResponse getAllTickets() {
-        List<Ticket> allTicketsFromDB = ticketService.getAll();
-        return new MvcResponse(200, "Tickets", allTicketsFromDB);
+    public void getAllTickets(@RequestParam(value = "status", required = false) TicketStatus status,
+                              @RequestParam(value = "category", required = false) TicketCategory category,
+                              @RequestParam(value = "supporter_id", required = false) Long supporterId,
+                              @RequestParam(value = "before", required = false) Long before,
+                              @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                              HttpServletResponse response) throws IOException {
+        limit = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<TicketSummary> page = ticketService.getPage(before, status, category, supporterId, limit);
+
+        response.setStatus(200);
+        response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+        try (JsonGenerator json = mapper.getFactory().createGenerator(response.getOutputStream())) {
+            json.writeStartObject();
+            json.writeNumberField("status", 200);
+            json.writeObjectFieldStart("response");
+            json.writeArrayFieldStart("Tickets");
+            for (TicketSummary ticket : page) json.writeObject(ticket);
+            json.writeEndArray();
+            if (page.size() == limit) json.writeNumberField("next", page.get(page.size() - 1).getId());
+            json.writeEndObject();
+            json.writeEndObject();
+        }
+    }
+
+    /**
+     * Page of comments of the ticket, the oldest first; "next" is passed as {@code after} to get the following page.
+     */
+    @GetMapping(ADM_PREF + "/ticket/{ticketId}/comments")
+    public MvcResponse getComments(@PathVariable("ticketId") long ticketId,
+                                   @RequestParam(value = "after", required = false) Long after,
+                                   @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                   HttpServletResponse response) {
+        if (!ticketService.existsById(ticketId)) {
+            response.setStatus(400);
+            return MvcResponse.getMvcErrorResponse(400, "Ticket not found");
+        }
+
+        limit = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Comment> page = commentService.getPageByTicketId(ticketId, after, limit);
+        MvcResponse mvcResponse = new MvcResponse(200, "Comments", page);
+        if (page.size() == limit) mvcResponse.getParams().put("next", page.get(page.size() - 1).getId());
+        return mvcResponse;
+    }
+
+    /**
+     * Server-sent events of new tickets, comments, status and supporter changes, see {@link TicketEvents}.
+     * @param supporterId support users only: events of tickets assigned to this supporter
+     */
+    @GetMapping(value = "support/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestParam(value = "supporter_id", required = false) Long supporterId, UserPrincipal subscriber,
+                                HttpServletRequest request, HttpServletResponse response) {
+        // the principal is looked up by the user id of the token, the token itself has to be checked here
+        try {
+            tokenService.processToken(request.getHeader(TokenService.TOKEN_NAME));
+        } catch (TokenException e) {
+            response.setStatus(403);
+            return null;
+        }
+        if (subscriber == null) {
+            response.setStatus(403);
+            return null;
+        }
+
+        SseEmitter emitter = ticketEvents.subscribe(subscriber, supporterId);
+        if (emitter == null) response.setStatus(503);
+        return emitter;
     }
 
     @PostMapping("support/addComment/{ticketId}")
-    public MvcResponse addComment(@PathVariable("ticketId") long ticketId, @RequestBody String message, HttpServletRequest request, HttpServletResponse response) {
-        String token = request.getHeader(TokenService.TOKEN_NAME);
-        Optional<User> commentator = userService.getById(TokenService.getUserIdFromToken(token));
-        if (commentator.isPresent()) {
+    public MvcResponse addComment(@PathVariable("ticketId") long ticketId, @RequestBody String message, UserPrincipal commentator, HttpServletResponse response) {
+        if (commentator != null) {
             Optional<Ticket> ticketById = ticketService.findById(ticketId);
             if (ticketById.isPresent()) {
                 if (ticketById.get().getStatus() != TicketStatus.CLOSED) {
-                    long commentatorId = commentator.get().getId();
+                    long commentatorId = commentator.getId();
                     commentService.addCommentToTicket(ticketId, new Date(), message, commentatorId);
                     return new MvcResponse(200);
                 }
@@ -78,13 +163,33 @@ public class TicketController {
             response.setStatus(400);
             return new MvcResponse(400, e.getMessage());
         } catch (Exception e) {
-            Logger.logException("Unexpected exception: ", e, true);
+            Logger.logException(TicketController.class, "Unexpected exception: ", e, true);
             response.setStatus(400);
             return new MvcResponse(400, "Unexpected error");
         }
     }
 
 
+    /**
+     * Tickets with any word of {@code q} in subject, message or comments, the most relevant first.
+     */
+    @GetMapping(ADM_PREF + "/searchTickets")
+    public MvcResponse searchTickets(@RequestParam("q") String query,
+                                     @RequestParam(value = "page", defaultValue = "0") int page,
+                                     @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                     HttpServletResponse response) {
+        if (query.trim().isEmpty() || page < 0) {
+            response.setStatus(400);
+            return MvcResponse.getMvcErrorResponse(400, "Invalid query");
+        }
+
+        limit = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        TicketSearchIndex.Hits hits = searchIndex.search(query, (long) page * limit, limit);
+        MvcResponse mvcResponse = new MvcResponse(200, "Tickets", ticketService.findSummaries(hits.getTicketIds()));
+        mvcResponse.getParams().put("total", hits.getTotal());
+        return mvcResponse;
+    }
+
     @PostMapping(value = ADM_PREF + "/setSupporterIdForTicket", consumes = "application/json", produces = "application/json")
     public MvcResponse setSupportedIdForToken(@RequestParam("ticket_id") long ticket_id, @RequestParam("supported_id") long supporter_id) {
         ticketService.setTicketSupport(ticket_id, supporter_id);
@@ -99,7 +204,7 @@ public class TicketController {
             response.setStatus(400);
             return new MvcResponse(400, e.getMessage());
         } catch (Exception e) {
-            Logger.logException("//", e, true);
+            Logger.logException(TicketController.class, "//", e, true);
             response.setStatus(400);
             return new MvcResponse(400, "Unexpected error");
         }
@@ -107,16 +212,20 @@ public class TicketController {
     }
 
     @PostMapping(value = "/deleteTicket/{ticket_id}", consumes = "application/json", produces = "application/json")
-    public MvcResponse deleteTicket(@PathVariable("ticket_id") long ticket_id, HttpServletRequest request, HttpServletResponse response) {
+    public MvcResponse deleteTicket(@PathVariable("ticket_id") long ticket_id, UserPrincipal principal, HttpServletRequest request, HttpServletResponse response) {
+        if (principal == null) {
+            response.setStatus(403);
+            return MvcResponse.getMvcErrorResponse(403, "User not found");
+        }
         try {
-            ticketService.deleteById(ticket_id, TokenService.getUserIdFromToken(request.getHeader(TokenService.TOKEN_NAME)));
+            ticketService.deleteById(ticket_id, principal.getId());
 
         } catch (TicketException e) {
             response.setStatus(403);
             return new MvcResponse(403, e.getMessage());
 
         } catch (Exception e) {
-            Logger.logException("//", e, true);
+            Logger.logException(TicketController.class, "//", e, true);
             response.setStatus(400);
             return new MvcResponse(400, "Unexpected error");
         }
@@ -2,13 +2,13 @@ package com.ftec.controllers;
 
 import com.ftec.exceptions.TutorialCompletedException;
 import com.ftec.resources.enums.TutorialSteps;
-import com.ftec.services.interfaces.TokenService;
+import com.ftec.resources.models.UserPrincipal;
 import com.ftec.services.interfaces.TutorialService;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 @RestController
 public class TutorialController {
@@ -21,14 +21,23 @@ public class TutorialController {
 		this.tutorialService = tutorialService;
 	}
 
+	// principal is null when the token's user no longer exists
 	@PostMapping(TUTORIAL_NEXT_STEP_URL)
-	public TutorialSteps nextStep(HttpServletRequest request) throws NullPointerException, TutorialCompletedException {
-		return tutorialService.proceedToNextStep(TokenService.getUserIdFromToken(request.getHeader(TokenService.TOKEN_NAME)));
+	public TutorialSteps nextStep(UserPrincipal principal, HttpServletResponse response) throws NullPointerException, TutorialCompletedException {
+		if (principal == null) {
+			response.setStatus(403);
+			return null;
+		}
+		return tutorialService.proceedToNextStep(principal.getId());
 	}
 
 	@GetMapping(TUTORIAL_GET_CUR_STEP_URL)
-	public TutorialSteps getCurrentStep(HttpServletRequest request) throws NullPointerException {
-		return tutorialService.getCurrentStep(TokenService.getUserIdFromToken(request.getHeader(TokenService.TOKEN_NAME)));
+	public TutorialSteps getCurrentStep(UserPrincipal principal, HttpServletResponse response) throws NullPointerException {
+		if (principal == null) {
+			response.setStatus(403);
+			return null;
+		}
+		return tutorialService.getCurrentStep(principal.getId());
 	}
 
 }
@@ -3,7 +3,9 @@ package com.ftec.entities;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
@@ -16,6 +18,8 @@ import java.util.Date;
 @AllArgsConstructor
 @NoArgsConstructor
 @Table
+@ToString(exclude = "ticket")
+@EqualsAndHashCode(exclude = "ticket")
 public class Comment {
 
     @Id
@@ -28,7 +32,7 @@ public class Comment {
     private String message;
 
     @JsonIgnore
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     private Ticket ticket;
 
     private Date creationDate;
@@ -0,0 +1,58 @@
+package com.ftec.entities;
+
+import com.ftec.resources.enums.OutboxStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * Email saved in the same transaction as data it is about and sent later by {@link com.ftec.services.EmailOutbox}.
+ * {@code emailType} is name of {@link com.ftec.services.MailService.Emails}, or null for plain message with {@code subject}.
+ */
+@Data
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "email_outbox", indexes = @Index(name = "email_outbox_status_idx", columnList = "status,nextAttemptAt"))
+public class OutboxEmail {
+
+    @Id
+    @GeneratedValue(strategy= GenerationType.AUTO, generator="native")
+    @GenericGenerator(name = "native", strategy = "native")
+    private long id;
+
+    @Column(unique = true, nullable = false, length = 100)
+    private String idempotencyKey;
+
+    private String emailType;
+
+    private String recipient;
+
+    private String language;
+
+    private String subject;
+
+    // json of placeholder values
+    @Column(length = 4000)
+    private String params;
+
+    private OutboxStatus status = OutboxStatus.PENDING;
+
+    private int attempts;
+
+    // incremented by every claim, so only one relay can take the email
+    private long claimVersion;
+
+    private Date nextAttemptAt;
+
+    private Date createdAt;
+
+    private Date sentAt;
+
+    @Column(length = 500)
+    private String lastError;
+}
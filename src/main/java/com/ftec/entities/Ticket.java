@@ -1,12 +1,17 @@
 package com.ftec.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.ftec.resources.enums.TicketCategory;
 import com.ftec.resources.enums.TicketStatus;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
@@ -18,8 +23,14 @@ import java.util.List;
 @Entity
 @AllArgsConstructor
 @NoArgsConstructor
-@Table
-@ToString
+@Table(indexes = {
+        @Index(name = "ticket_status_id_idx", columnList = "status,id"),
+        @Index(name = "ticket_category_id_idx", columnList = "category,id"),
+        @Index(name = "ticket_supporter_id_idx", columnList = "supporter_id,id")
+})
+@ToString(exclude = "commentList")
+@EqualsAndHashCode(exclude = "commentList")
+@BatchSize(size = 50)
 public class Ticket {
 
     @Id
@@ -40,7 +51,12 @@ public class Ticket {
     @NotNull
     private TicketStatus status = TicketStatus.NEW;
 
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "ticket", cascade = CascadeType.ALL)
+    // loaded on access for up to 50 tickets at once; paged via CommentDAO
+    @JsonIgnore
+    @BatchSize(size = 50)
+    // bulk deletes of tickets rely on the foreign key to delete comments
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "ticket", cascade = CascadeType.ALL)
     private List<Comment> commentList;
 
     private Date creationDate;
@@ -6,13 +6,14 @@ import lombok.Data;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
 import java.util.Date;
 
 @Entity
 @Data
 @AllArgsConstructor
-@Table(name = "token_table")
+@Table(name = "token_table", indexes = @Index(name = "token_user_id_idx", columnList = "userId"))
 public class Token {
 
 	@Id
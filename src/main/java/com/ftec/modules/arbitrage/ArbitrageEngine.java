@@ -0,0 +1,176 @@
+package com.ftec.modules.arbitrage;
+
+import com.ftec.resources.Stocks;
+import com.ftec.utils.DurationStats;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the latest top of book per (pair, exchange) and cross-exchange windows built from it.
+ *
+ * Books are plain arrays indexed by {@link Stocks#ordinal()}, and windows of a pair by buy * STOCKS + sell,
+ * so a quote recomputes only 2 * (STOCKS - 1) windows of its pair. All windows are kept in one index sorted
+ * by profit, queries walk it from the top and stop at {@code minPercent}.
+ *
+ * Quotes are applied one at a time; queries don't lock and may miss a window being replaced at that moment.
+ */
+public class ArbitrageEngine {
+
+    private static final Stocks[] STOCKS = Stocks.values();
+
+    private static final Comparator<Window> BY_PROFIT = Comparator
+            .comparingDouble((Window window) -> window.profitPercent).reversed()
+            .thenComparingInt(window -> window.book.id)
+            .thenComparingInt(window -> window.buy)
+            .thenComparingInt(window -> window.sell);
+
+    private final long quoteTtl;
+    private final Map<String, Book> books = new HashMap<>();
+    private final NavigableSet<Window> index = new ConcurrentSkipListSet<>(BY_PROFIT);
+
+    private final AtomicLong quotes = new AtomicLong();
+    private final DurationStats updateDuration = new DurationStats();
+    private final DurationStats queryDuration = new DurationStats();
+
+    /**
+     * @param quoteTtl windows with a quote older than that many ms are not returned
+     */
+    public ArbitrageEngine(long quoteTtl) {
+        this.quoteTtl = quoteTtl;
+    }
+
+    /**
+     * Bitmask of exchanges for {@link #query}; null or empty means all exchanges.
+     */
+    public static long mask(Stocks[] stocks) {
+        if (stocks == null || stocks.length == 0) return -1L;
+        long mask = 0;
+        for (Stocks stock : stocks) mask |= 1L << stock.ordinal();
+        return mask;
+    }
+
+    public synchronized void onQuote(Quote quote) {
+        long start = System.nanoTime();
+
+        Book book = books.computeIfAbsent(quote.getPair(), pair -> new Book(books.size(), pair));
+        int stock = quote.getStock().ordinal();
+        book.bid[stock] = quote.getBid();
+        book.bidVolume[stock] = quote.getBidVolume();
+        book.ask[stock] = quote.getAsk();
+        book.askVolume[stock] = quote.getAskVolume();
+        book.locked[stock] = quote.isLocked();
+        book.receivedAt[stock] = System.currentTimeMillis();
+
+        for (int other = 0; other < STOCKS.length; other++) {
+            if (other == stock) continue;
+            update(book, stock, other);
+            update(book, other, stock);
+        }
+
+        quotes.incrementAndGet();
+        updateDuration.record(System.nanoTime() - start);
+    }
+
+    private void update(Book book, int buy, int sell) {
+        int slot = buy * STOCKS.length + sell;
+        Window old = book.windows[slot];
+        Window window = book.ask[buy] > 0 && book.bid[sell] > 0 ? new Window(book, buy, sell) : null;
+
+        if (old != null) index.remove(old);
+        if (window != null) index.add(window);
+        book.windows[slot] = window;
+    }
+
+    /**
+     * @param minVolume volume available on both sides of the window, at least
+     * @param minPercent profit percent, at least
+     * @param stocks {@link #mask} of exchanges both sides should be on
+     * @param orderVolume volume available on buy and on sell, at least; 0 to skip the check
+     * @return windows sorted by profit percent, the best first
+     */
+    public List<ArbitrageWindow> query(double minVolume, double minPercent, long stocks, double orderVolume) {
+        long start = System.nanoTime();
+        long freshSince = System.currentTimeMillis() - quoteTtl;
+
+        List<ArbitrageWindow> result = new ArrayList<>();
+        for (Window window : index) {
+            if (window.profitPercent < minPercent) break;
+            if ((stocks & (1L << window.buy)) == 0 || (stocks & (1L << window.sell)) == 0) continue;
+            if (Math.min(window.volumeOnBuy, window.volumeOnSell) < minVolume) continue;
+            if (window.volumeOnBuy < orderVolume || window.volumeOnSell < orderVolume) continue;
+            if (window.updatedAt < freshSince) continue;
+            result.add(window.toArbitrageWindow());
+        }
+
+        queryDuration.record(System.nanoTime() - start);
+        return result;
+    }
+
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("pairs", books.size());
+        metrics.put("windows", index.size());
+        metrics.put("quotes", quotes.get());
+        metrics.put("update", updateDuration.toMap());
+        metrics.put("query", queryDuration.toMap());
+        return metrics;
+    }
+
+    /**
+     * Latest quotes of one pair on all exchanges.
+     */
+    private static class Book {
+        private final int id;
+        private final String pair;
+        private final double[] bid = new double[STOCKS.length];
+        private final double[] bidVolume = new double[STOCKS.length];
+        private final double[] ask = new double[STOCKS.length];
+        private final double[] askVolume = new double[STOCKS.length];
+        private final boolean[] locked = new boolean[STOCKS.length];
+        private final long[] receivedAt = new long[STOCKS.length];
+        private final Window[] windows = new Window[STOCKS.length * STOCKS.length];
+
+        private Book(int id, String pair) {
+            this.id = id;
+            this.pair = pair;
+        }
+    }
+
+    /**
+     * Immutable snapshot of buying on {@code buy} and selling on {@code sell}, replaced on every quote of them.
+     */
+    private static class Window {
+        private final Book book;
+        private final int buy;
+        private final int sell;
+        private final double priceToBuy;
+        private final double priceToSell;
+        private final double volumeOnBuy;
+        private final double volumeOnSell;
+        private final boolean lockedOnBuy;
+        private final boolean lockedOnSell;
+        private final double profitPercent;
+        private final long updatedAt;
+
+        private Window(Book book, int buy, int sell) {
+            this.book = book;
+            this.buy = buy;
+            this.sell = sell;
+            this.priceToBuy = book.ask[buy];
+            this.priceToSell = book.bid[sell];
+            this.volumeOnBuy = book.askVolume[buy];
+            this.volumeOnSell = book.bidVolume[sell];
+            this.lockedOnBuy = book.locked[buy];
+            this.lockedOnSell = book.locked[sell];
+            this.profitPercent = (priceToSell - priceToBuy) / priceToBuy * 100;
+            this.updatedAt = Math.min(book.receivedAt[buy], book.receivedAt[sell]);
+        }
+
+        private ArbitrageWindow toArbitrageWindow() {
+            return new ArbitrageWindow(book.pair, STOCKS[buy], priceToBuy, STOCKS[sell], priceToSell,
+                    lockedOnBuy, lockedOnSell, volumeOnBuy, volumeOnSell, profitPercent);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.ftec.modules.arbitrage;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Windows shared by all users asking the same query for {@code ttl} ms.
+ * Concurrent misses of one query wait for a single load instead of running it each.
+ * Returned lists are unmodifiable and shared, per-user filters should copy them.
+ */
+public class ArbitrageResultCache {
+
+    // expired entries are dropped when there are more queries than that
+    private static final int MAX_ENTRIES = 1000;
+
+    private final long ttl;
+    private final Map<Query, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public ArbitrageResultCache(long ttl) {
+        this.ttl = ttl;
+    }
+
+    public List<ArbitrageWindow> get(Query query, Supplier<List<ArbitrageWindow>> loader) {
+        while (true) {
+            Entry entry = entries.get(query);
+            if (entry != null && !entry.isExpired()) {
+                if (entry.future.isDone()) hits.incrementAndGet();
+                else coalesced.incrementAndGet();
+                return join(entry.future);
+            }
+
+            Entry loading = new Entry();
+            boolean owner = entry == null ? entries.putIfAbsent(query, loading) == null : entries.replace(query, entry, loading);
+            // other thread has started loading this query, wait for it
+            if (!owner) continue;
+
+            misses.incrementAndGet();
+            if (entries.size() > MAX_ENTRIES) entries.values().removeIf(Entry::isExpired);
+            try {
+                List<ArbitrageWindow> windows = Collections.unmodifiableList(loader.get());
+                loading.loadedAt = System.currentTimeMillis();
+                loading.future.complete(windows);
+                return windows;
+            } catch (RuntimeException e) {
+                // failures are not cached, waiting threads get the same exception
+                entries.remove(query, loading);
+                loading.future.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    private static List<ArbitrageWindow> join(CompletableFuture<List<ArbitrageWindow>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("entries", entries.size());
+        metrics.put("hits", hits.get());
+        metrics.put("misses", misses.get());
+        metrics.put("coalesced", coalesced.get());
+        return metrics;
+    }
+
+    private class Entry {
+        private final CompletableFuture<List<ArbitrageWindow>> future = new CompletableFuture<>();
+        // 0 while loading
+        private volatile long loadedAt;
+
+        private boolean isExpired() {
+            return loadedAt != 0 && System.currentTimeMillis() - loadedAt >= ttl;
+        }
+    }
+
+    /**
+     * Normalized query: filters shared by users, per-user filters are applied to cached result.
+     */
+    public static class Query {
+        private final long stocks;
+        private final double minVolume;
+        private final double minPercent;
+
+        public Query(long stocks, double minVolume, double minPercent) {
+            this.stocks = stocks;
+            this.minVolume = minVolume;
+            this.minPercent = minPercent;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Query query = (Query) o;
+            return stocks == query.stocks &&
+                    Double.compare(query.minVolume, minVolume) == 0 &&
+                    Double.compare(query.minPercent, minPercent) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(stocks, minVolume, minPercent);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.ftec.modules.arbitrage;
+
+import com.ftec.resources.Stocks;
+
+import java.util.Objects;
+
+/**
+ * Buy {@code pairName} on {@code stockToBuy} at its ask and sell on {@code stockToSell} at its bid.
+ * Windows are equal if they are for the same pair and exchanges.
+ */
+public class ArbitrageWindow {
+    private String pairName;
+    private Stocks stockToBuy;
+    private double priceToBuy;
+    private Stocks stockToSell;
+    private double priceToSell;
+    private boolean lockedOnBuy;
+    private boolean lockedOnSell;
+    private double volumeOnBuy;
+    private double volumeOnSell;
+    private double profitPercent;
+
+    public ArbitrageWindow() {
+    }
+
+    public ArbitrageWindow(String pairName, Stocks stockToBuy, double priceToBuy, Stocks stockToSell, double priceToSell, boolean lockedOnBuy, boolean lockedOnSell, double volumeOnBuy, double volumeOnSell, double profitPercent) {
+        this.pairName = pairName;
+        this.stockToBuy = stockToBuy;
+        this.priceToBuy = priceToBuy;
+        this.stockToSell = stockToSell;
+        this.priceToSell = priceToSell;
+        this.lockedOnBuy = lockedOnBuy;
+        this.lockedOnSell = lockedOnSell;
+        this.volumeOnBuy = volumeOnBuy;
+        this.volumeOnSell = volumeOnSell;
+        this.profitPercent = profitPercent;
+    }
+
+    @Override
+    public String toString() {
+        return "ArbitrageWindow{" +
+                "pairName='" + pairName + '\'' +
+                ", stockToBuy=" + stockToBuy +
+                ", priceToBuy=" + priceToBuy +
+                ", stockToSell=" + stockToSell +
+                ", priceToSell=" + priceToSell +
+                ", lockedOnBuy=" + lockedOnBuy +
+                ", lockedOnSell=" + lockedOnSell +
+                ", volumeOnBuy=" + volumeOnBuy +
+                ", volumeOnSell=" + volumeOnSell +
+                ", profitPercent=" + profitPercent +
+                '}';
+    }
+
+    public boolean isLockedOnBuy() {
+        return lockedOnBuy;
+    }
+
+    public void setLockedOnBuy(boolean lockedOnBuy) {
+        this.lockedOnBuy = lockedOnBuy;
+    }
+
+    public boolean isLockedOnSell() {
+        return lockedOnSell;
+    }
+
+    public void setLockedOnSell(boolean lockedOnSell) {
+        this.lockedOnSell = lockedOnSell;
+    }
+
+    public String getPairName() {
+        return pairName;
+    }
+
+    public void setPairName(String pairName) {
+        this.pairName = pairName;
+    }
+
+    public Stocks getStockToBuy() {
+        return stockToBuy;
+    }
+
+    public void setStockToBuy(Stocks stockToBuy) {
+        this.stockToBuy = stockToBuy;
+    }
+
+    public double getPriceToBuy() {
+        return priceToBuy;
+    }
+
+    public void setPriceToBuy(double priceToBuy) {
+        this.priceToBuy = priceToBuy;
+    }
+
+    public Stocks getStockToSell() {
+        return stockToSell;
+    }
+
+    public void setStockToSell(Stocks stockToSell) {
+        this.stockToSell = stockToSell;
+    }
+
+    public double getPriceToSell() {
+        return priceToSell;
+    }
+
+    public void setPriceToSell(double priceToSell) {
+        this.priceToSell = priceToSell;
+    }
+
+    public double getVolumeOnBuy() {
+        return volumeOnBuy;
+    }
+
+    public void setVolumeOnBuy(double volumeOnBuy) {
+        this.volumeOnBuy = volumeOnBuy;
+    }
+
+    public double getVolumeOnSell() {
+        return volumeOnSell;
+    }
+
+    public void setVolumeOnSell(double volumeOnSell) {
+        this.volumeOnSell = volumeOnSell;
+    }
+
+    public double getProfitPercent() {
+        return profitPercent;
+    }
+
+    public void setProfitPercent(double profitPercent) {
+        this.profitPercent = profitPercent;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ArbitrageWindow window = (ArbitrageWindow) o;
+        return Objects.equals(pairName, window.pairName) &&
+                stockToBuy == window.stockToBuy &&
+                stockToSell == window.stockToSell;
+    }
+
+    @Override
+    public int hashCode() {
+
+        return Objects.hash(pairName, stockToBuy, stockToSell);
+    }
+}
@@ -0,0 +1,67 @@
+package com.ftec.modules.arbitrage;
+
+import com.ftec.resources.Stocks;
+
+/**
+ * Top of order book of {@code pair} on {@code stock}: best bid and ask with volumes available at them.
+ * Price 0 means there is no such side, e.g. exchange stopped trading the pair.
+ * {@code locked} is set when deposits or withdrawals of the pair are suspended on the exchange.
+ */
+public class Quote {
+    private final String pair;
+    private final Stocks stock;
+    private final double bid;
+    private final double bidVolume;
+    private final double ask;
+    private final double askVolume;
+    private final boolean locked;
+    private final long timestamp;
+
+    public Quote(String pair, Stocks stock, double bid, double bidVolume, double ask, double askVolume, boolean locked, long timestamp) {
+        this.pair = pair;
+        this.stock = stock;
+        this.bid = bid;
+        this.bidVolume = bidVolume;
+        this.ask = ask;
+        this.askVolume = askVolume;
+        this.locked = locked;
+        this.timestamp = timestamp;
+    }
+
+    public String getPair() {
+        return pair;
+    }
+
+    public Stocks getStock() {
+        return stock;
+    }
+
+    public double getBid() {
+        return bid;
+    }
+
+    public double getBidVolume() {
+        return bidVolume;
+    }
+
+    public double getAsk() {
+        return ask;
+    }
+
+    public double getAskVolume() {
+        return askVolume;
+    }
+
+    public boolean isLocked() {
+        return locked;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "Quote{" + pair + "@" + stock + " bid=" + bid + "x" + bidVolume + " ask=" + ask + "x" + askVolume + (locked ? " locked" : "") + '}';
+    }
+}
@@ -0,0 +1,23 @@
+package com.ftec.modules.arbitrage;
+
+import java.util.function.Consumer;
+
+/**
+ * Source of {@link Quote}s for {@link ArbitrageEngine}. Listener is called from one feed thread at a time.
+ */
+@FunctionalInterface
+public interface QuoteFeed {
+
+    /**
+     * Feed which never sends anything, used when no feed is configured.
+     */
+    QuoteFeed NONE = listener -> { };
+
+    /**
+     * Starts sending quotes to {@code listener}, returns without waiting for them.
+     */
+    void start(Consumer<Quote> listener);
+
+    default void stop() {
+    }
+}
@@ -0,0 +1,85 @@
+package com.ftec.modules.arbitrage;
+
+import com.ftec.resources.Stocks;
+import com.ftec.utils.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Replays quotes recorded in a file, one per line: {@code timestampMs,pair,stock,bid,bidVolume,ask,askVolume[,locked]}.
+ * Empty lines and lines starting with '#' are skipped.
+ * {@link #start} replays in background keeping gaps between timestamps divided by {@code speed} (0 - no pauses).
+ */
+public class ReplayQuoteFeed implements QuoteFeed {
+
+    private final Path file;
+    private final double speed;
+    private volatile Thread thread;
+
+    public ReplayQuoteFeed(Path file, double speed) {
+        this.file = file;
+        this.speed = speed;
+    }
+
+    @Override
+    public void start(Consumer<Quote> listener) {
+        thread = new Thread(() -> {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                int count = replay(reader, listener, speed);
+                Logger.log(ReplayQuoteFeed.class, "Replayed " + count + " quotes from " + file);
+            } catch (InterruptedException e) {
+                // stopped
+            } catch (Exception e) {
+                Logger.logException(ReplayQuoteFeed.class, "While replaying quotes from " + file, e, true);
+            }
+        }, "arbitrage-replay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        Thread replaying = thread;
+        if (replaying != null) replaying.interrupt();
+    }
+
+    /**
+     * Sends all quotes from {@code reader} to {@code listener} in the calling thread.
+     * @return number of quotes sent
+     */
+    public static int replay(Reader reader, Consumer<Quote> listener, double speed) throws IOException, InterruptedException {
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        int count = 0;
+        long previous = -1;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            Quote quote = parse(line);
+            if (speed > 0 && previous >= 0 && quote.getTimestamp() > previous) {
+                Thread.sleep((long) ((quote.getTimestamp() - previous) / speed));
+            }
+            previous = quote.getTimestamp();
+
+            listener.accept(quote);
+            count++;
+        }
+        return count;
+    }
+
+    static Quote parse(String line) {
+        String[] fields = line.split(",");
+        if (fields.length < 7) throw new IllegalArgumentException("Wrong quote line: " + line);
+        return new Quote(fields[1].trim(), Stocks.valueOf(fields[2].trim()),
+                Double.parseDouble(fields[3]), Double.parseDouble(fields[4]),
+                Double.parseDouble(fields[5]), Double.parseDouble(fields[6]),
+                fields.length > 7 && Boolean.parseBoolean(fields[7].trim()), Long.parseLong(fields[0].trim()));
+    }
+}
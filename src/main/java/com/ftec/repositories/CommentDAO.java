@@ -1,6 +1,7 @@
 package com.ftec.repositories;
 
 import com.ftec.entities.Comment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
@@ -21,6 +22,25 @@ public interface CommentDAO extends CrudRepository<Comment, Long> {
     @Query(value = "SELECT * FROM comment WHERE ticket_id = ?1", nativeQuery = true)
     List<Comment> findAllByTicketId(long id);
 
+    /**
+     * Seek page of comments of the ticket, the oldest first.
+     * @param afterId id of the last comment of the previous page, or 0 for the first page
+     */
+    @Query("select c from Comment c where c.ticket.id = ?1 and c.id > ?2 order by c.id")
+    List<Comment> findPageByTicketId(long ticketId, long afterId, Pageable pageable);
+
+    @Query("select c.message from Comment c where c.ticket.id = ?1")
+    List<String> findMessagesByTicketId(long ticketId);
+
+    @Query("select c.ticket.id from Comment c where c.id = ?1")
+    Long findTicketIdById(long commentId);
+
+    /**
+     * @return [id, ticket id, message] of comments after {@code afterId}, by id
+     */
+    @Query("select c.id, c.ticket.id, c.message from Comment c where c.id > ?1 order by c.id")
+    List<Object[]> findTextsAfter(long afterId, Pageable pageable);
+
     @Modifying
     @Transactional
     @Query(value = "DELETE FROM comment WHERE id = ?1", nativeQuery = true)
@@ -0,0 +1,51 @@
+package com.ftec.repositories;
+
+import com.ftec.entities.OutboxEmail;
+import com.ftec.resources.enums.OutboxStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OutboxEmailDAO extends JpaRepository<OutboxEmail, Long> {
+
+    boolean existsByIdempotencyKey(String idempotencyKey);
+
+    Optional<OutboxEmail> findByIdempotencyKey(String idempotencyKey);
+
+    @Query("select e from OutboxEmail e where e.status = ?1 and e.nextAttemptAt <= ?2 order by e.nextAttemptAt")
+    List<OutboxEmail> findReady(OutboxStatus status, Date now, Pageable pageable);
+
+    /**
+     * Takes the email for sending until {@code leaseUntil}; fails if another relay took it first.
+     * @return 1 if claimed
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEmail e set e.nextAttemptAt = ?3, e.claimVersion = e.claimVersion + 1 where e.id = ?1 and e.claimVersion = ?2 and e.status = com.ftec.resources.enums.OutboxStatus.PENDING")
+    int claim(long id, long claimVersion, Date leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEmail e set e.status = com.ftec.resources.enums.OutboxStatus.SENT, e.sentAt = ?2, e.attempts = e.attempts + 1 where e.id = ?1")
+    void markSent(long id, Date sentAt);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEmail e set e.status = ?2, e.attempts = e.attempts + 1, e.nextAttemptAt = ?3, e.lastError = ?4 where e.id = ?1")
+    void markFailed(long id, OutboxStatus status, Date nextAttemptAt, String lastError);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM OutboxEmail e where e.status = com.ftec.resources.enums.OutboxStatus.SENT and e.sentAt < ?1")
+    int deleteSentBefore(Date date);
+
+    long countByStatus(OutboxStatus status);
+}
@@ -1,28 +1,70 @@
 package com.ftec.repositories;
 
 import com.ftec.entities.Ticket;
+import com.ftec.resources.enums.TicketCategory;
+import com.ftec.resources.enums.TicketStatus;
+import com.ftec.resources.models.TicketSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface TicketDAO extends CrudRepository<Ticket, Long> {
 
     List<Ticket> findAll();
 
+    /**
+     * Seek page of tickets, the newest first; filters are skipped when null.
+     * Walks the (filter, id) index from {@code beforeId}, so a page costs the same however deep it is.
+     * @param beforeId id of the last ticket of the previous page, or Long.MAX_VALUE for the first page
+     */
+    @Query("select new com.ftec.resources.models.TicketSummary(t.id, t.userId, t.subject, t.status, t.category, t.supporter_id, t.creationDate) " +
+            "from Ticket t where t.id < ?1 and (?2 is null or t.status = ?2) and (?3 is null or t.category = ?3) " +
+            "and (?4 is null or t.supporter_id = ?4) order by t.id desc")
+    List<TicketSummary> findPage(long beforeId, TicketStatus status, TicketCategory category, Long supporterId, Pageable pageable);
+
     @Modifying
     @Query(value = "update ticket set supporter_id = ?2 where id = ?1", nativeQuery = true)
     void setTicketSupport(long tiket_id, long support_id);
 
     List<Ticket> findAllByUserId(long id);
 
+    @Query("select new com.ftec.resources.models.TicketSummary(t.id, t.userId, t.subject, t.status, t.category, t.supporter_id, t.creationDate) " +
+            "from Ticket t where t.id = ?1")
+    Optional<TicketSummary> findSummaryById(long id);
+
+    @Query("select new com.ftec.resources.models.TicketSummary(t.id, t.userId, t.subject, t.status, t.category, t.supporter_id, t.creationDate) " +
+            "from Ticket t where t.id in ?1")
+    List<TicketSummary> findSummariesByIds(Collection<Long> ids);
+
+    /**
+     * @return [id, subject, message] of tickets after {@code afterId}, by id
+     */
+    @Query("select t.id, t.subject, t.message from Ticket t where t.id > ?1 order by t.id")
+    List<Object[]> findTextsAfter(long afterId, Pageable pageable);
+
+    /**
+     * Deletes the ticket if {@code userId} is its owner or a support user.
+     * @return 1 if deleted
+     */
+    @Modifying
+    @Query("delete from Ticket t where t.id = ?1 and (t.userId = ?2 or exists " +
+            "(select u.id from User u where u.id = ?2 and u.userRole = com.ftec.resources.enums.UserRole.SUPPORT))")
+    int deleteByIdForUser(long ticket_id, long userId);
+
     @Query(value = "select supporter_id from ticket where id = ?1", nativeQuery = true)
     Long findSupportedIdByTicketId(Long ticket_id);
 
+    /**
+     * @return 1 if the ticket exists
+     */
     @Modifying
     @Query(value = "update ticket set status = ?2 where id = ?1", nativeQuery = true)
-    void changeTicketStatus(long ticket_id, int status);
+    int changeTicketStatus(long ticket_id, int status);
 }
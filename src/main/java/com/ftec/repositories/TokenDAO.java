@@ -5,21 +5,23 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface TokenDAO extends CrudRepository<Token, String> {
+public interface TokenDAO extends CrudRepository<Token, String>, TokenDAOCustom {
 	Optional<Token> findByToken(String token);
 
 	@Modifying
 	void deleteByToken(String token);
 
+    @Transactional
     @Modifying
     @Query(value = "DELETE FROM token_table where token in (select * from" +
-            " (SELECT token_table.token FROM token_table where token_table.user_id = ?1 order by token_table.expiration_time LIMIT 9999 OFFSET 5) as t);",nativeQuery = true)
+            " (SELECT token_table.token FROM token_table where token_table.user_id = ?1 order by token_table.expiration_time desc LIMIT 9999 OFFSET 5) as t);",nativeQuery = true)
     void deleteExcessiveToken(long userId);
 
     @Modifying
@@ -29,6 +31,12 @@ public interface TokenDAO extends CrudRepository<Token, String> {
 
     List<Token> findAllByUserId(long userId);
 
+    long countByUserId(long userId);
+
+    @Query(value = "select t.userId from Token t group by t.userId having count(t) > ?1")
+    List<Long> findUserIdsWithTokensMoreThan(long maxTokens);
+
+    @Transactional
     @Modifying
     @Query(value = "UPDATE Token t set t.expirationTime = ?1 where t.token = ?2")
     void updateExpirationDate(Date newDate, String token);
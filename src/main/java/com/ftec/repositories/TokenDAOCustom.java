@@ -0,0 +1,14 @@
+package com.ftec.repositories;
+
+import java.util.Date;
+import java.util.Map;
+
+public interface TokenDAOCustom {
+
+    /**
+     * Updates expiration time of several tokens with one UPDATE statement
+     * @param expirationDates new expiration time for each token
+     * @return number of updated rows
+     */
+    int updateExpirationDates(Map<String, Date> expirationDates);
+}
@@ -2,6 +2,7 @@ package com.ftec.repositories;
 
 import com.ftec.entities.User;
 import com.ftec.resources.enums.TutorialSteps;
+import com.ftec.resources.enums.UserRole;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -37,9 +38,22 @@ public interface UserDAO extends JpaRepository<User, Long> {
     void updateTutorialStepForUser(long userId, TutorialSteps tutorialStep);
 
 
+    @Transactional
+    @Modifying
+    @Query("update User u set u.imageName=?2 where u.id=?1")
+    void updateImageName(long userId, String imageName);
+
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password=?2 where u.id=?1")
+    void updatePassword(long userId, String password);
+
     @Query("select u.currentStep from User u where u.id=?1")
     TutorialSteps getTutorialStep(long userId);
 
+    @Query("select u.userRole from User u where u.id=?1")
+    UserRole getUserRole(long userId);
+
     @Query(value = "select id from user where username = ?1",nativeQuery = true)
     long findIdByUsername(String username);
 
@@ -0,0 +1,46 @@
+package com.ftec.repositories.implementation;
+
+import com.ftec.repositories.TokenDAOCustom;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TemporalType;
+import java.util.Date;
+import java.util.Map;
+
+public class TokenDAOImpl implements TokenDAOCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int updateExpirationDates(Map<String, Date> expirationDates) {
+        if (expirationDates.isEmpty()) return 0;
+
+        StringBuilder cases = new StringBuilder();
+        StringBuilder tokens = new StringBuilder();
+        int param = 1;
+        for (int i = 0; i < expirationDates.size(); i++) {
+            cases.append(" WHEN ?").append(param++).append(" THEN ?").append(param++);
+        }
+        for (int i = 0; i < expirationDates.size(); i++) {
+            if (i > 0) tokens.append(", ");
+            tokens.append("?").append(param++);
+        }
+
+        Query query = entityManager.createNativeQuery("UPDATE token_table SET expiration_time = CASE token" + cases +
+                " END WHERE token IN (" + tokens + ")");
+
+        int casesParam = 1;
+        int tokensParam = expirationDates.size() * 2 + 1;
+        for (Map.Entry<String, Date> entry : expirationDates.entrySet()) {
+            query.setParameter(casesParam++, entry.getKey());
+            query.setParameter(casesParam++, entry.getValue(), TemporalType.TIMESTAMP);
+            query.setParameter(tokensParam++, entry.getKey());
+        }
+        return query.executeUpdate();
+    }
+}
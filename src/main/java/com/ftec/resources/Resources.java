@@ -15,6 +15,10 @@ public class Resources {
 	public static boolean emulatedEmail;
 	public static String uploadPathStatic;
 	public static boolean loggerEnabledStatic;
+	public static int loggerBufferSizeStatic = 65536;
+	public static long loggerMaxFileSizeStatic = 10 * 1024 * 1024;
+	public static long loggerRotationIntervalStatic = 24 * 60 * 60 * 1000;
+	public static long exceptionWindowStatic = 60000;
 	public static String domainUrlStatic;
 	public static boolean doPrintStatic;
 
@@ -32,10 +36,90 @@ public class Resources {
 
 	private boolean loggerEnabled;
 
+	private int loggerBufferSize = loggerBufferSizeStatic;
+
+	private long loggerMaxFileSize = loggerMaxFileSizeStatic;
+
+	private long loggerRotationInterval = loggerRotationIntervalStatic;
+
+	private long exceptionWindow = exceptionWindowStatic;
+
 	private String domainUrl;
 
 	private boolean doPrint;
 
+	private long tokenCacheSize = 10000;
+
+	private long tokenCacheTtl = 600;
+
+	private long tokenFlushInterval = 5000;
+
+	private int tokenFlushBatchSize = 500;
+
+	private String tokenType = "db";
+
+	private String tokenSecret;
+
+	private long principalCacheSize = 10000;
+
+	private long principalCacheTtl = 60;
+
+	private int passwordHashThreads = Runtime.getRuntime().availableProcessors();
+
+	private int passwordHashQueueSize = 100;
+
+	private int passwordHashCallbackThreads = 8;
+
+	private long passwordHashTargetMs = 50;
+
+	private boolean emailTemplatesReload;
+
+	private int emailSenderThreads = 4;
+
+	private int emailQueueSize = 1000;
+
+	private double emailRatePerSecond = 10;
+
+	private int emailMaxAttempts = 4;
+
+	private long emailRetryBackoff = 1000;
+
+	private int emailBatchSize = 50;
+
+	private long arbitrageQuoteTtl = 60000;
+
+	private String arbitrageReplayFile;
+
+	private double arbitrageReplaySpeed = 1;
+
+	private String arbitrageQuoteFeed = "replay";
+
+	private long arbitrageCacheTtl = 1000;
+
+	private long ticketEventsTimeout = 1800000;
+
+	private int ticketEventsMaxSubscribers = 1000;
+
+	private long ticketEventsHeartbeat = 15000;
+
+	private long outboxRelayInterval = 5000;
+
+	private int outboxBatchSize = 50;
+
+	private int outboxMaxAttempts = 10;
+
+	private long outboxRetryBackoff = 60000;
+
+	private long outboxRetentionDays = 7;
+
+	private String sendpulseApiUrl = "https://api.sendpulse.com";
+
+	private int sendpulseMaxConnections = 20;
+
+	private int sendpulseConnectTimeout = 5000;
+
+	private int sendpulseSocketTimeout = 15000;
+
 	public void setDoPrint(boolean doPrint) {
 		doPrintStatic = doPrint;
 		this.doPrint = doPrint;
@@ -47,6 +131,26 @@ public class Resources {
 		this.loggerEnabled = loggerEnabled;
 	}
 
+	public void setLoggerBufferSize(int loggerBufferSize) {
+		loggerBufferSizeStatic = loggerBufferSize;
+		this.loggerBufferSize = loggerBufferSize;
+	}
+
+	public void setLoggerMaxFileSize(long loggerMaxFileSize) {
+		loggerMaxFileSizeStatic = loggerMaxFileSize;
+		this.loggerMaxFileSize = loggerMaxFileSize;
+	}
+
+	public void setLoggerRotationInterval(long loggerRotationInterval) {
+		loggerRotationIntervalStatic = loggerRotationInterval;
+		this.loggerRotationInterval = loggerRotationInterval;
+	}
+
+	public void setExceptionWindow(long exceptionWindow) {
+		exceptionWindowStatic = exceptionWindow;
+		this.exceptionWindow = exceptionWindow;
+	}
+
 	public void setDomainUrl(String domainUrl) {
 		domainUrlStatic = domainUrl;
 		this.domainUrl = domainUrl;
@@ -105,4 +209,292 @@ public class Resources {
 		uploadPathStatic = uploadPath;
 		this.uploadPath = uploadPath;
 	}
+
+	public long getTokenCacheSize() {
+		return tokenCacheSize;
+	}
+
+	public void setTokenCacheSize(long tokenCacheSize) {
+		this.tokenCacheSize = tokenCacheSize;
+	}
+
+	public long getTokenCacheTtl() {
+		return tokenCacheTtl;
+	}
+
+	public void setTokenCacheTtl(long tokenCacheTtl) {
+		this.tokenCacheTtl = tokenCacheTtl;
+	}
+
+	public long getTokenFlushInterval() {
+		return tokenFlushInterval;
+	}
+
+	public void setTokenFlushInterval(long tokenFlushInterval) {
+		this.tokenFlushInterval = tokenFlushInterval;
+	}
+
+	public int getTokenFlushBatchSize() {
+		return tokenFlushBatchSize;
+	}
+
+	public void setTokenFlushBatchSize(int tokenFlushBatchSize) {
+		this.tokenFlushBatchSize = tokenFlushBatchSize;
+	}
+
+	public String getTokenType() {
+		return tokenType;
+	}
+
+	public void setTokenType(String tokenType) {
+		this.tokenType = tokenType;
+	}
+
+	public String getTokenSecret() {
+		return tokenSecret;
+	}
+
+	public void setTokenSecret(String tokenSecret) {
+		this.tokenSecret = tokenSecret;
+	}
+
+	public long getPrincipalCacheSize() {
+		return principalCacheSize;
+	}
+
+	public void setPrincipalCacheSize(long principalCacheSize) {
+		this.principalCacheSize = principalCacheSize;
+	}
+
+	public long getPrincipalCacheTtl() {
+		return principalCacheTtl;
+	}
+
+	public void setPrincipalCacheTtl(long principalCacheTtl) {
+		this.principalCacheTtl = principalCacheTtl;
+	}
+
+	public int getPasswordHashThreads() {
+		return passwordHashThreads;
+	}
+
+	public void setPasswordHashThreads(int passwordHashThreads) {
+		this.passwordHashThreads = passwordHashThreads;
+	}
+
+	public int getPasswordHashQueueSize() {
+		return passwordHashQueueSize;
+	}
+
+	public void setPasswordHashQueueSize(int passwordHashQueueSize) {
+		this.passwordHashQueueSize = passwordHashQueueSize;
+	}
+
+	public int getPasswordHashCallbackThreads() {
+		return passwordHashCallbackThreads;
+	}
+
+	public void setPasswordHashCallbackThreads(int passwordHashCallbackThreads) {
+		this.passwordHashCallbackThreads = passwordHashCallbackThreads;
+	}
+
+	public long getPasswordHashTargetMs() {
+		return passwordHashTargetMs;
+	}
+
+	public void setPasswordHashTargetMs(long passwordHashTargetMs) {
+		this.passwordHashTargetMs = passwordHashTargetMs;
+	}
+
+	public boolean isEmailTemplatesReload() {
+		return emailTemplatesReload;
+	}
+
+	public void setEmailTemplatesReload(boolean emailTemplatesReload) {
+		this.emailTemplatesReload = emailTemplatesReload;
+	}
+
+	public int getEmailSenderThreads() {
+		return emailSenderThreads;
+	}
+
+	public void setEmailSenderThreads(int emailSenderThreads) {
+		this.emailSenderThreads = emailSenderThreads;
+	}
+
+	public int getEmailQueueSize() {
+		return emailQueueSize;
+	}
+
+	public void setEmailQueueSize(int emailQueueSize) {
+		this.emailQueueSize = emailQueueSize;
+	}
+
+	public double getEmailRatePerSecond() {
+		return emailRatePerSecond;
+	}
+
+	public void setEmailRatePerSecond(double emailRatePerSecond) {
+		this.emailRatePerSecond = emailRatePerSecond;
+	}
+
+	public int getEmailMaxAttempts() {
+		return emailMaxAttempts;
+	}
+
+	public void setEmailMaxAttempts(int emailMaxAttempts) {
+		this.emailMaxAttempts = emailMaxAttempts;
+	}
+
+	public long getEmailRetryBackoff() {
+		return emailRetryBackoff;
+	}
+
+	public void setEmailRetryBackoff(long emailRetryBackoff) {
+		this.emailRetryBackoff = emailRetryBackoff;
+	}
+
+	public long getOutboxRelayInterval() {
+		return outboxRelayInterval;
+	}
+
+	public void setOutboxRelayInterval(long outboxRelayInterval) {
+		this.outboxRelayInterval = outboxRelayInterval;
+	}
+
+	public int getOutboxBatchSize() {
+		return outboxBatchSize;
+	}
+
+	public void setOutboxBatchSize(int outboxBatchSize) {
+		this.outboxBatchSize = outboxBatchSize;
+	}
+
+	public int getOutboxMaxAttempts() {
+		return outboxMaxAttempts;
+	}
+
+	public void setOutboxMaxAttempts(int outboxMaxAttempts) {
+		this.outboxMaxAttempts = outboxMaxAttempts;
+	}
+
+	public long getOutboxRetryBackoff() {
+		return outboxRetryBackoff;
+	}
+
+	public void setOutboxRetryBackoff(long outboxRetryBackoff) {
+		this.outboxRetryBackoff = outboxRetryBackoff;
+	}
+
+	public long getOutboxRetentionDays() {
+		return outboxRetentionDays;
+	}
+
+	public void setOutboxRetentionDays(long outboxRetentionDays) {
+		this.outboxRetentionDays = outboxRetentionDays;
+	}
+
+	public String getSendpulseApiUrl() {
+		return sendpulseApiUrl;
+	}
+
+	public void setSendpulseApiUrl(String sendpulseApiUrl) {
+		this.sendpulseApiUrl = sendpulseApiUrl;
+	}
+
+	public int getSendpulseMaxConnections() {
+		return sendpulseMaxConnections;
+	}
+
+	public void setSendpulseMaxConnections(int sendpulseMaxConnections) {
+		this.sendpulseMaxConnections = sendpulseMaxConnections;
+	}
+
+	public int getSendpulseConnectTimeout() {
+		return sendpulseConnectTimeout;
+	}
+
+	public void setSendpulseConnectTimeout(int sendpulseConnectTimeout) {
+		this.sendpulseConnectTimeout = sendpulseConnectTimeout;
+	}
+
+	public int getSendpulseSocketTimeout() {
+		return sendpulseSocketTimeout;
+	}
+
+	public void setSendpulseSocketTimeout(int sendpulseSocketTimeout) {
+		this.sendpulseSocketTimeout = sendpulseSocketTimeout;
+	}
+
+	public int getEmailBatchSize() {
+		return emailBatchSize;
+	}
+
+	public void setEmailBatchSize(int emailBatchSize) {
+		this.emailBatchSize = emailBatchSize;
+	}
+
+	public long getArbitrageQuoteTtl() {
+		return arbitrageQuoteTtl;
+	}
+
+	public void setArbitrageQuoteTtl(long arbitrageQuoteTtl) {
+		this.arbitrageQuoteTtl = arbitrageQuoteTtl;
+	}
+
+	public String getArbitrageReplayFile() {
+		return arbitrageReplayFile;
+	}
+
+	public void setArbitrageReplayFile(String arbitrageReplayFile) {
+		this.arbitrageReplayFile = arbitrageReplayFile;
+	}
+
+	public double getArbitrageReplaySpeed() {
+		return arbitrageReplaySpeed;
+	}
+
+	public void setArbitrageReplaySpeed(double arbitrageReplaySpeed) {
+		this.arbitrageReplaySpeed = arbitrageReplaySpeed;
+	}
+
+	public String getArbitrageQuoteFeed() {
+		return arbitrageQuoteFeed;
+	}
+
+	public void setArbitrageQuoteFeed(String arbitrageQuoteFeed) {
+		this.arbitrageQuoteFeed = arbitrageQuoteFeed;
+	}
+
+	public long getArbitrageCacheTtl() {
+		return arbitrageCacheTtl;
+	}
+
+	public void setArbitrageCacheTtl(long arbitrageCacheTtl) {
+		this.arbitrageCacheTtl = arbitrageCacheTtl;
+	}
+
+	public long getTicketEventsTimeout() {
+		return ticketEventsTimeout;
+	}
+
+	public void setTicketEventsTimeout(long ticketEventsTimeout) {
+		this.ticketEventsTimeout = ticketEventsTimeout;
+	}
+
+	public int getTicketEventsMaxSubscribers() {
+		return ticketEventsMaxSubscribers;
+	}
+
+	public void setTicketEventsMaxSubscribers(int ticketEventsMaxSubscribers) {
+		this.ticketEventsMaxSubscribers = ticketEventsMaxSubscribers;
+	}
+
+	public long getTicketEventsHeartbeat() {
+		return ticketEventsHeartbeat;
+	}
+
+	public void setTicketEventsHeartbeat(long ticketEventsHeartbeat) {
+		this.ticketEventsHeartbeat = ticketEventsHeartbeat;
+	}
 }
@@ -0,0 +1,5 @@
+package com.ftec.resources.enums;
+
+public enum OutboxStatus {
+    PENDING, SENT, DEAD
+}
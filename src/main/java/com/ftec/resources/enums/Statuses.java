@@ -2,7 +2,7 @@ package com.ftec.resources.enums;
 
 public enum Statuses {
     Ok(0), InvalidCredentials(1), Invalid2FA(2), LoginTaken(3), EmailTaken(4), AuthenticationFailed(5), ModelMalformed(6),
-    UnexpectedError(7), TokenNotCreated(8), WeakPassword(9), InvalidHash(10), InvalidUserData(11), UserNotExist(12);
+    UnexpectedError(7), TokenNotCreated(8), WeakPassword(9), InvalidHash(10), InvalidUserData(11), UserNotExist(12), ServerBusy(13);
 
     private int status;
 
@@ -0,0 +1,8 @@
+package com.ftec.resources.enums;
+
+public enum TicketEventType {
+    TICKET_CREATED,
+    STATUS_CHANGED,
+    SUPPORTER_ASSIGNED,
+    COMMENT_ADDED
+}
@@ -0,0 +1,51 @@
+package com.ftec.resources.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.ftec.resources.enums.TicketEventType;
+
+import java.util.Date;
+
+/**
+ * Change of a ticket pushed to subscribers of {@link com.ftec.services.TicketEvents}.
+ * {@code ticket} is the state right after the change; comment fields are set for {@link TicketEventType#COMMENT_ADDED} only.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TicketEvent {
+
+    private final TicketEventType type;
+    private final TicketSummary ticket;
+    private final String commentMessage;
+    private final Long commentUserId;
+    private final Date createdAt = new Date();
+
+    public TicketEvent(TicketEventType type, TicketSummary ticket) {
+        this(type, ticket, null, null);
+    }
+
+    public TicketEvent(TicketEventType type, TicketSummary ticket, String commentMessage, Long commentUserId) {
+        this.type = type;
+        this.ticket = ticket;
+        this.commentMessage = commentMessage;
+        this.commentUserId = commentUserId;
+    }
+
+    public TicketEventType getType() {
+        return type;
+    }
+
+    public TicketSummary getTicket() {
+        return ticket;
+    }
+
+    public String getCommentMessage() {
+        return commentMessage;
+    }
+
+    public Long getCommentUserId() {
+        return commentUserId;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,38 @@
+package com.ftec.resources.models;
+
+import com.ftec.entities.Ticket;
+import com.ftec.resources.enums.TicketCategory;
+import com.ftec.resources.enums.TicketStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Columns of {@link Ticket} shown in ticket lists, selected without message and comments.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TicketSummary {
+
+    private long id;
+
+    private long userId;
+
+    private String subject;
+
+    private TicketStatus status;
+
+    private TicketCategory category;
+
+    private long supporter_id;
+
+    private Date creationDate;
+
+    public static TicketSummary of(Ticket ticket) {
+        return new TicketSummary(ticket.getId(), ticket.getUserId(), ticket.getSubject(), ticket.getStatus(),
+                ticket.getCategory(), ticket.getSupporter_id(), ticket.getCreationDate());
+    }
+}
@@ -0,0 +1,40 @@
+package com.ftec.resources.models;
+
+import com.ftec.entities.User;
+import com.ftec.resources.enums.UserRole;
+
+/**
+ * Immutable snapshot of the fields of {@link User} that security and controllers need on every request.
+ */
+public class UserPrincipal {
+
+    public static final String REQUEST_ATTRIBUTE = UserPrincipal.class.getName();
+
+    private final long id;
+    private final String username;
+    private final UserRole userRole;
+    private final String imageName;
+
+    public UserPrincipal(User user) {
+        this.id = user.getId();
+        this.username = user.getUsername();
+        this.userRole = user.getUserRole();
+        this.imageName = user.getImageName();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public UserRole getUserRole() {
+        return userRole;
+    }
+
+    public String getImageName() {
+        return imageName;
+    }
+}
@@ -18,14 +18,14 @@ public class ConfirmEmailService {
 
     private static final String CONFIRM_EMAIL = Resources.domainUrlStatic + "/confirmEmail?hash=";
     private final ConfirmDataDAO confirmDataDAO;
-    private final MailService mailService;
+    private final EmailOutbox emailOutbox;
     public final static int expiration_time = 172800000;
     private final UserDAO userDAO;
 
     @Autowired
-    public ConfirmEmailService(ConfirmDataDAO confirmDataDAO, MailService mailService, UserDAO userDAO) {
+    public ConfirmEmailService(ConfirmDataDAO confirmDataDAO, EmailOutbox emailOutbox, UserDAO userDAO) {
         this.confirmDataDAO = confirmDataDAO;
-        this.mailService = mailService;
+        this.emailOutbox = emailOutbox;
         this.userDAO = userDAO;
     }
 
@@ -38,9 +38,7 @@ public class ConfirmEmailService {
     }
 
     private void sendEmail(String email, long userId, String hash) {
-        Locale locale = userDAO.findLocaleByEmail(email);
-
-        mailService.sendSimpleMessageWithText(email, "Confirm email", CONFIRM_EMAIL + hash);
+        emailOutbox.enqueueSimple(ConfirmScope.ConfirmEmail.name() + ":" + hash, email, "Confirm email", CONFIRM_EMAIL + hash);
     }
 
     private void saveNewHash(ConfirmData emailConfirm) {
@@ -0,0 +1,347 @@
+package com.ftec.services;
+
+import com.ftec.resources.Resources;
+import com.ftec.utils.DurationStats;
+import com.ftec.utils.Logger;
+import com.ftec.utils.local_sendpulse.restapi.SendpulseInterface;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.RateLimiter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Sends personalized emails of a campaign in background.
+ * The campaign thread renders emails into a queue of {@code ftec.emailQueueSize} (waiting while it is full),
+ * {@code ftec.emailSenderThreads} workers send them not faster than {@code ftec.emailRatePerSecond} in total.
+ * Network errors, 429 and 5xx are retried up to {@code ftec.emailMaxAttempts} times with exponential backoff
+ * starting at {@code ftec.emailRetryBackoff} ms; other errors fail the email at once.
+ *
+ * Recipients of a campaign who get exactly the same email (same type, and same subject and body, so same locale too)
+ * are sent in one API call with up to {@code ftec.emailBatchSize} recipients in bcc. Personalized emails go one by one.
+ * The rate limit counts recipients, not API calls, since that is what Sendpulse limits.
+ */
+@Service
+public class EmailDispatcher {
+
+    private static final int KEPT_CAMPAIGNS = 20;
+    // distinct emails waiting for more recipients; when exceeded, the oldest group is sent as is
+    private static final int GROUPING_WINDOW = 1000;
+
+    private final SendpulseInterface sendpulse;
+    private final boolean emulate;
+    private final int maxAttempts;
+    private final long retryBackoff;
+    private final int batchSize;
+    private final RateLimiter rateLimiter;
+
+    private final BlockingQueue<EmailTask> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private final ExecutorService campaignExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "email-campaign");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong campaignIds = new AtomicLong();
+    private final Deque<Campaign> campaigns = new ConcurrentLinkedDeque<>();
+    private final DurationStats sendDuration = new DurationStats();
+    private volatile boolean running = true;
+
+    @Autowired
+    public EmailDispatcher(Resources resources, SendpulseInterface sendpulse) {
+        this.sendpulse = sendpulse;
+        this.emulate = resources.isEmulateEmail();
+        this.maxAttempts = resources.getEmailMaxAttempts();
+        this.retryBackoff = resources.getEmailRetryBackoff();
+        this.batchSize = resources.getEmailBatchSize();
+        this.rateLimiter = RateLimiter.create(resources.getEmailRatePerSecond());
+        this.queue = new ArrayBlockingQueue<>(resources.getEmailQueueSize());
+
+        for (int i = 1; i <= resources.getEmailSenderThreads(); i++) {
+            Thread worker = new Thread(this::work, "email-sender-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * Returns immediately, emails are rendered by {@code emailFactory} and sent in background.
+     * Users not subscribed to emails are skipped.
+     */
+    public <T extends MailService.EmailUser> Campaign dispatch(String name, List<T> users, Function<? super T, Map<String, Object>> emailFactory) {
+        Campaign campaign = new Campaign(campaignIds.incrementAndGet(), name, users.size());
+        campaigns.addFirst(campaign);
+        while (campaigns.size() > KEPT_CAMPAIGNS) campaigns.pollLast();
+
+        campaignExecutor.execute(() -> {
+            LinkedHashMap<String, EmailTask> groups = new LinkedHashMap<>();
+            try {
+                for (T user : users) {
+                    if (!user.subscribedToEmail) {
+                        campaign.complete(campaign.skipped);
+                        continue;
+                    }
+
+                    Map<String, Object> emailData;
+                    try {
+                        emailData = emailFactory.apply(user);
+                    } catch (Exception e) {
+                        Logger.logException(EmailDispatcher.class, "While creating email " + name + " to user " + user.email, e, true);
+                        campaign.complete(campaign.failed);
+                        continue;
+                    }
+
+                    String key = groupKey(emailData);
+                    EmailTask group = groups.get(key);
+                    if (group == null) {
+                        group = new EmailTask(campaign, name, emailData);
+                        groups.put(key, group);
+                        if (groups.size() > GROUPING_WINDOW) queue.put(groups.remove(groups.keySet().iterator().next()));
+                    }
+                    group.recipients.add(user.email);
+                    if (group.recipients.size() >= batchSize) queue.put(groups.remove(key));
+                }
+                for (EmailTask group : groups.values()) queue.put(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        return campaign;
+    }
+
+    /**
+     * Emails with equal key differ only in recipient.
+     */
+    private static String groupKey(Map<String, Object> emailData) {
+        Map<String, Object> content = new TreeMap<>(emailData);
+        content.remove("to");
+        return Hashing.sha256().hashString(content.toString(), StandardCharsets.UTF_8).toString();
+    }
+
+    /**
+     * Sends single email through the same queue, rate limit and retries, without campaign tracking.
+     * @return future completed with true if email was accepted by Sendpulse, false if it finally failed
+     */
+    public CompletableFuture<Boolean> send(String name, String email, Map<String, Object> emailData) {
+        EmailTask task = new EmailTask(null, name, emailData);
+        task.recipients.add(email);
+        if (!queue.offer(task)) task.done(false);
+        return task.result;
+    }
+
+    private void work() {
+        while (running) {
+            EmailTask task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                send(task);
+            } catch (InterruptedException e) {
+                task.done(false);
+                return;
+            }
+        }
+    }
+
+    private void send(EmailTask task) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            rateLimiter.acquire(task.recipients.size());
+
+            long start = System.nanoTime();
+            int status;
+            try {
+                status = emulate ? 200 : getStatus(sendpulse.smtpSendMail(task.createEmailData()));
+            } catch (Exception e) {
+                status = -1;
+            }
+            sendDuration.record(System.nanoTime() - start);
+            if (task.campaign != null) task.campaign.requests.incrementAndGet();
+
+            if (status == 200) {
+                task.done(true);
+                return;
+            }
+            if (!isRetryable(status) || attempt >= maxAttempts) {
+                Logger.log(EmailDispatcher.class, "Email " + task.name + " to " + task.recipients + " failed with status " + status + " after " + attempt + " attempts");
+                task.done(false);
+                return;
+            }
+
+            if (task.campaign != null) task.campaign.retried.incrementAndGet();
+            long backoff = retryBackoff << (attempt - 1);
+            Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+        }
+    }
+
+    /**
+     * @return http code of Sendpulse response, -1 if request failed without response
+     */
+    private static int getStatus(Map<String, Object> result) {
+        Object code = result == null ? null : result.get("http_code");
+        return code == null ? -1 : Integer.parseInt(code.toString());
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == -1 || status == 429 || status >= 500;
+    }
+
+    public List<Campaign> getCampaigns() {
+        return new ArrayList<>(campaigns);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("senders", workers.size());
+        metrics.put("ratePerSecond", rateLimiter.getRate());
+        metrics.put("queueDepth", queue.size());
+        metrics.put("sendDuration", sendDuration.toMap());
+        return metrics;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        campaignExecutor.shutdownNow();
+        workers.forEach(Thread::interrupt);
+    }
+
+    private static class EmailTask {
+        private final Campaign campaign;
+        private final String name;
+        private final Map<String, Object> emailData;
+        private final List<String> recipients = new ArrayList<>(1);
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        private EmailTask(Campaign campaign, String name, Map<String, Object> emailData) {
+            this.campaign = campaign;
+            this.name = name;
+            this.emailData = emailData;
+        }
+
+        /**
+         * @return copy of email data, as Sendpulse modifies it; several recipients are put to bcc, so they don't see each other.
+         * Sendpulse requires "to", so it is set to the sender: any of the recipients there would be shown to all the others.
+         * The sender's mailbox gets a copy of each batch.
+         */
+        private Map<String, Object> createEmailData() {
+            Map<String, Object> data = new HashMap<>(emailData);
+            if (recipients.size() == 1) return data;
+
+            List<Map<String, Object>> bcc = new ArrayList<>(recipients.size());
+            for (String recipient : recipients) {
+                Map<String, Object> receiver = new HashMap<>();
+                receiver.put("name", recipient);
+                receiver.put("email", recipient);
+                bcc.add(receiver);
+            }
+            data.put("bcc", bcc);
+            if (data.containsKey("from")) data.put("to", Collections.singletonList(data.get("from")));
+            else data.remove("to");
+            return data;
+        }
+
+        private void done(boolean sent) {
+            if (campaign != null) {
+                for (int i = 0; i < recipients.size(); i++) campaign.complete(sent ? campaign.sent : campaign.failed);
+            }
+            result.complete(sent);
+        }
+    }
+
+    public static class Campaign {
+        private final long id;
+        private final String name;
+        private final int total;
+        private final long startedAt = System.currentTimeMillis();
+        private volatile long finishedAt;
+
+        private final AtomicInteger sent = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final AtomicInteger retried = new AtomicInteger();
+        private final AtomicInteger requests = new AtomicInteger();
+        private final CountDownLatch remaining;
+
+        private Campaign(long id, String name, int total) {
+            this.id = id;
+            this.name = name;
+            this.total = total;
+            this.remaining = new CountDownLatch(total);
+            if (total == 0) finishedAt = startedAt;
+        }
+
+        private void complete(AtomicInteger counter) {
+            counter.incrementAndGet();
+            remaining.countDown();
+            if (remaining.getCount() == 0) finish();
+        }
+
+        private synchronized void finish() {
+            if (finishedAt != 0) return;
+            finishedAt = System.currentTimeMillis();
+            Logger.log(EmailDispatcher.class, "Campaign " + id + " " + name + " finished: " + toMap());
+        }
+
+        public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+            return remaining.await(timeout, unit);
+        }
+
+        public boolean isFinished() {
+            return remaining.getCount() == 0;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public int getSent() {
+            return sent.get();
+        }
+
+        public int getFailed() {
+            return failed.get();
+        }
+
+        public int getSkipped() {
+            return skipped.get();
+        }
+
+        public int getRetried() {
+            return retried.get();
+        }
+
+        public int getRequests() {
+            return requests.get();
+        }
+
+        public Map<String, Object> toMap() {
+            long elapsed = (finishedAt == 0 ? System.currentTimeMillis() : finishedAt) - startedAt;
+            Map<String, Object> progress = new LinkedHashMap<>();
+            progress.put("id", id);
+            progress.put("name", name);
+            progress.put("total", total);
+            progress.put("sent", sent.get());
+            progress.put("failed", failed.get());
+            progress.put("skipped", skipped.get());
+            progress.put("retried", retried.get());
+            progress.put("requests", requests.get());
+            progress.put("finished", isFinished());
+            progress.put("elapsedMs", elapsed);
+            progress.put("emailsPerSecond", elapsed == 0 ? 0 : sent.get() * 1000.0 / elapsed);
+            return progress;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.ftec.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ftec.entities.OutboxEmail;
+import com.ftec.repositories.OutboxEmailDAO;
+import com.ftec.resources.Resources;
+import com.ftec.resources.enums.OutboxStatus;
+import com.ftec.utils.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Transactional outbox for emails which must not be lost (email confirmation, password restore).
+ * Email is saved to email_outbox in the caller's transaction, and relay sends it after commit and then
+ * every {@code ftec.outboxRelayInterval} ms in batches of {@code ftec.outboxBatchSize}.
+ *
+ * Delivery is at least once: email is marked SENT only after Sendpulse accepted it, so a crash in between sends it again.
+ * Failed emails are retried with exponential backoff from {@code ftec.outboxRetryBackoff} ms,
+ * after {@code ftec.outboxMaxAttempts} attempts they stay in DEAD status for manual check.
+ */
+@Service
+public class EmailOutbox {
+
+    private static final long LEASE = TimeUnit.MINUTES.toMillis(5);
+    private static final String TEXT = "$Text$";
+
+    private final OutboxEmailDAO outboxEmailDAO;
+    private final MailService mailService;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryBackoff;
+    private final long retentionDays;
+
+    private final Object relayLock = new Object();
+    private final AtomicBoolean relayRequested = new AtomicBoolean();
+    private final ExecutorService relayExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "email-outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public EmailOutbox(OutboxEmailDAO outboxEmailDAO, MailService mailService, Resources resources) {
+        this.outboxEmailDAO = outboxEmailDAO;
+        this.mailService = mailService;
+        this.batchSize = resources.getOutboxBatchSize();
+        this.maxAttempts = resources.getOutboxMaxAttempts();
+        this.retryBackoff = resources.getOutboxRetryBackoff();
+        this.retentionDays = resources.getOutboxRetentionDays();
+    }
+
+    /**
+     * Saves templated email in current transaction. Email with already known {@code idempotencyKey} is ignored.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String idempotencyKey, MailService.EmailUser user, MailService.Emails emailType) {
+        save(idempotencyKey, emailType.name(), user.email, user.language, null, user.createParams());
+    }
+
+    /**
+     * Saves plain message, see {@link MailService#sendSimpleMessageWithText(String, String, String)}.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueSimple(String idempotencyKey, String to, String subject, String text) {
+        save(idempotencyKey, null, to, null, subject, Collections.singletonMap(TEXT, text));
+    }
+
+    private void save(String idempotencyKey, String emailType, String recipient, Locale language, String subject, Map<String, String> params) {
+        if (outboxEmailDAO.existsByIdempotencyKey(idempotencyKey)) return;
+
+        Date now = new Date();
+        OutboxEmail email = new OutboxEmail();
+        email.setIdempotencyKey(idempotencyKey);
+        email.setEmailType(emailType);
+        email.setRecipient(recipient);
+        email.setLanguage(language == null ? null : language.getLanguage());
+        email.setSubject(subject);
+        email.setParams(toJson(params));
+        email.setCreatedAt(now);
+        email.setNextAttemptAt(now);
+        outboxEmailDAO.save(email);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                requestRelay();
+            }
+        });
+    }
+
+    private String toJson(Map<String, String> params) {
+        try {
+            return mapper.writeValueAsString(params);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Email params can't be serialized", e);
+        }
+    }
+
+    private void requestRelay() {
+        if (relayRequested.compareAndSet(false, true)) {
+            relayExecutor.execute(() -> {
+                relayRequested.set(false);
+                relay();
+            });
+        }
+    }
+
+    /**
+     * Hands the relay to its own thread: it waits for Sendpulse up to the lease, and all @Scheduled jobs share one thread.
+     */
+    @Scheduled(fixedDelayString = "${ftec.outboxRelayInterval:5000}")
+    public void scheduleRelay() {
+        requestRelay();
+    }
+
+    /**
+     * Sends all ready emails in the calling thread.
+     */
+    public void relay() {
+        synchronized (relayLock) {
+            try {
+                int fetched;
+                do {
+                    fetched = relayBatch();
+                } while (fetched == batchSize);
+            } catch (Exception e) {
+                Logger.logException(EmailOutbox.class, "While relaying email outbox", e, true);
+            }
+        }
+    }
+
+    /**
+     * @return count of emails fetched, so relay continues while batches are full
+     */
+    private int relayBatch() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        List<OutboxEmail> batch = outboxEmailDAO.findReady(OutboxStatus.PENDING, new Date(now), PageRequest.of(0, batchSize));
+
+        List<CompletableFuture<?>> deliveries = new ArrayList<>();
+        for (OutboxEmail email : batch) {
+            if (outboxEmailDAO.claim(email.getId(), email.getClaimVersion(), new Date(now + LEASE)) == 0) continue;
+
+            CompletableFuture<Boolean> delivery;
+            try {
+                delivery = deliver(email);
+            } catch (Exception e) {
+                delivery = new CompletableFuture<>();
+                delivery.completeExceptionally(e);
+            }
+            deliveries.add(delivery.handle((sent, error) -> {
+                recordResult(email, sent != null && sent, error);
+                return null;
+            }));
+        }
+
+        try {
+            CompletableFuture.allOf(deliveries.toArray(new CompletableFuture[0])).get(LEASE, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // not finished emails are taken again when lease expires
+        }
+        return batch.size();
+    }
+
+    private CompletableFuture<Boolean> deliver(OutboxEmail email) throws IOException {
+        Map<String, String> params = mapper.readValue(email.getParams(), new TypeReference<Map<String, String>>() {});
+        if (email.getEmailType() == null) return mailService.sendSimpleMessage(email.getRecipient(), email.getSubject(), params.get(TEXT));
+
+        Locale locale = new Locale(email.getLanguage() == null ? "en" : email.getLanguage());
+        return mailService.sendOne(new MailService.Email_Params(email.getRecipient(), locale, params), MailService.Emails.valueOf(email.getEmailType()));
+    }
+
+    private void recordResult(OutboxEmail email, boolean sent, Throwable error) {
+        if (sent) {
+            outboxEmailDAO.markSent(email.getId(), new Date());
+            return;
+        }
+
+        int attempts = email.getAttempts() + 1;
+        String lastError = error == null ? "Rejected by Sendpulse" : error.toString();
+        if (lastError.length() > 500) lastError = lastError.substring(0, 500);
+
+        if (attempts >= maxAttempts) {
+            Logger.log(EmailOutbox.class, "Email " + email.getIdempotencyKey() + " to " + email.getRecipient() + " is dead after " + attempts + " attempts: " + lastError);
+            outboxEmailDAO.markFailed(email.getId(), OutboxStatus.DEAD, email.getNextAttemptAt(), lastError);
+        } else {
+            long backoff = retryBackoff << Math.min(attempts - 1, 10);
+            outboxEmailDAO.markFailed(email.getId(), OutboxStatus.PENDING, new Date(System.currentTimeMillis() + backoff), lastError);
+        }
+    }
+
+    @Scheduled(cron = "0 30 * * * ?")
+    public void deleteSentEmails() {
+        outboxEmailDAO.deleteSentBefore(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays)));
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("pending", outboxEmailDAO.countByStatus(OutboxStatus.PENDING));
+        metrics.put("dead", outboxEmailDAO.countByStatus(OutboxStatus.DEAD));
+        return metrics;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        relayExecutor.shutdown();
+    }
+}
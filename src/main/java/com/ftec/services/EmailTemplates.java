@@ -0,0 +1,158 @@
+package com.ftec.services;
+
+import com.ftec.resources.Resources;
+import com.ftec.utils.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * All email templates under static/emails/** are read once at startup and parsed into literal and "$Placeholder$" segments.
+ * Files are read as classpath streams, so it works inside packaged war too.
+ * With {@code ftec.emailTemplatesReload=true} (development) templates are re-read every {@code ftec.emailTemplatesReloadInterval} ms.
+ */
+@Service
+public class EmailTemplates {
+
+    private static final String ROOT = "static/emails/";
+    private static final String HEADER = ROOT + "shared/header";
+    private static final String FOOTER = ROOT + "shared/footer";
+    private static final String FALLBACK_LANGUAGE = "en";
+    private static final Pattern FILE_NAME = Pattern.compile(".*/(static/emails/.+)_([a-z]{2})\\.html$");
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$[A-Za-z]+\\$");
+
+    private final boolean reload;
+
+    // "{path}_{language}" -> template, e.g. "static/emails/TrialEnded/main_en"
+    private volatile Map<String, Template> templates;
+    private final Map<String, Email> emails = new ConcurrentHashMap<>();
+
+    @Autowired
+    public EmailTemplates(Resources resources) {
+        this.reload = resources.isEmailTemplatesReload();
+        this.templates = loadAll();
+    }
+
+    private Map<String, Template> loadAll() {
+        Map<String, Template> loaded = new HashMap<>();
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources("classpath*:" + ROOT + "**/*.html")) {
+                Matcher matcher = FILE_NAME.matcher(resource.getURL().toString());
+                if (!matcher.matches()) continue;
+
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+                    loaded.put(matcher.group(1) + "_" + matcher.group(2), Template.parse(reader.lines().collect(Collectors.joining())));
+                }
+            }
+        } catch (IOException e) {
+            Logger.logException(EmailTemplates.class, "Loading email templates", e, true);
+        }
+        return loaded;
+    }
+
+    @Scheduled(fixedDelayString = "${ftec.emailTemplatesReloadInterval:3000}")
+    public void reloadIfEnabled() {
+        if (!reload) return;
+        templates = loadAll();
+        emails.clear();
+    }
+
+    /**
+     * @return header, body and footer of email in given language, or in english if there is no translation
+     */
+    public Email get(MailService.Emails emailType, Locale locale) {
+        return emails.computeIfAbsent(emailType.getPath() + "_" + locale.getLanguage(),
+                key -> new Email(find(HEADER, locale), find(emailType.getPath(), locale), find(FOOTER, locale)));
+    }
+
+    private Template find(String path, Locale locale) {
+        Template template = templates.get(path + "_" + locale.getLanguage());
+        if (template == null) template = templates.get(path + "_" + FALLBACK_LANGUAGE);
+        if (template == null) throw new IllegalArgumentException("Email template " + path + " not found");
+        return template;
+    }
+
+    public static class Email {
+        private final Template header;
+        private final Template body;
+        private final Template footer;
+        private final int length;
+
+        private Email(Template header, Template body, Template footer) {
+            this.header = header;
+            this.body = body;
+            this.footer = footer;
+            this.length = header.length + body.length + footer.length;
+        }
+
+        public String renderHtml(Map<String, String> params) {
+            StringBuilder builder = new StringBuilder(length + 64);
+            header.render(builder, params);
+            body.render(builder, params);
+            footer.render(builder, params);
+            return builder.toString();
+        }
+
+        public String renderText(Map<String, String> params) {
+            StringBuilder builder = new StringBuilder(body.length + 64);
+            body.render(builder, params);
+            return builder.toString();
+        }
+    }
+
+    public static class Template {
+        // literals are at even indexes, placeholder names ("$Login$") at odd ones
+        private final String[] segments;
+        private final int length;
+
+        private Template(String[] segments, int length) {
+            this.segments = segments;
+            this.length = length;
+        }
+
+        public static Template parse(String text) {
+            List<String> segments = new ArrayList<>();
+            Matcher matcher = PLACEHOLDER.matcher(text);
+            int last = 0;
+            while (matcher.find()) {
+                segments.add(text.substring(last, matcher.start()));
+                segments.add(matcher.group());
+                last = matcher.end();
+            }
+            segments.add(text.substring(last));
+            return new Template(segments.toArray(new String[0]), text.length());
+        }
+
+        /**
+         * Placeholders missing in params are left as is.
+         */
+        public void render(StringBuilder builder, Map<String, String> params) {
+            for (int i = 0; i < segments.length; i++) {
+                if (i % 2 == 0) {
+                    builder.append(segments[i]);
+                } else {
+                    String value = params.get(segments[i]);
+                    builder.append(value == null ? segments[i] : value);
+                }
+            }
+        }
+
+        public String render(Map<String, String> params) {
+            StringBuilder builder = new StringBuilder(length + 64);
+            render(builder, params);
+            return builder.toString();
+        }
+    }
+}
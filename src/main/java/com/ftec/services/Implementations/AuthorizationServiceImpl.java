@@ -4,8 +4,9 @@ import com.ftec.controllers.AuthorizationController;
 import com.ftec.entities.User;
 import com.ftec.exceptions.AuthorizationException;
 import com.ftec.exceptions.TwoStepVerificationException;
+import com.ftec.repositories.UserDAO;
 import com.ftec.services.interfaces.AuthorizationService;
-import com.ftec.utils.PasswordUtils;
+import com.ftec.services.interfaces.PasswordHasher;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
@@ -16,18 +17,36 @@ public class AuthorizationServiceImpl implements AuthorizationService {
 
 
     private final Environment environment;
+    private final PasswordHasher passwordHasher;
+    private final UserDAO userDAO;
 
-    public AuthorizationServiceImpl(Environment environment) {
+    public AuthorizationServiceImpl(Environment environment, PasswordHasher passwordHasher, UserDAO userDAO) {
         this.environment = environment;
+        this.passwordHasher = passwordHasher;
+        this.userDAO = userDAO;
     }
 
-    public void authorizate(Optional<User> userOpt, AuthorizationController.UserAuth userAuth) throws AuthorizationException, TwoStepVerificationException {
-        if(userOpt.isPresent() && PasswordUtils.isPasswordMatch(userAuth.getPassword(), userOpt.get().getPassword(),userOpt.get().getSalt())) {
+    public String authorizate(Optional<User> userOpt, AuthorizationController.UserAuth userAuth) throws AuthorizationException, TwoStepVerificationException {
+        if(userOpt.isPresent() && passwordHasher.matches(userAuth.getPassword(), userOpt.get().getPassword(),userOpt.get().getSalt())) {
             check2FaCode(userAuth.getCode(), userOpt.get());
+            return rehashIfNeeded(userOpt.get(), userAuth.getPassword());
         }
         else throw new AuthorizationException(INVALID_USERNAME_OR_PASSWORD);
     }
 
+    // old or cheaper hashes are upgraded while raw password is at hand, the caller stores the new one
+    private String rehashIfNeeded(User user, String rawPassword) {
+        if (!passwordHasher.needsRehash(user.getPassword())) return null;
+
+        return passwordHasher.hash(rawPassword);
+    }
+
+    @Override
+    public void updatePasswordHash(User user, String passwordHash) {
+        userDAO.updatePassword(user.getId(), passwordHash);
+        user.setPassword(passwordHash);
+    }
+
     private void check2FaCode(String twoStepVerCode, User user) throws TwoStepVerificationException {
         if(!user.getTwoStepVerification()) return;
 
@@ -4,6 +4,7 @@ import com.ftec.controllers.ChangeSettingController;
 import com.ftec.entities.User;
 import com.ftec.exceptions.UserNotExistsException;
 import com.ftec.repositories.UserDAO;
+import com.ftec.services.PrincipalCache;
 import com.ftec.services.interfaces.ChangeSettingsService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -13,19 +14,23 @@ import java.util.Optional;
 @Service
 public class ChangeSettingsServiceImpl implements ChangeSettingsService {
     private final UserDAO userDAO;
+    private final PrincipalCache principalCache;
 
-    public ChangeSettingsServiceImpl(UserDAO userDAO) {
+    public ChangeSettingsServiceImpl(UserDAO userDAO, PrincipalCache principalCache) {
         this.userDAO = userDAO;
+        this.principalCache = principalCache;
     }
 
     @Transactional
     @Override
-    public void updatePreferences(ChangeSettingController.UserUpdate userUpdate, long userId) throws UserNotExistsException {
+    public void updatePreferences(ChangeSettingController.UserUpdate userUpdate, long userId, String passwordHash) throws UserNotExistsException {
         Optional<User> userFromDB = userDAO.findById(userId);
         if(!userFromDB.isPresent()) throw new UserNotExistsException();
 
         User u = userFromDB.get();
         u.applyChangeSettings(userUpdate);
+        if (passwordHash != null) u.setPassword(passwordHash);
         userDAO.save(u);
+        principalCache.evict(userId);
     }
 }
@@ -2,8 +2,15 @@ package com.ftec.services.Implementations;
 
 import com.ftec.entities.Comment;
 import com.ftec.repositories.CommentDAO;
+import com.ftec.repositories.TicketDAO;
+import com.ftec.resources.enums.TicketEventType;
+import com.ftec.resources.models.TicketEvent;
+import com.ftec.services.TicketEvents;
+import com.ftec.services.TicketSearchIndex;
+import com.ftec.utils.TransactionHooks;
 import com.ftec.services.interfaces.CommentService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -15,10 +22,16 @@ import java.util.Optional;
 public class CommentServiceImpl implements CommentService {
 
     private final CommentDAO commentDAO;
+    private final TicketDAO ticketDAO;
+    private final TicketEvents ticketEvents;
+    private final TicketSearchIndex searchIndex;
 
     @Autowired
-    public CommentServiceImpl(CommentDAO commentDAO) {
+    public CommentServiceImpl(CommentDAO commentDAO, TicketDAO ticketDAO, TicketEvents ticketEvents, TicketSearchIndex searchIndex) {
         this.commentDAO = commentDAO;
+        this.ticketDAO = ticketDAO;
+        this.ticketEvents = ticketEvents;
+        this.searchIndex = searchIndex;
     }
 
 
@@ -26,12 +39,19 @@ public class CommentServiceImpl implements CommentService {
     @Transactional
     public void addCommentToTicket(long ticketId, Date creationDate, String message, long userId) {
         commentDAO.saveCommentToTicket(ticketId, creationDate, message, userId);
+        TransactionHooks.afterCommit(() -> searchIndex.addComment(ticketId, message));
+        if (ticketEvents.hasSubscribers()) {
+            ticketDAO.findSummaryById(ticketId).ifPresent(ticket ->
+                    ticketEvents.publish(new TicketEvent(TicketEventType.COMMENT_ADDED, ticket, message, userId)));
+        }
     }
 
     @Override
     @Transactional
     public void delete(long commentId) {
+        Long ticketId = commentDAO.findTicketIdById(commentId);
         commentDAO.deleteCommentById(commentId);
+        if (ticketId != null) TransactionHooks.afterCommit(() -> searchIndex.reindexComments(ticketId));
     }
 
     @Override
@@ -43,6 +63,8 @@ public class CommentServiceImpl implements CommentService {
     @Transactional
     public void update(Comment comment) {
         commentDAO.save(comment);
+        Long ticketId = commentDAO.findTicketIdById(comment.getId());
+        if (ticketId != null) TransactionHooks.afterCommit(() -> searchIndex.reindexComments(ticketId));
     }
 
     @Override
@@ -50,4 +72,9 @@ public class CommentServiceImpl implements CommentService {
         return commentDAO.findAllByTicketId(ticket_id);
     }
 
+    @Override
+    public List<Comment> getPageByTicketId(long ticket_id, Long afterId, int limit) {
+        return commentDAO.findPageByTicketId(ticket_id, afterId == null ? 0 : afterId, PageRequest.of(0, limit));
+    }
+
 }
@@ -0,0 +1,98 @@
+package com.ftec.services.Implementations;
+
+import com.ftec.resources.Resources;
+import com.ftec.services.interfaces.PasswordHasher;
+import com.ftec.utils.Logger;
+import com.ftec.utils.PasswordUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Stores hashes as "pbkdf2_sha256${iterations}${base64 salt}${base64 hash}".
+ * Iterations are calibrated at startup so one hash takes about {@code ftec.passwordHashTargetMs},
+ * but never less than {@link #MIN_ITERATIONS}. Hashes in old format (bare PasswordUtils hash + User.salt) are still accepted.
+ */
+@Service
+public class Pbkdf2PasswordHasher implements PasswordHasher {
+
+    private static final String ID = "pbkdf2_sha256";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String SEPARATOR = "$";
+    private static final int MIN_ITERATIONS = 10000;
+    private static final int MAX_ITERATIONS = 1000000;
+    private static final int SALT_LENGTH = 16;
+
+    private final SecureRandom random = new SecureRandom();
+    private final int iterations;
+
+    @Autowired
+    public Pbkdf2PasswordHasher(Resources resources) {
+        this.iterations = calibrate(resources.getPasswordHashTargetMs());
+        Logger.log(Pbkdf2PasswordHasher.class, "Password hashing calibrated to " + iterations + " iterations");
+    }
+
+    private int calibrate(long targetMs) {
+        byte[] salt = new byte[SALT_LENGTH];
+        long best = Long.MAX_VALUE;
+        // first runs are slow because of class loading and JIT, take the fastest one
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            PasswordUtils.pbkdf2(ALGORITHM, "calibration".toCharArray(), salt, MIN_ITERATIONS);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        long calibrated = MIN_ITERATIONS * targetMs * 1000000 / Math.max(best, 1);
+        calibrated = calibrated / 1000 * 1000;
+        return (int) Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, calibrated));
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    @Override
+    public String hash(String rawPassword) {
+        byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+
+        Base64.Encoder encoder = Base64.getEncoder();
+        return ID + SEPARATOR + iterations + SEPARATOR + encoder.encodeToString(salt) + SEPARATOR
+                + encoder.encodeToString(PasswordUtils.pbkdf2(ALGORITHM, rawPassword.toCharArray(), salt, iterations));
+    }
+
+    @Override
+    public boolean matches(String rawPassword, String storedHash, String legacySalt) {
+        if (rawPassword == null || storedHash == null) return false;
+        if (!storedHash.startsWith(ID + SEPARATOR)) {
+            return legacySalt != null && PasswordUtils.isPasswordMatch(rawPassword, storedHash, legacySalt);
+        }
+
+        String[] parts = storedHash.split("\\" + SEPARATOR);
+        if (parts.length != 4) return false;
+        try {
+            Base64.Decoder decoder = Base64.getDecoder();
+            byte[] expected = decoder.decode(parts[3]);
+            byte[] actual = PasswordUtils.pbkdf2(ALGORITHM, rawPassword.toCharArray(), decoder.decode(parts[2]), Integer.parseInt(parts[1]));
+            return MessageDigest.isEqual(expected, actual);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean needsRehash(String storedHash) {
+        if (storedHash == null || !storedHash.startsWith(ID + SEPARATOR)) return true;
+
+        String[] parts = storedHash.split("\\" + SEPARATOR);
+        try {
+            // calibration result differs a bit between restarts, don't rehash everyone because of that noise
+            return parts.length != 4 || Integer.parseInt(parts[1]) < iterations * 3 / 4;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+}
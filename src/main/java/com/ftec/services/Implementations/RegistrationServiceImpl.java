@@ -3,8 +3,8 @@ package com.ftec.services.Implementations;
 import com.ftec.controllers.RegistrationController;
 import com.ftec.entities.User;
 import com.ftec.repositories.UserDAO;
+import com.ftec.services.interfaces.PasswordHasher;
 import com.ftec.services.interfaces.RegistrationService;
-import com.ftec.utils.PasswordUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -12,9 +12,11 @@ import org.springframework.transaction.annotation.Transactional;
 public class RegistrationServiceImpl implements RegistrationService {
 
     private final UserDAO userDAO;
+    private final PasswordHasher passwordHasher;
 
-    public RegistrationServiceImpl(UserDAO userDAO) {
+    public RegistrationServiceImpl(UserDAO userDAO, PasswordHasher passwordHasher) {
         this.userDAO = userDAO;
+        this.passwordHasher = passwordHasher;
     }
 
     public static User registerUser(RegistrationController.UserRegistration userRegistration) {
@@ -26,7 +28,13 @@ public class RegistrationServiceImpl implements RegistrationService {
     @Transactional
     @Override
     public void registerNewUserAccount(User user) {
-        user.setPassword(PasswordUtils.encodeUserPassword(user.getPassword(), user.getSalt()));
+        registerNewUserAccount(user, passwordHasher.hash(user.getPassword()));
+    }
+
+    @Transactional
+    @Override
+    public void registerNewUserAccount(User user, String passwordHash) {
+        user.setPassword(passwordHash);
 
         userDAO.save(user);
     }
@@ -0,0 +1,237 @@
+package com.ftec.services.Implementations;
+
+import com.ftec.entities.Token;
+import com.ftec.exceptions.token.InvalidTokenException;
+import com.ftec.exceptions.token.NullTokenException;
+import com.ftec.exceptions.token.TokenException;
+import com.ftec.repositories.UserDAO;
+import com.ftec.resources.Resources;
+import com.ftec.resources.enums.UserRole;
+import com.ftec.services.interfaces.TokenService;
+import com.ftec.utils.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stateless tokens: "{userId}_{role}.{issuedAt}.{expiresAt}.{nonce}.{HMAC-SHA256 signature}".
+ * Validation is pure CPU work, token_table is not used at all. Enabled with {@code ftec.tokenType=signed}.
+ *
+ * Differences from {@link TokenServiceImpl}:
+ * - lifetime is fixed, expiration is not prolonged on every request;
+ * - role is taken at login, so role change applies after next login;
+ * - logout and password restore put tokens into an in-memory revocation list, which is local to this instance.
+ *
+ * Issue and revocation times come from one clock where a revocation takes a millisecond of its own,
+ * so tokens issued before a revocation are revoked even in the same millisecond, and tokens issued after it are not.
+ */
+@Service
+@ConditionalOnProperty(prefix = "ftec", name = "tokenType", havingValue = "signed")
+public class SignedTokenServiceImpl implements TokenService {
+
+    private final static int EXPIRATION_TIME = 86400000;
+    private final static String ALGORITHM = "HmacSHA256";
+
+    private final UserDAO userDAO;
+    private final SecretKeySpec secretKey;
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::createMac);
+    private final SecureRandom random = new SecureRandom();
+    private final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    // user id -> tokens issued before this time are revoked
+    private final Map<Long, Long> revokedUsers = new ConcurrentHashMap<>();
+    private volatile long revokedAllBefore;
+    private final AtomicLong clock = new AtomicLong();
+
+    @Autowired
+    public SignedTokenServiceImpl(UserDAO userDAO, Resources resources) {
+        this.userDAO = userDAO;
+        this.secretKey = new SecretKeySpec(getSecret(resources), ALGORITHM);
+    }
+
+    private byte[] getSecret(Resources resources) {
+        if (resources.getTokenSecret() != null) return resources.getTokenSecret().getBytes(StandardCharsets.UTF_8);
+
+        Logger.log(SignedTokenServiceImpl.class, "ftec.tokenSecret is not set, random secret is used. Tokens won't survive restart!");
+        byte[] secret = new byte[32];
+        random.nextBytes(secret);
+        return secret;
+    }
+
+    private Mac createMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(secretKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Can't initialize " + ALGORITHM, e);
+        }
+    }
+
+    @Override
+    public void processToken(String token) throws TokenException {
+        validate(token);
+    }
+
+    @Override
+    public Optional<UserRole> getRoleFromToken(String token) {
+        return Optional.of(validate(token).role);
+    }
+
+    private SignedToken validate(String token) throws TokenException {
+        SignedToken signedToken = verify(token);
+
+        TokenService.checkIfTokenExpired(new Date(signedToken.expiresAt));
+        if (isRevoked(signedToken)) throw new TokenException("Token has been revoked!");
+        return signedToken;
+    }
+
+    @Override
+    public String createSaveAndGetNewToken(Long id) {
+        UserRole role = userDAO.getUserRole(id);
+        long issuedAt = getIssueTime();
+
+        byte[] nonce = new byte[8];
+        random.nextBytes(nonce);
+
+        String payload = id + "_" + (role == null ? UserRole.USER : role) + "." + issuedAt + "." + (issuedAt + EXPIRATION_TIME) + "." + encoder.encodeToString(nonce);
+        return payload + "." + sign(payload);
+    }
+
+    private long getIssueTime() {
+        return clock.updateAndGet(time -> Math.max(time, System.currentTimeMillis()));
+    }
+
+    /**
+     * @return time after all tokens issued so far and not after any token issued later
+     */
+    private long getRevocationTime() {
+        return clock.updateAndGet(time -> Math.max(time, System.currentTimeMillis()) + 1);
+    }
+
+    private String sign(String payload) {
+        return encoder.encodeToString(macs.get().doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private SignedToken verify(String token) throws TokenException {
+        if (token == null) throw new NullTokenException("Token is absent!");
+        TokenService.checkTokenFormat(token);
+
+        int signatureStart = token.lastIndexOf('.');
+        if (signatureStart < 0) throw new InvalidTokenException("Signature is absent.");
+
+        byte[] expected = sign(token.substring(0, signatureStart)).getBytes(StandardCharsets.UTF_8);
+        byte[] actual = token.substring(signatureStart + 1).getBytes(StandardCharsets.UTF_8);
+        if (!MessageDigest.isEqual(expected, actual)) throw new InvalidTokenException("Wrong signature.");
+
+        String[] claims = token.substring(token.indexOf('_') + 1, signatureStart).split("\\.");
+        if (claims.length != 4) throw new InvalidTokenException("Wrong claims count.");
+
+        try {
+            return new SignedToken(token, TokenService.getUserIdFromToken(token), UserRole.valueOf(claims[0]), Long.parseLong(claims[1]), Long.parseLong(claims[2]));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidTokenException("Malformed claims.");
+        }
+    }
+
+    private boolean isRevoked(SignedToken signedToken) {
+        if (signedToken.issuedAt < revokedAllBefore) return true;
+
+        Long revokedBefore = revokedUsers.get(signedToken.userId);
+        if (revokedBefore != null && signedToken.issuedAt < revokedBefore) return true;
+
+        return revokedTokens.containsKey(signedToken.token);
+    }
+
+    @Scheduled(cron = "0 0 * * * ?")
+    public void purgeRevocationList() {
+        long now = System.currentTimeMillis();
+        revokedTokens.values().removeIf(expiresAt -> expiresAt < now);
+        revokedUsers.values().removeIf(revokedBefore -> revokedBefore + EXPIRATION_TIME < now);
+    }
+
+    @Override
+    public void deleteByToken(String token) {
+        try {
+            revokedTokens.put(token, verify(token).expiresAt);
+        } catch (TokenException e) {
+            // forged or malformed token can't be used anyway
+        }
+    }
+
+    @Override
+    public Optional<Token> findByToken(String token) {
+        try {
+            SignedToken signedToken = verify(token);
+            if (isRevoked(signedToken)) return Optional.empty();
+            return Optional.of(new Token(token, new Date(signedToken.expiresAt), signedToken.userId));
+        } catch (TokenException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void deleteExcessiveToken(long id) {
+        // sessions are not stored, so there is nothing to prune
+    }
+
+    @Override
+    public void updateExpirationDate(String token) {
+        // lifetime of signed token is fixed
+    }
+
+    @Override
+    public void deleteByUserId(long idByHash) {
+        revokedUsers.put(idByHash, getRevocationTime());
+    }
+
+    @Override
+    public void deleteAll() {
+        revokedAllBefore = getRevocationTime();
+    }
+
+    /**
+     * Does nothing: signed tokens are not stored, a token is valid by its signature until it expires or is revoked.
+     */
+    @Override
+    public void save(Token token) {
+    }
+
+    @Override
+    public List<Token> findAllByUserId(long userId) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<Token> getAll() {
+        return Collections.emptyList();
+    }
+
+    private static class SignedToken {
+        private final String token;
+        private final long userId;
+        private final UserRole role;
+        private final long issuedAt;
+        private final long expiresAt;
+
+        private SignedToken(String token, long userId, UserRole role, long issuedAt, long expiresAt) {
+            this.token = token;
+            this.userId = userId;
+            this.role = role;
+            this.issuedAt = issuedAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
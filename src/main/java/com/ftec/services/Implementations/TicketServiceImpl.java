@@ -3,27 +3,33 @@ package com.ftec.services.Implementations;
 import com.ftec.entities.Ticket;
 import com.ftec.exceptions.TicketException;
 import com.ftec.repositories.TicketDAO;
-import com.ftec.repositories.UserDAO;
+import com.ftec.resources.enums.TicketCategory;
+import com.ftec.resources.enums.TicketEventType;
 import com.ftec.resources.enums.TicketStatus;
-import com.ftec.resources.enums.UserRole;
+import com.ftec.resources.models.TicketEvent;
+import com.ftec.resources.models.TicketSummary;
+import com.ftec.services.TicketEvents;
+import com.ftec.services.TicketSearchIndex;
+import com.ftec.utils.TransactionHooks;
 import com.ftec.services.interfaces.TicketService;
 import com.ftec.services.interfaces.TokenService;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Date;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 @Service
 public class TicketServiceImpl implements TicketService {
 
     private final TicketDAO ticketDAO;
-    private final UserDAO userDAO;
+    private final TicketEvents ticketEvents;
+    private final TicketSearchIndex searchIndex;
 
-    public TicketServiceImpl(TicketDAO ticketDAO, UserDAO userDAO) {
+    public TicketServiceImpl(TicketDAO ticketDAO, TicketEvents ticketEvents, TicketSearchIndex searchIndex) {
         this.ticketDAO = ticketDAO;
-        this.userDAO = userDAO;
+        this.ticketEvents = ticketEvents;
+        this.searchIndex = searchIndex;
     }
 
     @Override
@@ -31,21 +37,29 @@ public class TicketServiceImpl implements TicketService {
         return ticketDAO.findAll();
     }
 
+    @Override
+    public List<TicketSummary> getPage(Long beforeId, TicketStatus status, TicketCategory category, Long supporterId, int limit) {
+        return ticketDAO.findPage(beforeId == null ? Long.MAX_VALUE : beforeId, status, category, supporterId, PageRequest.of(0, limit));
+    }
+
     @Override
     @Transactional
     public void save(Ticket ticket) {
         ticketDAO.save(ticket);
+        TransactionHooks.afterCommit(() -> searchIndex.indexTicket(ticket));
     }
 
     @Transactional
     @Override
     public void setTicketSupport(long tiket_id, long support_id) {
         ticketDAO.setTicketSupport(tiket_id, support_id);
+        publish(TicketEventType.SUPPORTER_ASSIGNED, tiket_id);
     }
 
     @Override
     public void deleteAll() {
         ticketDAO.deleteAll();
+        searchIndex.clear();
     }
 
     @Override
@@ -53,6 +67,26 @@ public class TicketServiceImpl implements TicketService {
         return ticketDAO.findById(id);
     }
 
+    @Override
+    public List<TicketSummary> findSummaries(List<Long> ids) {
+        if(ids.isEmpty()) return new ArrayList<>();
+
+        Map<Long, TicketSummary> byId = new HashMap<>();
+        for (TicketSummary ticket : ticketDAO.findSummariesByIds(ids)) byId.put(ticket.getId(), ticket);
+
+        List<TicketSummary> result = new ArrayList<>();
+        for (Long id : ids) {
+            TicketSummary ticket = byId.get(id);
+            if(ticket != null) result.add(ticket);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean existsById(long id) {
+        return ticketDAO.existsById(id);
+    }
+
     /*
      * @return ticket`s id
      */
@@ -61,6 +95,8 @@ public class TicketServiceImpl implements TicketService {
         ticket.setUserId(TokenService.getUserIdFromToken(token));
         ticket.setCreationDate(new Date());
         ticketDAO.save(ticket);
+        searchIndex.indexTicket(ticket);
+        if(ticketEvents.hasSubscribers()) ticketEvents.publish(new TicketEvent(TicketEventType.TICKET_CREATED, TicketSummary.of(ticket)));
         return ticket.getId();
     }
 
@@ -77,23 +113,30 @@ public class TicketServiceImpl implements TicketService {
     @Override
     @Transactional
     public void changeTicketStatus(long ticket_id, TicketStatus status) throws TicketException{
-        checkIfTicketExist(ticket_id);
-
-        ticketDAO.changeTicketStatus(ticket_id, status.ordinal());
+        if(ticketDAO.changeTicketStatus(ticket_id, status.ordinal()) == 0) throw new TicketException("Ticket with this id not found!");
+        publish(TicketEventType.STATUS_CHANGED, ticket_id);
     }
 
+    /*
+     * Deletes in one statement if sender owns the ticket or is support; comments are deleted by the database
+     */
     @Override
+    @Transactional
     public void deleteById(long ticket_id, Long senderId) throws TicketException {
-        checkIfTicketExist(ticket_id);
-
-        if(ticketDAO.findById(ticket_id).get().getUserId() != senderId){
-            if(!userDAO.findById(senderId).get().getUserRole().equals(UserRole.SUPPORT)) throw new TicketException("Forbidden!");
+        if(ticketDAO.deleteByIdForUser(ticket_id, senderId) == 0){
+            // only failed deletes look up why
+            checkIfTicketExist(ticket_id);
+            throw new TicketException("Forbidden!");
         }
+        TransactionHooks.afterCommit(() -> searchIndex.remove(ticket_id));
+    }
 
-        ticketDAO.deleteById(ticket_id);
+    private void publish(TicketEventType type, long ticket_id) {
+        if(!ticketEvents.hasSubscribers()) return;
+        ticketDAO.findSummaryById(ticket_id).ifPresent(ticket -> ticketEvents.publish(new TicketEvent(type, ticket)));
     }
 
     private void checkIfTicketExist(long ticket_id) throws TicketException {
-        if(!ticketDAO.findById(ticket_id).isPresent()) throw new TicketException("Ticket with this id not found!");
+        if(!ticketDAO.existsById(ticket_id)) throw new TicketException("Ticket with this id not found!");
     }
 }
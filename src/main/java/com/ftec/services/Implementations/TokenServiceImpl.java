@@ -1,10 +1,16 @@
 package com.ftec.services.Implementations;
 
 import com.ftec.entities.Token;
+import com.ftec.exceptions.token.NullTokenException;
 import com.ftec.exceptions.token.TokenException;
 import com.ftec.repositories.TokenDAO;
+import com.ftec.services.TokenCache;
+import com.ftec.services.TokenCache.CachedToken;
+import com.ftec.services.TokenExpirationWriter;
 import com.ftec.services.interfaces.TokenService;
+import com.ftec.utils.TransactionHooks;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -15,23 +21,54 @@ import java.util.List;
 import java.util.Optional;
 
 @Service
+@ConditionalOnProperty(prefix = "ftec", name = "tokenType", havingValue = "db", matchIfMissing = true)
 public class TokenServiceImpl implements TokenService {
 
     private final TokenDAO tokenDAO;
+    private final TokenCache tokenCache;
+    private final TokenExpirationWriter tokenExpirationWriter;
     private final static int EXPIRATION_TIME = 86400000;
+    private final static int MAX_TOKENS_PER_USER = 5;
 
     @Autowired
-    public TokenServiceImpl(TokenDAO tokenDAO) {
+    public TokenServiceImpl(TokenDAO tokenDAO, TokenCache tokenCache, TokenExpirationWriter tokenExpirationWriter) {
         this.tokenDAO = tokenDAO;
+        this.tokenCache = tokenCache;
+        this.tokenExpirationWriter = tokenExpirationWriter;
     }
 
-    @Transactional
+    /*
+     * Not @Transactional on purpose: a cache hit must not take a connection from the pool.
+     * The DAO methods used on a cache miss open their own transactions.
+     */
     public void processToken(String token)  throws TokenException {
-        verifyToken(token);
-        long userId = TokenService.getUserIdFromToken(token);
-        deleteExcessiveToken(userId);
+        CachedToken cachedToken = getCachedToken(token);
+
+        TokenService.checkIfTokenExpired(new Date(cachedToken.getExpirationTime()));
+
+        prolongExpiration(cachedToken);
+    }
+
+    private CachedToken getCachedToken(String token) throws TokenException {
+        if(token == null) throw new NullTokenException("Token is absent!");
+
+        Optional<CachedToken> cachedToken = tokenCache.get(token);
+        if(cachedToken.isPresent()) return cachedToken.get();
+
+        Token tokenEntity = getTokenFromDB(token);
+        TokenService.checkTokenFormat(token);
+
+        return tokenCache.put(tokenEntity);
+    }
+
+    /*
+     * Expiration is prolonged in memory right away and written to the DB later by TokenExpirationWriter
+     */
+    private void prolongExpiration(CachedToken cachedToken) {
+        long newExpiration = System.currentTimeMillis() + EXPIRATION_TIME;
+        cachedToken.setExpirationTime(newExpiration);
 
-        updateExpirationDate(token);
+        tokenExpirationWriter.enqueue(cachedToken.getToken(), newExpiration);
     }
 
     @Scheduled(cron = "0 0 12 * * ?")
@@ -40,6 +77,16 @@ public class TokenServiceImpl implements TokenService {
         tokenDAO.deleteAllExpiredToken(new Date());
     }
 
+    /*
+     * Catches users who got more than MAX_TOKENS_PER_USER tokens not through createSaveAndGetNewToken
+     */
+    @Scheduled(fixedDelayString = "${ftec.tokenSweepInterval:600000}")
+    public void deleteAllExcessiveTokens() {
+        for(Long userId : tokenDAO.findUserIdsWithTokensMoreThan(MAX_TOKENS_PER_USER)) {
+            deleteExcessiveToken(userId);
+        }
+    }
+
     public String createSaveAndGetNewToken(Long id) {
         String token = TokenService.generateToken(id);
         Date expiration = new Date();
@@ -47,6 +94,8 @@ public class TokenServiceImpl implements TokenService {
         setExpirationTime(expiration);
         tokenDAO.save(new Token(token, expiration, id));
 
+        if(tokenDAO.countByUserId(id) > MAX_TOKENS_PER_USER) deleteExcessiveToken(id);
+
         return token;
     }
 
@@ -54,14 +103,6 @@ public class TokenServiceImpl implements TokenService {
         expiration.setTime(expiration.getTime() + EXPIRATION_TIME);
     }
 
-    private void verifyToken(String token) throws TokenException{
-        Token tokenEntity = getTokenFromDB(token);
-
-        Date expirationTime = tokenEntity.getExpirationTime();
-
-        TokenService.checkIfTokenExpired(expirationTime);
-    }
-
     private Token getTokenFromDB(String token) throws TokenException{
         Optional<Token> userToken = tokenDAO.findByToken(token);
 
@@ -71,6 +112,7 @@ public class TokenServiceImpl implements TokenService {
 
     @Transactional
     public void deleteByToken(String token){
+        evictNowAndAfterCommit(() -> tokenCache.evict(token));
         tokenDAO.deleteByToken(token);
     }
 
@@ -80,6 +122,7 @@ public class TokenServiceImpl implements TokenService {
 
     @Transactional
     public void deleteExcessiveToken(long id){
+        evictNowAndAfterCommit(() -> tokenCache.evictByUserId(id));
         tokenDAO.deleteExcessiveToken(id);
     }
 
@@ -88,23 +131,36 @@ public class TokenServiceImpl implements TokenService {
         Date oneDay = new Date();
         setExpirationTime(oneDay);
 
+        evictNowAndAfterCommit(() -> tokenCache.evict(token));
         tokenDAO.updateExpirationDate(oneDay,token);
     }
 
     @Override
     @Transactional
     public void deleteByUserId(long idByHash) {
+        evictNowAndAfterCommit(() -> tokenCache.evictByUserId(idByHash));
         tokenDAO.deleteByUserId(idByHash);
     }
 
+    /*
+     * processToken reloads a cache miss from the DB, so until the change commits a request can put the old row back;
+     * evicting again after commit drops it
+     */
+    private void evictNowAndAfterCommit(Runnable eviction) {
+        eviction.run();
+        TransactionHooks.afterCommit(eviction);
+    }
+
     @Override
     @Modifying
     public void deleteAll() {
+        tokenCache.evictAll();
         tokenDAO.deleteAll();
     }
 
     @Override
     public void save(Token token) {
+        tokenCache.evict(token.getToken());
         tokenDAO.save(token);
     }
 
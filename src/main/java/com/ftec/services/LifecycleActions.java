@@ -1,9 +1,17 @@
 package com.ftec.services;
 
+import com.ftec.utils.Logger;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 @Service
 public class LifecycleActions {
+
+    @Scheduled(fixedDelayString = "${ftec.exceptionWindow:60000}")
+    public void flushExceptionSummaries() {
+        Logger.flushExceptionSummaries();
+    }
+
 //    private final Resources resources;
 //    private final TelegramDispatcher telegramDispatcher;
 //
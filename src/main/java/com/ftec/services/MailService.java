@@ -2,93 +2,101 @@ package com.ftec.services;
 
 import com.ftec.resources.Resources;
 import com.ftec.resources.Stocks;
-import com.ftec.utils.Logger;
 import com.ftec.utils.local_sendpulse.restapi.Sendpulse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class MailService  {
     private final MessageSource messageSource;
     private Resources mailRes;
+    private final EmailTemplates emailTemplates;
+    private final EmailDispatcher emailDispatcher;
     private final Sendpulse sendpulse;
 
     @Autowired
-    public MailService(MessageSource messageSource, Resources mailRes) {
+    public MailService(MessageSource messageSource, Resources mailRes, EmailTemplates emailTemplates, EmailDispatcher emailDispatcher, Sendpulse sendpulse) {
         this.messageSource = messageSource;
         this.mailRes = mailRes;
-        sendpulse = new Sendpulse(mailRes.getUserId(), mailRes.getUserSecret());
+        this.emailTemplates = emailTemplates;
+        this.emailDispatcher = emailDispatcher;
+        this.sendpulse = sendpulse;
     }
 
-    public void sendEmail(List<? extends MailService.EmailUser> users, MailService.Emails emailType){
-        if(mailRes.isEmulateEmail()) return;
-        try {
-            List<Locale> uniqueLocales = new ArrayList<>();
-            users.forEach(emailUser -> {
-                if (!uniqueLocales.contains(emailUser.language)) uniqueLocales.add(emailUser.language);
-            });
+    /**
+     * Queues personalized emails and returns at once; progress is available from returned campaign
+     * and {@link EmailDispatcher#getCampaigns()}.
+     */
+    public EmailDispatcher.Campaign sendEmail(List<? extends MailService.EmailUser> users, MailService.Emails emailType){
+        Map<String, Object> from = createFrom();
 
-            String fromEmail = mailRes.getSendFrom();
+        // called only from campaign thread
+        Map<Locale, String> subjects = new HashMap<>();
 
-            Map<String, Object> from = new HashMap<String, Object>();
-            from.put("name", "admin");
-            from.put("email", fromEmail);
-
-            Map<Locale, String> subjects = prepareSubjects(uniqueLocales, emailType);
-            Map<Locale, String> headers = prepareHeaders(uniqueLocales);
-            Map<Locale, String> footers = prepareFooters(uniqueLocales);
-            Map<Locale, String> templates = prepareTemplates(uniqueLocales, emailType);
-
-            for (MailService.EmailUser user : users) {
-
-                if (!user.subscribedToEmail) continue;
-
-                try {
-                    sendOneEmail(sendpulse, from, subjects.get(user.language), headers.get(user.language), footers.get(user.language), insertValues(templates.get(user.language), user.createParams()), user);
-                }catch (Exception e){
-                    Logger.logException("While sending email "+emailType.name()+" to user "+user.email, e, true);
-                }
-            }
-        }catch (Exception e){
-            Logger.logException("While creating email "+emailType.name(), e, true);
-        }
+        return emailDispatcher.dispatch(emailType.name(), users, user ->
+                createEmailData(from, subjects.computeIfAbsent(user.language, locale -> prepareSubjects(locale, emailType)), emailType, user));
+    }
+
+    /**
+     * Sends one templated email, e.g. from outbox relay, ignoring {@code subscribedToEmail}.
+     * @return future completed with true if email was accepted by Sendpulse
+     */
+    public CompletableFuture<Boolean> sendOne(MailService.EmailUser user, MailService.Emails emailType){
+        Map<String, Object> emailData = createEmailData(createFrom(), prepareSubjects(user.language, emailType), emailType, user);
+        return emailDispatcher.send(emailType.name(), user.email, emailData);
+    }
+
+    /**
+     * Same as {@link #sendSimpleMessageWithText(String, String, String)}, but through dispatcher queue with its rate limit and retries.
+     */
+    public CompletableFuture<Boolean> sendSimpleMessage(String to, String subject, String text){
+        Map<String, Object> from = new HashMap<String, Object>();
+        from.put("name", mailRes.getSendFrom());
+        from.put("email", mailRes.getSendFrom());
+        return emailDispatcher.send("Simple", to, createEmailData(from, subject, text, text, to));
     }
 
-    private void sendOneEmail(Sendpulse sendpulse, Map<String, Object> from, String subject, String header, String footer, String template, MailService.EmailUser user) {
+    private Map<String, Object> createFrom() {
+        Map<String, Object> from = new HashMap<String, Object>();
+        from.put("name", "admin");
+        from.put("email", mailRes.getSendFrom());
+        return from;
+    }
+
+    private Map<String, Object> createEmailData(Map<String, Object> from, String subject, MailService.Emails emailType, MailService.EmailUser user) {
+        Map<String, String> params = user.createParams();
+        EmailTemplates.Email template = emailTemplates.get(emailType, user.language);
+        return createEmailData(from, subject, template.renderHtml(params), template.renderText(params), user.email);
+    }
+
+    private Map<String, Object> createEmailData(Map<String, Object> from, String subject, String html, String text, String email) {
         Map<String, Object> emaildata = new HashMap<String, Object>();
 
         List<Map> to =  new ArrayList<Map>();
 
         Map<String,Object> receiver = new HashMap<String,Object>();
-        receiver.put("name", user.email);
-        receiver.put("email", user.email);
+        receiver.put("name", email);
+        receiver.put("email", email);
 
         to.add(receiver);
 
-        emaildata.put("html",header+template+ footer);
-        emaildata.put("text", template);
+        emaildata.put("html", html);
+        emaildata.put("text", text);
         emaildata.put("subject",subject);
         emaildata.put("from",from);//ok
         emaildata.put("to",to);
-        Map<String, Object> result = sendpulse.smtpSendMail(emaildata);
-        System.out.println("Results: " + result);
+        return emaildata;
     }
 
     public void sendToMany(List<String> emails, String subject, String text){
         if(mailRes.isEmulateEmail()) return;
 
         String sendFromEmail = mailRes.getSendFrom();
-        String userId = mailRes.getUserId();
-        String userSecret = mailRes.getUserSecret();
 
-        Sendpulse sendpulse = new Sendpulse(userId, userSecret);
         ArrayList<Map> to = new ArrayList<>();
 
         Map<String, Object> from = new HashMap<String, Object>();
@@ -256,6 +264,23 @@ public class MailService  {
         }
     }
 
+    /**
+     * Parameters prepared in advance, e.g. stored in outbox by {@link EmailUser#createParams()} of another user type.
+     */
+    public static class Email_Params extends MailService.EmailUser {
+        private final Map<String, String> params;
+
+        public Email_Params(String email, Locale language, Map<String, String> params) {
+            super(email, true, language);
+            this.params = params;
+        }
+
+        @Override
+        Map<String, String> createParams() {
+            return params;
+        }
+    }
+
     public static class Email_Link extends MailService.EmailUser {
         String link;
         String linkName;
@@ -283,81 +308,10 @@ public class MailService  {
             return params;
         }
     }
-    private String createInfoBody(Locale locale, String text) {
-        String answer = prepareTemplates(locale, MailService.Emails.InfoEmail);
-        answer = answer.replace("$Text$", text);
-        return answer;
-    }
-
-    private Map<Locale, String> prepareHeaders(List<Locale> uniqueLocales){
-        String prefixPathToHeader = "static/emails/shared/header";
-        Map<Locale, String> headers = new HashMap<>();
-        for(Locale locale:uniqueLocales){
-            headers.put(locale, loadFile(prefixPathToHeader+"_"+locale.getLanguage()+".html"));
-        }
-        return headers;
-    }
-    private String prepareHeaders(Locale locale){
-        String prefixPathToHeader ="static/emails/shared/header";
-        return loadFile(prefixPathToHeader+"_"+locale.getLanguage()+".html");
-    }
-
-    private String insertValues(String origin, Map<String, String> params){
-        String answer= origin;
-        for(String key:params.keySet()){
-            answer = answer.replace(key, params.get(key));
-        }
-        return (params.size()==0)?origin:answer;
-    }
-
-    private Map<Locale, String> prepareFooters(List<Locale> uniqueLocales){
-        String prefixPathToHeader = "static/emails/shared/footer";
-        Map<Locale, String> headers = new HashMap<>();
-        for(Locale locale:uniqueLocales){
-            headers.put(locale, loadFile(prefixPathToHeader+"_"+locale.getLanguage()+".html"));
-        }
-        return headers;
-    }
-
-    private String prepareFooters(Locale locale){
-        String prefixPathToHeader = "static/emails/shared/footer";
-        return loadFile(prefixPathToHeader+"_"+locale.getLanguage()+".html");
-    }
-
-    private Map<Locale, String> prepareTemplates(List<Locale> uniqueLocales, MailService.Emails emailType){
-        Map<Locale, String> templates = new HashMap<>();
-        for(Locale locale:uniqueLocales){
-            templates.put(locale, loadFile(emailType.getPath()+"_"+locale.getLanguage()+".html"));
-        }
-        return templates;
-    }
-    private String prepareTemplates(Locale locale, MailService.Emails emailType){
-        return loadFile(emailType.getPath()+"_"+locale.getLanguage()+".html");
-    }
-
-    private Map<Locale, String> prepareSubjects(List<Locale> uniqueLocales, MailService.Emails emailType){
-        Map<Locale, String> themes = new HashMap<>();
-        for(Locale locale:uniqueLocales){
-            themes.put(locale, messageSource.getMessage("letters."+emailType.filePrefix+".subject", new String[]{}, locale));
-        }
-        return themes;
-    }
     private String prepareSubjects(Locale locale, MailService.Emails emailType){
         return messageSource.getMessage("letters."+emailType.filePrefix+".subject", new String[]{}, locale);
     }
 
-    private String loadFile(String filename){
-        String fallbackLanguage="en";
-        try {
-            ClassPathResource file = new ClassPathResource(filename);
-            if(!file.exists()) file = new ClassPathResource(filename.substring(0, filename.indexOf("_"))+"_"+fallbackLanguage);
-            return Files.lines(Paths.get(file.getURI())).collect(Collectors.joining());
-        }catch (Exception e){
-            Logger.logException("Loading html content from file "+filename, e, true);
-        }
-        return null;
-    }
-
     /**
      * Sends simple message that supports html without any styles; Usually for admin or messages before styling in html
      * @param to email address of receiver
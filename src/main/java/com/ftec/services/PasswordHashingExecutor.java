@@ -0,0 +1,122 @@
+package com.ftec.services;
+
+import com.ftec.resources.Resources;
+import com.ftec.utils.DurationStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs password hashing (PBKDF2) off the servlet threads.
+ * Pool has {@code ftec.passwordHashThreads} threads (CPU count by default) and a queue of {@code ftec.passwordHashQueueSize};
+ * when the queue is full the task is rejected at once, so a login burst can't pile up unbounded work.
+ * Futures are completed from {@code ftec.passwordHashCallbackThreads} other threads, so the rest of a request
+ * chained to them (DB reads and writes) doesn't hold hashing threads.
+ */
+@Service
+public class PasswordHashingExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor callbacks;
+
+    private final DurationStats queueWait = new DurationStats();
+    private final DurationStats taskDuration = new DurationStats();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @Autowired
+    public PasswordHashingExecutor(Resources resources) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(resources.getPasswordHashThreads(), resources.getPasswordHashThreads(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(resources.getPasswordHashQueueSize()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        AtomicInteger callbackNumber = new AtomicInteger();
+        this.callbacks = new ThreadPoolExecutor(resources.getPasswordHashCallbackThreads(), resources.getPasswordHashCallbackThreads(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(resources.getPasswordHashQueueSize()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-callback-" + callbackNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * @param task the hashing only, anything else should be chained to the returned future
+     * @return future completed with the task result, or exceptionally with {@link RejectedExecutionException} if a queue is full.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long startedAt = System.nanoTime();
+                queueWait.record(startedAt - queuedAt);
+
+                T result;
+                try {
+                    result = task.call();
+                } catch (Throwable e) {
+                    taskDuration.record(System.nanoTime() - startedAt);
+                    complete(future, null, e);
+                    return;
+                }
+                taskDuration.record(System.nanoTime() - startedAt);
+                complete(future, result, null);
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private <T> void complete(CompletableFuture<T> future, T result, Throwable error) {
+        Runnable completion = () -> {
+            if (error == null) future.complete(result);
+            else future.completeExceptionally(error);
+        };
+        try {
+            callbacks.execute(completion);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * @return true if the future failed because the pool was full, so the request should get 503 rather than 500
+     */
+    public static boolean isRejected(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause instanceof RejectedExecutionException;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("threads", executor.getMaximumPoolSize());
+        metrics.put("active", executor.getActiveCount());
+        metrics.put("queueDepth", executor.getQueue().size());
+        metrics.put("callbackQueueDepth", callbacks.getQueue().size());
+        metrics.put("rejected", rejected.get());
+        metrics.put("queueWait", queueWait.toMap());
+        metrics.put("hashDuration", taskDuration.toMap());
+        return metrics;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+        callbacks.shutdown();
+    }
+}
@@ -11,7 +11,6 @@ import com.ftec.repositories.UserDAO;
 import com.ftec.resources.Resources;
 import com.ftec.resources.enums.ConfirmScope;
 import com.ftec.services.interfaces.TokenService;
-import com.ftec.utils.PasswordUtils;
 import com.ftec.utils.RandomHashGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -24,17 +23,17 @@ public class PasswordRestoreService {
 
     final private ConfirmDataDAO confirmDataDAO;
     final private UserDAO userDAO;
-    final private MailService mailService;
+    final private EmailOutbox emailOutbox;
     final private TokenService tokenService;
 
     final public static String RESTORE_URL = Resources.domainUrlStatic + "/restorePass?hash=";
     final public static long ULR_EXPIRED_TIME = 7200000;
 
     @Autowired
-    public PasswordRestoreService(ConfirmDataDAO confirmDataDAO, UserDAO userDAO, MailService mailService, TokenService tokenService) {
+    public PasswordRestoreService(ConfirmDataDAO confirmDataDAO, UserDAO userDAO, EmailOutbox emailOutbox, TokenService tokenService) {
         this.confirmDataDAO = confirmDataDAO;
         this.userDAO = userDAO;
-        this.mailService = mailService;
+        this.emailOutbox = emailOutbox;
         this.tokenService = tokenService;
     }
 
@@ -53,10 +52,8 @@ public class PasswordRestoreService {
     private void sendRestoreUrl(String hash, String email) {
         Locale locale = userDAO.findLocaleByEmail(email); // this way or not?
 
-        List<MailService.Email_Link> list = new ArrayList<>() ;
-
-        list.add(new MailService.Email_Link(email, true, locale, RESTORE_URL + hash, "link", userDAO.findUsernameByEmail(email)));
-        mailService.sendEmail(list, MailService.Emails.ForgotPassword);
+        MailService.Email_Link user = new MailService.Email_Link(email, true, locale, RESTORE_URL + hash, "link", userDAO.findUsernameByEmail(email));
+        emailOutbox.enqueue(ConfirmScope.RestorePass.name() + ":" + hash, user, MailService.Emails.ForgotPassword);
     }
 
     private String getNewHashForUser(String username) {
@@ -74,10 +71,21 @@ public class PasswordRestoreService {
         return new Date(new Date().getTime() + ULR_EXPIRED_TIME);
     }
 
+    /**
+     * Checks the restore hash and the new password, before the password is hashed on PasswordHashingExecutor.
+     */
+    public void checkChangingPass(String hash, String new_pass) throws InvalidHashException, WeakPasswordException {
+        verifyHash(hash);
+        Patterns.validatePass(new_pass);
+    }
+
+    /**
+     * @param passwordHash new password hashed by PasswordHasher; the restore hash is checked again, it can expire meanwhile
+     */
     @Transactional
-    public void processChangingPass(String hash, String new_pass) throws InvalidHashException, WeakPasswordException {
+    public void processChangingPass(String hash, String passwordHash) throws InvalidHashException {
         verifyHash(hash);
-        changePass(confirmDataDAO.findIdByHash(hash),new_pass);
+        changePass(confirmDataDAO.findIdByHash(hash), passwordHash);
         tokenService.deleteByUserId(confirmDataDAO.findIdByHash(hash));
         confirmDataDAO.deleteByHash(hash);
     }
@@ -90,11 +98,10 @@ public class PasswordRestoreService {
         return confirmDataDAO.findByUserIdAndScope(id,scope);
     }
 
-    private void changePass(long userId, String new_pass)  throws WeakPasswordException {
-        Patterns.validatePass(new_pass);
+    private void changePass(long userId, String passwordHash) {
         User user = userDAO.findById(userId).get();
 
-        user.setPassword(PasswordUtils.generateSecurePassword(new_pass, user.getSalt()));
+        user.setPassword(passwordHash);
         userDAO.save(user);
     }
 
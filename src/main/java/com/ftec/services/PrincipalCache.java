@@ -0,0 +1,72 @@
+package com.ftec.services;
+
+import com.ftec.exceptions.token.TokenException;
+import com.ftec.repositories.UserDAO;
+import com.ftec.resources.Resources;
+import com.ftec.resources.models.UserPrincipal;
+import com.ftec.services.interfaces.TokenService;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches {@link UserPrincipal} by user id for {@code ftec.principalCacheTtl} seconds, so role checks and controllers
+ * don't load User entity on every request. Code changing cached fields must call {@link #evict(long)}.
+ */
+@Service
+public class PrincipalCache {
+
+    private final UserDAO userDAO;
+    private final Cache<Long, UserPrincipal> cache;
+
+    @Autowired
+    public PrincipalCache(UserDAO userDAO, Resources resources) {
+        this.userDAO = userDAO;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(resources.getPrincipalCacheSize())
+                .expireAfterWrite(resources.getPrincipalCacheTtl(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    public Optional<UserPrincipal> get(long userId) {
+        UserPrincipal principal = cache.getIfPresent(userId);
+        if (principal != null) return Optional.of(principal);
+
+        Optional<UserPrincipal> loaded = userDAO.findById(userId).map(UserPrincipal::new);
+        loaded.ifPresent(p -> cache.put(userId, p));
+        return loaded;
+    }
+
+    /**
+     * Resolves principal of the token owner once per request, later calls reuse request attribute.
+     */
+    public Optional<UserPrincipal> resolve(HttpServletRequest request) {
+        Object resolved = request.getAttribute(UserPrincipal.REQUEST_ATTRIBUTE);
+        if (resolved != null) return Optional.of((UserPrincipal) resolved);
+
+        String token = request.getHeader(TokenService.TOKEN_NAME);
+        if (token == null) return Optional.empty();
+
+        Optional<UserPrincipal> principal;
+        try {
+            principal = get(TokenService.getUserIdFromToken(token));
+        } catch (TokenException | NumberFormatException e) {
+            return Optional.empty();
+        }
+        principal.ifPresent(p -> request.setAttribute(UserPrincipal.REQUEST_ATTRIBUTE, p));
+        return principal;
+    }
+
+    public void evict(long userId) {
+        cache.invalidate(userId);
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+}
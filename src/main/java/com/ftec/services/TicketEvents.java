@@ -0,0 +1,150 @@
+package com.ftec.services;
+
+import com.ftec.resources.Resources;
+import com.ftec.resources.enums.UserRole;
+import com.ftec.resources.models.TicketEvent;
+import com.ftec.resources.models.UserPrincipal;
+import com.ftec.utils.TransactionHooks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process bus of ticket changes, pushed to subscribed users as server-sent events instead of them polling ticket lists.
+ * Events are sent after the publishing transaction commits, from one "ticket-events" thread, so writers never wait for clients.
+ * Users receive events of their own tickets, support users of all tickets or only of the supporter they subscribed for.
+ */
+@Service
+public class TicketEvents {
+
+    private final long timeout;
+    private final int maxSubscribers;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ticket-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong disconnected = new AtomicLong();
+
+    @Autowired
+    public TicketEvents(Resources resources) {
+        this.timeout = resources.getTicketEventsTimeout();
+        this.maxSubscribers = resources.getTicketEventsMaxSubscribers();
+    }
+
+    /**
+     * Publishers check it to skip loading data for events nobody would receive.
+     */
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    /**
+     * @param supporterId for support users, only tickets assigned to this supporter; null for all tickets
+     * @return emitter to return from the controller, or null if there are {@code ftec.ticketEventsMaxSubscribers} already
+     */
+    public SseEmitter subscribe(UserPrincipal principal, Long supporterId) {
+        if (subscribers.size() >= maxSubscribers) return null;
+
+        SseEmitter emitter = new SseEmitter(timeout);
+        Subscriber subscriber = new Subscriber(emitter, principal.getId(), principal.getUserRole() == UserRole.SUPPORT, supporterId);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    public void publish(TicketEvent event) {
+        published.incrementAndGet();
+        TransactionHooks.afterCommit(() -> dispatch(event));
+    }
+
+    private void dispatch(TicketEvent event) {
+        dispatcher.execute(() -> {
+            for (Subscriber subscriber : subscribers) {
+                if (!subscriber.accepts(event)) continue;
+                if (send(subscriber, SseEmitter.event().name(event.getType().name()).data(event, MediaType.APPLICATION_JSON))) {
+                    delivered.incrementAndGet();
+                }
+            }
+        });
+    }
+
+    /**
+     * Keeps idle connections open through proxies and drops subscribers whose connection is gone.
+     */
+    @Scheduled(fixedDelayString = "${ftec.ticketEventsHeartbeat:15000}")
+    public void heartbeat() {
+        dispatcher.execute(() -> subscribers.forEach(subscriber -> send(subscriber, SseEmitter.event().comment("heartbeat"))));
+    }
+
+    private boolean send(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        try {
+            subscriber.emitter.send(event);
+            return true;
+        } catch (Exception e) {
+            // client has gone away
+            subscribers.remove(subscriber);
+            disconnected.incrementAndGet();
+            subscriber.emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    public void closeAll() {
+        for (Subscriber subscriber : subscribers) {
+            subscribers.remove(subscriber);
+            subscriber.emitter.complete();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("subscribers", subscribers.size());
+        metrics.put("published", published.get());
+        metrics.put("delivered", delivered.get());
+        metrics.put("disconnected", disconnected.get());
+        return metrics;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        dispatcher.shutdown();
+        closeAll();
+    }
+
+    private static class Subscriber {
+        private final SseEmitter emitter;
+        private final long userId;
+        private final boolean support;
+        private final Long supporterId;
+
+        private Subscriber(SseEmitter emitter, long userId, boolean support, Long supporterId) {
+            this.emitter = emitter;
+            this.userId = userId;
+            this.support = support;
+            this.supporterId = supporterId;
+        }
+
+        private boolean accepts(TicketEvent event) {
+            if (!support) return event.getTicket().getUserId() == userId;
+            return supporterId == null || event.getTicket().getSupporter_id() == supporterId;
+        }
+    }
+}
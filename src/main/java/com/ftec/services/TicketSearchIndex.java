@@ -0,0 +1,276 @@
+package com.ftec.services;
+
+import com.ftec.entities.Ticket;
+import com.ftec.repositories.CommentDAO;
+import com.ftec.repositories.TicketDAO;
+import com.ftec.utils.DurationStats;
+import com.ftec.utils.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index of words of ticket subjects, messages and comments, ranked with BM25.
+ * Built from the database on startup; ticket and comment services update it after their transactions commit.
+ * Words are runs of letters and digits, lower-cased; words of the subject count {@code SUBJECT_WEIGHT} times.
+ */
+@Service
+public class TicketSearchIndex {
+
+    private static final int SUBJECT_WEIGHT = 3;
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final int MAX_TERM_LENGTH = 40;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    // BM25 parameters, the usual defaults
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final TicketDAO ticketDAO;
+    private final CommentDAO commentDAO;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // term -> ticket id -> weighted count of the term in the ticket
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private long totalLength;
+
+    private final DurationStats searchDuration = new DurationStats();
+    private volatile long rebuildMillis;
+
+    @Autowired
+    public TicketSearchIndex(TicketDAO ticketDAO, CommentDAO commentDAO) {
+        this.ticketDAO = ticketDAO;
+        this.commentDAO = commentDAO;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        clear();
+
+        List<Object[]> batch;
+        long lastId = 0;
+        do {
+            batch = ticketDAO.findTextsAfter(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            for (Object[] ticket : batch) {
+                lastId = (Long) ticket[0];
+                indexTicket(lastId, (String) ticket[1], (String) ticket[2]);
+            }
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+
+        lastId = 0;
+        do {
+            batch = commentDAO.findTextsAfter(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            for (Object[] comment : batch) {
+                lastId = (Long) comment[0];
+                addComment((Long) comment[1], (String) comment[2]);
+            }
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+
+        rebuildMillis = System.currentTimeMillis() - start;
+        Logger.log(TicketSearchIndex.class, "Indexed " + documents.size() + " tickets in " + rebuildMillis + " ms");
+    }
+
+    public void indexTicket(Ticket ticket) {
+        indexTicket(ticket.getId(), ticket.getSubject(), ticket.getMessage());
+    }
+
+    /**
+     * Replaces indexed subject and message of the ticket, comments stay.
+     */
+    public void indexTicket(long ticketId, String subject, String message) {
+        Map<String, Integer> terms = new HashMap<>();
+        addTerms(subject, SUBJECT_WEIGHT, terms);
+        addTerms(message, 1, terms);
+
+        lock.writeLock().lock();
+        try {
+            Document document = documents.computeIfAbsent(ticketId, id -> new Document());
+            update(ticketId, document.ticketTerms, -1);
+            document.ticketTerms = terms;
+            update(ticketId, terms, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ignored for tickets which are not indexed, e.g. deleted ones.
+     */
+    public void addComment(long ticketId, String message) {
+        Map<String, Integer> terms = new HashMap<>();
+        addTerms(message, 1, terms);
+
+        lock.writeLock().lock();
+        try {
+            Document document = documents.get(ticketId);
+            if (document == null) return;
+            terms.forEach((term, count) -> document.commentTerms.merge(term, count, Integer::sum));
+            update(ticketId, terms, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Re-reads comments of the ticket, for changes that can't be applied incrementally.
+     */
+    public void reindexComments(long ticketId) {
+        Map<String, Integer> terms = new HashMap<>();
+        for (String message : commentDAO.findMessagesByTicketId(ticketId)) addTerms(message, 1, terms);
+
+        lock.writeLock().lock();
+        try {
+            Document document = documents.get(ticketId);
+            if (document == null) return;
+            update(ticketId, document.commentTerms, -1);
+            document.commentTerms = terms;
+            update(ticketId, terms, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long ticketId) {
+        lock.writeLock().lock();
+        try {
+            Document document = documents.remove(ticketId);
+            if (document == null) return;
+            update(ticketId, document.ticketTerms, -1);
+            update(ticketId, document.commentTerms, -1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void update(long ticketId, Map<String, Integer> terms, int sign) {
+        Document document = documents.get(ticketId);
+        terms.forEach((term, count) -> {
+            Map<Long, Integer> tickets = postings.computeIfAbsent(term, key -> new HashMap<>());
+            if (tickets.merge(ticketId, sign * count, Integer::sum) == 0) tickets.remove(ticketId);
+            if (tickets.isEmpty()) postings.remove(term);
+            if (document != null) document.length += sign * count;
+            totalLength += sign * count;
+        });
+    }
+
+    /**
+     * @param offset number of best tickets to skip
+     * @return ids of at most {@code limit} tickets containing any word of the query, the most relevant first
+     */
+    public Hits search(String query, long offset, int limit) {
+        long start = System.nanoTime();
+        Set<String> terms = addTerms(query, 1, new HashMap<>()).keySet();
+
+        Map<Long, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            int count = documents.size();
+            double averageLength = count == 0 ? 0 : (double) totalLength / count;
+            for (String term : terms) {
+                Map<Long, Integer> tickets = postings.get(term);
+                if (tickets == null) continue;
+
+                double idf = Math.log(1 + (count - tickets.size() + 0.5) / (tickets.size() + 0.5));
+                tickets.forEach((ticketId, frequency) -> {
+                    double norm = K1 * (1 - B + B * documents.get(ticketId).length / averageLength);
+                    scores.merge(ticketId, idf * frequency * (K1 + 1) / (frequency + norm), Double::sum);
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Comparator<Map.Entry<Long, Double>> byRelevance = Map.Entry.<Long, Double>comparingByValue()
+                .thenComparing(Map.Entry.comparingByKey());
+        // the worst of the best offset + limit on top
+        PriorityQueue<Map.Entry<Long, Double>> best = new PriorityQueue<>(byRelevance);
+        for (Map.Entry<Long, Double> score : scores.entrySet()) {
+            best.add(score);
+            if (best.size() > offset + limit) best.poll();
+        }
+
+        LinkedList<Long> ticketIds = new LinkedList<>();
+        while (best.size() > offset) ticketIds.addFirst(best.poll().getKey());
+
+        searchDuration.record(System.nanoTime() - start);
+        return new Hits(ticketIds, scores.size());
+    }
+
+    static Map<String, Integer> addTerms(String text, int weight, Map<String, Integer> terms) {
+        if (text == null) return terms;
+
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i <= text.length(); ) {
+            int codePoint = i < text.length() ? text.codePointAt(i) : ' ';
+            if (Character.isLetterOrDigit(codePoint)) {
+                term.appendCodePoint(Character.toLowerCase(codePoint));
+            } else if (term.length() > 0) {
+                if (term.length() >= MIN_TERM_LENGTH && term.length() <= MAX_TERM_LENGTH) {
+                    terms.merge(term.toString(), weight, Integer::sum);
+                }
+                term.setLength(0);
+            }
+            i += Character.charCount(codePoint);
+        }
+        return terms;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            metrics.put("tickets", documents.size());
+            metrics.put("terms", postings.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        metrics.put("rebuildMs", rebuildMillis);
+        metrics.put("search", searchDuration.toMap());
+        return metrics;
+    }
+
+    private static class Document {
+        private Map<String, Integer> ticketTerms = new HashMap<>();
+        private Map<String, Integer> commentTerms = new HashMap<>();
+        private int length;
+    }
+
+    public static class Hits {
+        private final List<Long> ticketIds;
+        private final int total;
+
+        private Hits(List<Long> ticketIds, int total) {
+            this.ticketIds = ticketIds;
+            this.total = total;
+        }
+
+        public List<Long> getTicketIds() {
+            return ticketIds;
+        }
+
+        /**
+         * Number of all matching tickets, not only of this page.
+         */
+        public int getTotal() {
+            return total;
+        }
+    }
+}
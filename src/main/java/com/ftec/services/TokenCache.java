@@ -0,0 +1,86 @@
+package com.ftec.services;
+
+import com.ftec.entities.Token;
+import com.ftec.resources.Resources;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps recently validated tokens in memory, so security middleware doesn't have to hit token_table on every request.
+ * Entries are bounded by {@code ftec.tokenCacheSize} and dropped after {@code ftec.tokenCacheTtl} seconds without access.
+ * Exists in the default {@code ftec.tokenType=db} mode only, signed tokens are checked without token_table.
+ */
+@Service
+@ConditionalOnProperty(prefix = "ftec", name = "tokenType", havingValue = "db", matchIfMissing = true)
+public class TokenCache {
+
+    private final Cache<String, CachedToken> cache;
+
+    @Autowired
+    public TokenCache(Resources resources) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(resources.getTokenCacheSize())
+                .expireAfterAccess(resources.getTokenCacheTtl(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    public Optional<CachedToken> get(String token) {
+        return Optional.ofNullable(cache.getIfPresent(token));
+    }
+
+    public CachedToken put(Token token) {
+        CachedToken cachedToken = new CachedToken(token.getToken(), token.getUserId(), token.getExpirationTime().getTime());
+        cache.put(token.getToken(), cachedToken);
+        return cachedToken;
+    }
+
+    public void evict(String token) {
+        if (token != null) cache.invalidate(token);
+    }
+
+    public void evictByUserId(long userId) {
+        cache.asMap().values().removeIf(cachedToken -> cachedToken.getUserId() == userId);
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public static class CachedToken {
+        private final String token;
+        private final long userId;
+        private volatile long expirationTime;
+
+        CachedToken(String token, long userId, long expirationTime) {
+            this.token = token;
+            this.userId = userId;
+            this.expirationTime = expirationTime;
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        public long getUserId() {
+            return userId;
+        }
+
+        public long getExpirationTime() {
+            return expirationTime;
+        }
+
+        public void setExpirationTime(long expirationTime) {
+            this.expirationTime = expirationTime;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.ftec.services;
+
+import com.ftec.repositories.TokenDAO;
+import com.ftec.resources.Resources;
+import com.ftec.utils.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind buffer for sliding token expiration.
+ * Requests only record the new expiration time in memory; pending values are written to token_table
+ * in one UPDATE every {@code ftec.tokenFlushInterval} ms or as soon as {@code ftec.tokenFlushBatchSize} tokens are pending.
+ * Not created with {@code ftec.tokenType=signed}: signed tokens have fixed lifetime.
+ */
+@Service
+@ConditionalOnProperty(prefix = "ftec", name = "tokenType", havingValue = "db", matchIfMissing = true)
+public class TokenExpirationWriter {
+
+    private final TokenDAO tokenDAO;
+    private final int batchSize;
+
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final Object flushLock = new Object();
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "token-expiration-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong flushedTokens = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos;
+    private volatile long maxFlushNanos;
+
+    @Autowired
+    public TokenExpirationWriter(TokenDAO tokenDAO, Resources resources) {
+        this.tokenDAO = tokenDAO;
+        this.batchSize = resources.getTokenFlushBatchSize();
+    }
+
+    public void enqueue(String token, long expirationTime) {
+        pending.merge(token, expirationTime, Math::max);
+
+        if (pending.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            flushExecutor.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ftec.tokenFlushInterval:5000}")
+    public void flush() {
+        synchronized (flushLock) {
+            Map<String, Date> batch;
+            while (!(batch = drainBatch()).isEmpty()) {
+                long start = System.nanoTime();
+                try {
+                    tokenDAO.updateExpirationDates(batch);
+                } catch (Exception e) {
+                    failedFlushes.incrementAndGet();
+                    batch.forEach((token, date) -> pending.merge(token, date.getTime(), Math::max));
+                    Logger.logException(TokenExpirationWriter.class, "While flushing " + batch.size() + " token expiration dates", e, true);
+                    return;
+                }
+                recordFlush(System.nanoTime() - start, batch.size());
+            }
+        }
+    }
+
+    private Map<String, Date> drainBatch() {
+        Map<String, Date> batch = new HashMap<>();
+        for (Map.Entry<String, Long> entry : pending.entrySet()) {
+            if (batch.size() >= batchSize) break;
+            // value could be prolonged concurrently, then it stays pending for the next batch
+            if (pending.remove(entry.getKey(), entry.getValue())) batch.put(entry.getKey(), new Date(entry.getValue()));
+        }
+        return batch;
+    }
+
+    private void recordFlush(long nanos, int tokens) {
+        flushCount.incrementAndGet();
+        flushedTokens.addAndGet(tokens);
+        totalFlushNanos.addAndGet(nanos);
+        lastFlushNanos = nanos;
+        if (nanos > maxFlushNanos) maxFlushNanos = nanos;
+    }
+
+    public int getQueueDepth() {
+        return pending.size();
+    }
+
+    public Map<String, Object> getMetrics() {
+        long flushes = flushCount.get();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("queueDepth", getQueueDepth());
+        metrics.put("flushCount", flushes);
+        metrics.put("failedFlushes", failedFlushes.get());
+        metrics.put("flushedTokens", flushedTokens.get());
+        metrics.put("lastFlushMs", TimeUnit.NANOSECONDS.toMillis(lastFlushNanos));
+        metrics.put("maxFlushMs", TimeUnit.NANOSECONDS.toMillis(maxFlushNanos));
+        metrics.put("avgFlushMs", flushes == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalFlushNanos.get() / flushes));
+        return metrics;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flushExecutor.shutdown();
+        flush();
+    }
+}
@@ -11,5 +11,10 @@ public interface AuthorizationService {
      String INVALID_USERNAME_OR_PASSWORD = "Invalid username or password!";
      String WRONG_2FA_CODE = "2Fa code is emply!";
 
-    void authorizate(Optional<User> userOpt, AuthorizationController.UserAuth userAuth) throws AuthorizationException, TwoStepVerificationException;
+    /**
+     * @return new hash of the password if the stored one is old or cheaper and should be replaced, null otherwise
+     */
+    String authorizate(Optional<User> userOpt, AuthorizationController.UserAuth userAuth) throws AuthorizationException, TwoStepVerificationException;
+
+    void updatePasswordHash(User user, String passwordHash);
 }
@@ -4,5 +4,8 @@ import com.ftec.controllers.ChangeSettingController;
 import com.ftec.exceptions.UserNotExistsException;
 
 public interface ChangeSettingsService {
-    void updatePreferences(ChangeSettingController.UserUpdate userUpdate, long userId) throws UserNotExistsException;
+    /**
+     * @param passwordHash new password of the update hashed by PasswordHasher, null if the password is not changed
+     */
+    void updatePreferences(ChangeSettingController.UserUpdate userUpdate, long userId, String passwordHash) throws UserNotExistsException;
 }
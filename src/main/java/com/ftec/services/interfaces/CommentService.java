@@ -17,4 +17,10 @@ public interface CommentService {
     void update(Comment comment);
 
     List<Comment> getAllByTicketId(long ticket_id);
+
+    /**
+     * @param afterId id of the last comment of the previous page, null for the first page
+     * @return at most {@code limit} comments of the ticket newer than {@code afterId}, the oldest first
+     */
+    List<Comment> getPageByTicketId(long ticket_id, Long afterId, int limit);
 }
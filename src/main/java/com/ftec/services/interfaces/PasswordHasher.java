@@ -0,0 +1,19 @@
+package com.ftec.services.interfaces;
+
+public interface PasswordHasher {
+
+    /**
+     * @return self-describing hash: algorithm, cost and salt are stored together with the hash itself.
+     */
+    String hash(String rawPassword);
+
+    /**
+     * @param legacySalt - User.salt, used only if storedHash is in old format without embedded salt
+     */
+    boolean matches(String rawPassword, String storedHash, String legacySalt);
+
+    /**
+     * @return {@code true} if storedHash was made with old format or lower cost than the current one.
+     */
+    boolean needsRehash(String storedHash);
+}
@@ -5,4 +5,9 @@ import com.ftec.entities.User;
 public interface RegistrationService {
     void registerNewUserAccount(User user);
 
+    /**
+     * Same as {@link #registerNewUserAccount(User)} for a password already hashed with {@link PasswordHasher#hash(String)}.
+     */
+    void registerNewUserAccount(User user, String passwordHash);
+
 }
@@ -2,7 +2,9 @@ package com.ftec.services.interfaces;
 
 import com.ftec.entities.Ticket;
 import com.ftec.exceptions.TicketException;
+import com.ftec.resources.enums.TicketCategory;
 import com.ftec.resources.enums.TicketStatus;
+import com.ftec.resources.models.TicketSummary;
 
 import java.util.List;
 import java.util.Optional;
@@ -11,6 +13,12 @@ public interface TicketService {
 
     List<Ticket> getAll();
 
+    /**
+     * @param beforeId id of the last ticket of the previous page, null for the first page
+     * @return at most {@code limit} tickets older than {@code beforeId}, the newest first
+     */
+    List<TicketSummary> getPage(Long beforeId, TicketStatus status, TicketCategory category, Long supporterId, int limit);
+
     void save(Ticket ticket);
 
     void setTicketSupport(long tiket_id, long support_id);
@@ -19,6 +27,13 @@ public interface TicketService {
 
     Optional<Ticket> findById(long id);
 
+    /**
+     * @return tickets in order of {@code ids}, without ones that don't exist anymore
+     */
+    List<TicketSummary> findSummaries(List<Long> ids);
+
+    boolean existsById(long id);
+
     long addTicket(Ticket ticket, String token) throws TicketException;
 
     List<Ticket> findAllByUserId(long id);
@@ -4,6 +4,7 @@ import com.ftec.entities.Token;
 import com.ftec.exceptions.token.InvalidTokenException;
 import com.ftec.exceptions.token.TokenException;
 import com.ftec.exceptions.token.TokenExpiredException;
+import com.ftec.resources.enums.UserRole;
 import com.ftec.utils.RandomHashGenerator;
 
 import java.util.Date;
@@ -35,6 +36,14 @@ public interface TokenService {
 
     List<Token> getAll();
 
+    /**
+     * @param token token from request header
+     * @return role carried by the token itself, or empty if this token format doesn't carry it and it should be read from the DB
+     */
+    default Optional<UserRole> getRoleFromToken(String token) {
+        return Optional.empty();
+    }
+
     static Long getUserIdFromToken(String token) throws InvalidTokenException {
         checkTokenFormat(token);
         return Long.valueOf(extractUserID(token));
@@ -0,0 +1,36 @@
+package com.ftec.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Thread-safe count/avg/max of measured durations, for metrics endpoint.
+ */
+public class DurationStats {
+
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public void record(long nanos) {
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public Map<String, Object> toMap() {
+        long n = count.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", n);
+        stats.put("avgMs", n == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos.get() / n));
+        stats.put("maxMs", TimeUnit.NANOSECONDS.toMillis(maxNanos.get()));
+        return stats;
+    }
+}
@@ -0,0 +1,70 @@
+package com.ftec.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link DurationStats} with counts per latency bucket and percentiles estimated from them.
+ * Percentile is reported as the upper bound of its bucket, so it is never underestimated.
+ */
+public class LatencyHistogram extends DurationStats {
+
+    private static final long[] BOUNDS_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000};
+
+    // the last bucket is for everything above the last bound
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_MS.length + 1];
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+    }
+
+    @Override
+    public void record(long nanos) {
+        super.record(nanos);
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int bucket = 0;
+        while (bucket < BOUNDS_MS.length && millis >= BOUNDS_MS[bucket]) bucket++;
+        buckets[bucket].increment();
+    }
+
+    private long percentile(long[] counts, long total, double fraction) {
+        long rank = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return i < BOUNDS_MS.length ? BOUNDS_MS[i] : -1;
+        }
+        return -1;
+    }
+
+    /**
+     * @return count/avg/max, p50/p95/p99 in ms (-1 if above the last bucket) and counts of non-empty buckets by "&lt;N ms"
+     */
+    @Override
+    public Map<String, Object> toMap() {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+
+        Map<String, Object> stats = super.toMap();
+        if (total == 0) return stats;
+
+        stats.put("p50Ms", percentile(counts, total, 0.5));
+        stats.put("p95Ms", percentile(counts, total, 0.95));
+        stats.put("p99Ms", percentile(counts, total, 0.99));
+
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) continue;
+            histogram.put(i < BOUNDS_MS.length ? "<" + BOUNDS_MS[i] : ">=" + BOUNDS_MS[BOUNDS_MS.length - 1], counts[i]);
+        }
+        stats.put("histogram", histogram);
+        return stats;
+    }
+}
@@ -1,27 +1,43 @@
 package com.ftec.utils;
 
 import com.ftec.resources.Resources;
+import com.ftec.utils.logging.AsyncLogWriter;
+import com.ftec.utils.logging.ExceptionSink;
 
-import java.io.File;
-import java.io.FileWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * Messages go to "/Logs/{caller}.txt", exceptions to "/exceptions/{caller}.txt".
+ * Files are written asynchronously by {@link AsyncLogWriter}, so callers never wait for disk.
+ * With {@code ftec.loggerEnabled=false} everything is printed to console instead.
+ * Repeated exceptions are deduplicated by {@link ExceptionSink} within {@code ftec.exceptionWindow} ms.
+ */
 public class Logger {
 
-    public static void log(String message){
-        String callerName = Thread.currentThread().getStackTrace()[1].getClassName();
-        String messageCompleted = new Date()+"["+callerName+"]"+message;
+    private static final String LOGS_DIR = "/Logs/";
+    private static final String EXCEPTIONS_DIR = "/exceptions/";
+
+    private static volatile AsyncLogWriter writer;
+    private static final ExceptionSink exceptionSink = new ExceptionSink(() -> Resources.exceptionWindowStatic);
+
+    public static void log(Class<?> caller, String message){
+        String messageCompleted = new Date()+"["+caller.getName()+"]"+message;
         if(!Resources.loggerEnabledStatic){
             System.out.println(messageCompleted);
             return;
         }
-        try {
-            logToFile("/Logs/"+callerName+".txt", messageCompleted);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        logToFile(Paths.get(LOGS_DIR, caller.getName() + ".txt"), messageCompleted + "\n");
     }
-    public static void logException(String location, Exception e, boolean printStackTrace){
+
+    public static void logException(Class<?> caller, String location, Exception e, boolean printStackTrace){
+        ExceptionSink.Occurrence occurrence = exceptionSink.record(caller, location, e, System.currentTimeMillis());
+        if(occurrence.getSummary() != null) writeException(caller, occurrence.getSummary());
+        if(!occurrence.isWriteTrace()) return;
+
         if(!Resources.loggerEnabledStatic){
             e.printStackTrace();
             return;
@@ -34,21 +50,46 @@ public class Logger {
                 message.append(ste.toString()).append("\n");
             }
         if(printStackTrace) message.append("EOE-------------------------------------------------");
-        try {
-            String callerName = Thread.currentThread().getStackTrace()[1].getClassName();
-            logToFile("/exceptions/"+callerName+".txt", message.toString());
-        } catch (Exception e2) {
-            e2.printStackTrace();
+        writeException(caller, message.toString());
+    }
+
+    /**
+     * Writes "xN suppressed" summaries of exception windows that are over.
+     */
+    public static void flushExceptionSummaries() {
+        for (ExceptionSink.Summary summary : exceptionSink.takeSummaries(System.currentTimeMillis())) {
+            writeException(summary.getCaller(), summary.getText());
+        }
+    }
+
+    public static List<Map<String, Object>> getExceptionCounters() {
+        return exceptionSink.getCounters();
+    }
+
+    private static void writeException(Class<?> caller, String message) {
+        if(!Resources.loggerEnabledStatic){
+            System.err.print(message);
+            return;
         }
+        logToFile(Paths.get(EXCEPTIONS_DIR, caller.getName() + ".txt"), message);
+    }
+
+    private static void logToFile(Path path, String message) {
+        getWriter().append(path, message);
     }
 
-    private static void logToFile(String path, String message) throws Exception{
-        File f = new File(path);
-        if(f.getParentFile().mkdirs() && f.createNewFile())
-            try (FileWriter fw = new FileWriter(f, true)) {
-                fw.write(message);
-            } catch (Exception e) {
-                e.printStackTrace();
+    private static AsyncLogWriter getWriter() {
+        AsyncLogWriter w = writer;
+        if (w == null) {
+            synchronized (Logger.class) {
+                w = writer;
+                if (w == null) {
+                    w = new AsyncLogWriter(Resources.loggerBufferSizeStatic, Resources.loggerMaxFileSizeStatic, Resources.loggerRotationIntervalStatic);
+                    Runtime.getRuntime().addShutdownHook(new Thread(w::shutdown, "logger-shutdown"));
+                    writer = w;
+                }
             }
+        }
+        return w;
     }
 }
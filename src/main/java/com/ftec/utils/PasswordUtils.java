@@ -2,11 +2,14 @@ package com.ftec.utils;
 
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Random;
 
 
@@ -14,9 +17,13 @@ public class PasswordUtils {
 
     private static final Random RANDOM = new SecureRandom();
     private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA1";
     private static final int ITERATIONS = 10000;
     private static final int KEY_LENGTH = 256;
 
+    // SecretKeyFactory isn't thread-safe, but is costly to look up on every hash
+    private static final ThreadLocal<Map<String, SecretKeyFactory>> FACTORIES = ThreadLocal.withInitial(HashMap::new);
+
     public static String getSalt(int length) {
 
         StringBuilder returnValue = new StringBuilder(length);
@@ -29,11 +36,14 @@ public class PasswordUtils {
     }
 
     public static byte[] hash(char[] password, byte[] salt) {
-        PBEKeySpec spec = new PBEKeySpec(password, salt, ITERATIONS, KEY_LENGTH);
+        return pbkdf2(ALGORITHM, password, salt, ITERATIONS);
+    }
+
+    public static byte[] pbkdf2(String algorithm, char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, KEY_LENGTH);
         Arrays.fill(password, Character.MIN_VALUE);
         try {
-            SecretKeyFactory secretKeyFactory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
-            return secretKeyFactory.generateSecret(spec).getEncoded();
+            return getFactory(algorithm).generateSecret(spec).getEncoded();
         } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
             throw new AssertionError("Error while hashing a password: " + e.getMessage(), e);
         } finally {
@@ -41,6 +51,16 @@ public class PasswordUtils {
         }
     }
 
+    private static SecretKeyFactory getFactory(String algorithm) throws NoSuchAlgorithmException {
+        Map<String, SecretKeyFactory> factories = FACTORIES.get();
+        SecretKeyFactory factory = factories.get(algorithm);
+        if (factory == null) {
+            factory = SecretKeyFactory.getInstance(algorithm);
+            factories.put(algorithm, factory);
+        }
+        return factory;
+    }
+
     public static String generateSecurePassword(String password, String salt) {
         String returnValue = null;
 
@@ -51,16 +71,18 @@ public class PasswordUtils {
         return returnValue;
     }
 
+    /**
+     * Checks password against hash made by {@link #generateSecurePassword(String, String)}, in constant time.
+     */
     public static boolean isPasswordMatch(String rawPassword, String savedHash, String salt) {
-        boolean returnValue = false;
-
-        // Generate New secure password with the same salt
-        String newSecuredPassword = generateSecurePassword(rawPassword, salt);
-
-        // Check if two passwords are equals
-        returnValue = newSecuredPassword.equalsIgnoreCase(savedHash);
+        byte[] saved;
+        try {
+            saved = Base64.getDecoder().decode(savedHash);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
 
-        return returnValue;
+        return MessageDigest.isEqual(hash(rawPassword.toCharArray(), salt.getBytes()), saved);
     }
 
 
@@ -74,4 +96,4 @@ public class PasswordUtils {
 
         return PasswordUtils.generateSecurePassword(userPassword, salt);
     }
-}
\ No newline at end of file
+}
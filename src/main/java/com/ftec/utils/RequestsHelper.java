@@ -1,20 +1,71 @@
 package com.ftec.utils;
 
 import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
-import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.util.EntityUtils;
 
-import java.util.List;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
+/**
+ * All requests go through one pooled keep-alive client, so repeated calls to the same host reuse connections.
+ * Async variants run the same requests on a bounded "requests-helper" pool; when its queue is full they fail right away.
+ * Latency of every request is recorded per host, see {@link #getMetrics()}.
+ */
 public class RequestsHelper {
+
+    private static final int MAX_CONNECTIONS = 100;
+    private static final int MAX_CONNECTIONS_PER_ROUTE = 20;
+    private static final int CONNECT_TIMEOUT = 5000;
+    private static final int SOCKET_TIMEOUT = 30000;
+    private static final int ASYNC_THREADS = 16;
+    static final int ASYNC_QUEUE_SIZE = 256;
+
+    private static final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(60, TimeUnit.SECONDS);
+    private static final CloseableHttpClient httpClient;
+    private static final ThreadPoolExecutor asyncExecutor;
+    private static final AtomicLong asyncRejected = new AtomicLong();
+    private static final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+
+    static {
+        connectionManager.setMaxTotal(MAX_CONNECTIONS);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+        connectionManager.setValidateAfterInactivity(2000);
+
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(CONNECT_TIMEOUT)
+                        .setConnectionRequestTimeout(CONNECT_TIMEOUT)
+                        .setSocketTimeout(SOCKET_TIMEOUT)
+                        .build())
+                .evictIdleConnections(30, TimeUnit.SECONDS)
+                .build();
+
+        AtomicInteger threads = new AtomicInteger();
+        asyncExecutor = new ThreadPoolExecutor(ASYNC_THREADS, ASYNC_THREADS, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(ASYNC_QUEUE_SIZE), runnable -> {
+            Thread thread = new Thread(runnable, "requests-helper-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        asyncExecutor.allowCoreThreadTimeOut(true);
+    }
+
     /**
      *  Method sends a post request to the indicated url with data in url_encoded form
      * @param url url to send post request
@@ -27,21 +78,9 @@ public class RequestsHelper {
         try {
             HttpPost post = new HttpPost(url);
             post.setEntity(new UrlEncodedFormEntity(params, "UTF-8"));
-            if (headers != null) {
-                for (NameValuePair header : headers) {
-                    post.addHeader(header.getName(), header.getValue());
-                }
-            }
-
-            HttpClient httpClient = HttpClientBuilder.create().build();
-            HttpResponse response = httpClient.execute(post);
-            HttpEntity entity = response.getEntity();
-            if (entity != null) {
-                return EntityUtils.toString(entity);
-
-            }
+            return execute(post, headers);
         } catch (Exception e){
-            Logger.logException("Making url_encoded post request to url "+url, e, true);
+            Logger.logException(RequestsHelper.class, "Making url_encoded post request to url "+url, e, true);
         }
         return null;
     }
@@ -58,24 +97,9 @@ public class RequestsHelper {
         try {
             HttpPost post = new HttpPost(url);
             post.setEntity(new StringEntity(params, "UTF-8"));
-            if (headers != null)
-            {
-                for (NameValuePair header : headers)
-                {
-                    post.addHeader(header.getName(), header.getValue());
-                }
-            }
-
-            HttpClient httpClient = HttpClientBuilder.create().build();
-            HttpResponse response = httpClient.execute(post);
-            HttpEntity entity = response.getEntity();
-            if (entity != null)
-            {
-                return EntityUtils.toString(entity);
-
-            }
+            return execute(post, headers);
         } catch (Exception e){
-            Logger.logException("Making raw string request to url "+url, e, true);
+            Logger.logException(RequestsHelper.class, "Making raw string request to url "+url, e, true);
         }
         return null;
     }
@@ -89,25 +113,93 @@ public class RequestsHelper {
     public static String getHttp(String url, List<NameValuePair> headers)
     {
         try {
-            HttpRequestBase request = new HttpGet(url);
+            return execute(new HttpGet(url), headers);
+        } catch (Exception e){
+            Logger.logException(RequestsHelper.class, "While sending Get httpRequest: "+url,e, true);
+        }
+        return null;
+    }
 
-            if (headers != null) {
-                for (NameValuePair header : headers) {
-                    request.addHeader(header.getName(), header.getValue());
-                }
-            }
+    /**
+     * {@link #postHttp(String, List, List)} in background
+     * @return future completed with server response, or null if request failed;
+     * exceptionally with {@link RejectedExecutionException} if {@code ASYNC_QUEUE_SIZE} requests are waiting already
+     */
+    public static CompletableFuture<String> postHttpAsync(String url, List<NameValuePair> params, List<NameValuePair> headers) {
+        return supplyAsync(() -> postHttp(url, params, headers));
+    }
 
-            HttpClient httpClient = HttpClientBuilder.create().build();
-            HttpResponse response = httpClient.execute(request);
+    /**
+     * {@link #postHttp(String, String, List)} in background
+     * @return future completed with server response, or null if request failed;
+     * exceptionally with {@link RejectedExecutionException} if {@code ASYNC_QUEUE_SIZE} requests are waiting already
+     */
+    public static CompletableFuture<String> postHttpAsync(String url, String params, List<NameValuePair> headers) {
+        return supplyAsync(() -> postHttp(url, params, headers));
+    }
 
-            HttpEntity entity = response.getEntity();
-            if (entity != null) {
-                return EntityUtils.toString(entity);
+    /**
+     * {@link #getHttp(String, List)} in background
+     * @return future completed with server response, or null if request failed;
+     * exceptionally with {@link RejectedExecutionException} if {@code ASYNC_QUEUE_SIZE} requests are waiting already
+     */
+    public static CompletableFuture<String> getHttpAsync(String url, List<NameValuePair> headers) {
+        return supplyAsync(() -> getHttp(url, headers));
+    }
+
+    private static CompletableFuture<String> supplyAsync(Supplier<String> request) {
+        try {
+            return CompletableFuture.supplyAsync(request, asyncExecutor);
+        } catch (RejectedExecutionException e) {
+            asyncRejected.incrementAndGet();
+            CompletableFuture<String> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
 
+    private static String execute(HttpRequestBase request, List<NameValuePair> headers) throws IOException {
+        if (headers != null) {
+            for (NameValuePair header : headers) {
+                request.addHeader(header.getName(), header.getValue());
             }
-        } catch (Exception e){
-            Logger.logException("While sending Get httpRequest: "+url,e, true);
         }
-        return null;
+
+        long start = System.nanoTime();
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            // reading the entity to the end returns connection to the pool
+            HttpEntity entity = response.getEntity();
+            return entity == null ? null : EntityUtils.toString(entity);
+        } finally {
+            String host = request.getURI().getHost();
+            latencies.computeIfAbsent(host == null ? "unknown" : host, key -> new LatencyHistogram()).record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return connection pool stats, async pool stats and latency histogram per host
+     */
+    public static Map<String, Object> getMetrics() {
+        PoolStats stats = connectionManager.getTotalStats();
+        Map<String, Object> connections = new LinkedHashMap<>();
+        connections.put("leased", stats.getLeased());
+        connections.put("available", stats.getAvailable());
+        connections.put("pending", stats.getPending());
+        connections.put("max", stats.getMax());
+
+        Map<String, Object> async = new LinkedHashMap<>();
+        async.put("threads", asyncExecutor.getMaximumPoolSize());
+        async.put("active", asyncExecutor.getActiveCount());
+        async.put("queueDepth", asyncExecutor.getQueue().size());
+        async.put("rejected", asyncRejected.get());
+
+        Map<String, Object> hosts = new TreeMap<>();
+        latencies.forEach((host, histogram) -> hosts.put(host, histogram.toMap()));
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("connections", connections);
+        metrics.put("async", async);
+        metrics.put("hosts", hosts);
+        return metrics;
     }
 }
@@ -1,32 +1,22 @@
 package com.ftec.utils.local_sendpulse.restapi;
-import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
-import java.net.URL;
-import java.net.URLEncoder;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 
-import javax.net.ssl.HttpsURLConnection;
-
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 
 import com.ftec.utils.local_sendpulse.restapi.pherialize.Pherialize;
-public class Sendpulse implements SendpulseInterface{
-	 private String apiUrl = "https://api.sendpulse.com";
-     private String userId = null;
-     private String secret = null;
-     private String tokenName = null;
-     private int refreshToken = 0;
+public class Sendpulse implements SendpulseInterface, Closeable {
+	 private final String apiUrl;
+     private final String userId;
+     private final String secret;
+     private final SendpulseTransport transport;
+     private final SendpulseTokenManager tokenManager;
+
      /**
       * Sendpulse API constructor
       *
@@ -35,20 +25,22 @@ public class Sendpulse implements SendpulseInterface{
       * 
       */
      public Sendpulse(String _userId, String _secret ) {
+         this(_userId, _secret, "https://api.sendpulse.com", new SendpulseTransport(20, 5000, 15000));
+     }
+
+     /**
+      * Token is requested on first call, so creating the client doesn't touch network.
+      * Instance is thread-safe and should be shared, see ApplicationConfig.
+      */
+     public Sendpulse(String _userId, String _secret, String apiUrl, SendpulseTransport transport) {
          if( _userId ==null || _secret==null)  {
         	 System.out.println( "Empty ID or SECRET" );
          }
          this.userId = _userId;
          this.secret = _secret;
-         try {
-			this.tokenName = md5( this.userId + "::" + this.secret );
-		 } catch (NoSuchAlgorithmException e) {
-		 } catch (UnsupportedEncodingException e) {}
-         if( this.tokenName!=null) {
-             if( !this.getToken() ) {
-            	 System.out.println( "Could not connect to api, check your ID and SECRET" );
-             }
-         }
+         this.apiUrl = apiUrl;
+         this.transport = transport;
+         this.tokenManager = new SendpulseTokenManager(transport, apiUrl, _userId, _secret);
      }
      public String md5(String param) throws NoSuchAlgorithmException, UnsupportedEncodingException{
     	 StringBuilder hexString = new StringBuilder();
@@ -64,55 +56,8 @@ public class Sendpulse implements SendpulseInterface{
          return hexString.toString();
      }
      /**
-      * Get token and store it
-      *
-      * @return bool
-      */
-     private boolean getToken() {
-    	 Map<String, Object> data = new HashMap<String, Object>();
-    	 data.put("grant_type", "client_credentials");
- 		 data.put("client_id", this.userId);
- 		 data.put("client_secret", this.secret);
-         Map<String, Object> requestResult = null;
-         try {
-        	 requestResult = this.sendRequest( "oauth/access_token", "POST", data, false );
-		 } catch (IOException e) {System.out.println(e);}
-         if(requestResult==null) return false;
-         if(Integer.parseInt(requestResult.get("http_code").toString()) != 200 ) {
-             return false;
-         }
-         this.refreshToken = 0;
-         JSONObject jdata = (JSONObject) requestResult.get("data");
-         if (jdata instanceof JSONObject){
-        	 try {
-				this.tokenName = jdata.get("access_token").toString();
-			} catch (JSONException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
-         }
-         return true;
-     }
-     /**
-      * Make post data string 
-      * @param data
-      * @return
-      * @throws UnsupportedEncodingException
-      */
-     private StringBuilder makePostDataParamsString(Map<String, Object> data) throws UnsupportedEncodingException{
-    	 StringBuilder postData = new StringBuilder();
-    	 if(data!=null){
-	        for (Entry<String,Object> param : data.entrySet()) {
-	            if (postData.length() != 0) postData.append('&');
-	            postData.append(URLEncoder.encode(param.getKey(), "UTF-8"));
-	            postData.append('=');
-	            postData.append(URLEncoder.encode(String.valueOf(param.getValue()), "UTF-8"));
-	        }
-    	 }
-    	 return postData;
-     }
-     /**
-      * Form and send request to API service
+      * Form and send request to API service. Token is normally refreshed before it expires,
+      * but if API still answers 401 the request is repeated once with a new token.
       *
       * @param String path
       * @param String method
@@ -121,65 +66,27 @@ public class Sendpulse implements SendpulseInterface{
       * @return Map<String, Object>
       */
      private Map<String, Object> sendRequest(String path,String method,  Map<String, Object> data , boolean useToken) throws IOException {
-    	 Map<String, Object> returndata = new HashMap<String, Object>();
-    	 StringBuilder postData = new StringBuilder();
-    	 if(data!=null && data.size()>0){
-	        postData = this.makePostDataParamsString(data);
-    	 }
     	 method = method.toUpperCase();
-    	 if(method.equals("GET")){
-    		 path = path+"?"+postData.toString();
-    	 }
-    	 URL obj = new URL(this.apiUrl+ "/" + path);
-    	 HttpsURLConnection con = (HttpsURLConnection) obj.openConnection();
-    	 if(useToken && this.tokenName!=null ) {
-			con.setRequestProperty("Authorization", "Bearer " +this.tokenName);
-		 }
-    	 con.setRequestMethod(method);
-    	 if(!method.equals("GET")){
-		 	if(method.equals("PUT")) con.setRequestProperty("Content-type", "application/x-www-form-urlencoded;charset=utf-8");
-			con.setDoOutput(true);
-			con.setDoInput(true);
-			OutputStreamWriter wr = new OutputStreamWriter(con.getOutputStream());
-		    wr.write(postData.toString());
-			wr.flush();
-			wr.close();
+    	 String url = this.apiUrl + "/" + path;
+    	 if (!useToken) return transport.execute(method, url, data, null);
+
+    	 String token = tokenManager.getToken();
+    	 Map<String, Object> returndata = transport.execute(method, url, data, token);
+    	 if (Integer.parseInt(returndata.get("http_code").toString()) == 401) {
+    		 returndata = transport.execute(method, url, data, tokenManager.onUnauthorized(token));
     	 }
-    	 InputStream inputStream = null;     
-		 try{
-		    inputStream = con.getInputStream();
-		 }
-		 catch(IOException exception) {           
-		    inputStream = con.getErrorStream();
-		 }
-		 int responseCode = con.getResponseCode();
-    	 if(inputStream!=null){
-	    	 BufferedReader in = new BufferedReader(new InputStreamReader(inputStream));
-			 String inputLine;
-			 StringBuffer response = new StringBuffer();
-		     while ((inputLine = in.readLine()) != null) {
-				response.append(inputLine);
-			 }
-		     in.close();
-	    	 if( responseCode == 401 && this.refreshToken == 0 ) {
-	             this.refreshToken += 1;
-	             this.getToken();
-	             returndata = this.sendRequest( path, method, data,false);
-	         } else {
-	        	 Object jo = null;
-	        	 try {
-	        		 jo =  new JSONObject(response.toString());
-	        	     } catch (JSONException ex) {
-	        	    	 try {
-	        	        	jo = new JSONArray(response.toString());
-	        	    	 } catch (JSONException ex1) {}
-	        	    }
-	             returndata.put("data",jo);
-	             returndata.put("http_code", responseCode);
-	         }
-     	 }
     	 return returndata;
      }
+
+     public SendpulseTransport getTransport() {
+    	 return transport;
+     }
+
+     @Override
+     public void close() throws IOException {
+    	 tokenManager.close();
+    	 transport.close();
+     }
      
      /**
       * Process results
@@ -649,8 +556,8 @@ public class Sendpulse implements SendpulseInterface{
 		}
     	emaildata.put("html", html);
     	Map<String, Object> data = new HashMap<String, Object>();
-    	String serialized = Pherialize.serialize(emaildata);
-    	data.put("email", serialized);
+    	// serialized straight into request body, the email is never built as one String
+    	data.put("email", (SendpulseTransport.StreamedValue) out -> Pherialize.serialize(emaildata, out));
     	Map<String, Object> result = null;
 		try {
 			result = this.sendRequest( "smtp/emails", "POST", data,true );
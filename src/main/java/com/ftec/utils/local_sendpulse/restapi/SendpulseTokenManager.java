@@ -0,0 +1,144 @@
+package com.ftec.utils.local_sendpulse.restapi;
+
+import org.json.JSONObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * OAuth token of {@link Sendpulse}.
+ * Token is refreshed in background before {@code expires_in} runs out, so requests don't meet expired token.
+ * All threads needing a new token at the same moment wait for one in-flight request.
+ */
+public class SendpulseTokenManager implements Closeable {
+
+    private static final long MAX_REFRESH_MARGIN = TimeUnit.SECONDS.toMillis(60);
+    private static final long RETRY_DELAY = TimeUnit.SECONDS.toMillis(5);
+
+    private final SendpulseTransport transport;
+    private final String tokenUrl;
+    private final String userId;
+    private final String secret;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sendpulse-token");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Object lock = new Object();
+    private volatile Token current;
+    private CompletableFuture<Token> inFlight;
+    private ScheduledFuture<?> nextRefresh;
+
+    public SendpulseTokenManager(SendpulseTransport transport, String apiUrl, String userId, String secret) {
+        this.transport = transport;
+        this.tokenUrl = apiUrl + "/oauth/access_token";
+        this.userId = userId;
+        this.secret = secret;
+    }
+
+    /**
+     * @return valid token, waiting for refresh only if there is no token yet or it has already expired
+     */
+    public String getToken() throws IOException {
+        Token token = current;
+        if (token != null && token.isValid()) return token.value;
+        return await(refresh());
+    }
+
+    /**
+     * Called when API rejected {@code rejectedToken}; refreshes it unless other thread has already done it.
+     * @return token to repeat request with
+     */
+    public String onUnauthorized(String rejectedToken) throws IOException {
+        Token token = current;
+        if (token != null && !token.value.equals(rejectedToken) && token.isValid()) return token.value;
+        return await(refresh());
+    }
+
+    private CompletableFuture<Token> refresh() {
+        synchronized (lock) {
+            if (inFlight != null) return inFlight;
+
+            CompletableFuture<Token> refresh = CompletableFuture.supplyAsync(this::requestToken, scheduler);
+            inFlight = refresh;
+            refresh.whenComplete((token, error) -> {
+                // published before inFlight is cleared, so a thread not finding inFlight finds the new token
+                if (error == null) current = token;
+                synchronized (lock) {
+                    inFlight = null;
+                    // refreshes after 401 or expiry replace the scheduled one instead of starting another chain
+                    if (nextRefresh != null) nextRefresh.cancel(false);
+                    if (error == null) {
+                        nextRefresh = scheduler.schedule(this::refresh, token.refreshAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+                    } else if (current != null) {
+                        // keep trying in background while the old token is still usable
+                        nextRefresh = scheduler.schedule(this::refresh, RETRY_DELAY, TimeUnit.MILLISECONDS);
+                    } else {
+                        nextRefresh = null;
+                    }
+                }
+            });
+            return refresh;
+        }
+    }
+
+    private Token requestToken() {
+        Map<String, Object> data = new HashMap<String, Object>();
+        data.put("grant_type", "client_credentials");
+        data.put("client_id", userId);
+        data.put("client_secret", secret);
+
+        Map<String, Object> result;
+        try {
+            result = transport.execute("POST", tokenUrl, data, null);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+        if (Integer.parseInt(result.get("http_code").toString()) != 200 || !(result.get("data") instanceof JSONObject)) {
+            throw new CompletionException(new IOException("Could not get Sendpulse token, check your ID and SECRET: " + result));
+        }
+
+        JSONObject json = (JSONObject) result.get("data");
+        long lifetime = TimeUnit.SECONDS.toMillis(json.optLong("expires_in", 3600));
+        return new Token(json.optString("access_token"), lifetime);
+    }
+
+    private static String await(CompletableFuture<Token> refresh) throws IOException {
+        try {
+            return refresh.get().value;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for Sendpulse token", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private static class Token {
+        private final String value;
+        private final long expiresAt;
+        private final long refreshAt;
+
+        private Token(String value, long lifetime) {
+            long now = System.currentTimeMillis();
+            this.value = value;
+            this.expiresAt = now + lifetime;
+            this.refreshAt = expiresAt - Math.min(MAX_REFRESH_MARGIN, lifetime / 4);
+        }
+
+        private boolean isValid() {
+            return System.currentTimeMillis() < expiresAt;
+        }
+    }
+}
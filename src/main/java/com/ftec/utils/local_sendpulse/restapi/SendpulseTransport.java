@@ -0,0 +1,294 @@
+package com.ftec.utils.local_sendpulse.restapi;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.HttpEntity;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicNameValuePair;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.*;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP part of {@link Sendpulse}: one pooled keep-alive client shared by all threads.
+ * Pooled connections keep their TLS session, so only the first request to the API pays for handshake.
+ * Response body is parsed by Jackson straight from the connection stream, without reading it into a String first.
+ */
+public class SendpulseTransport implements Closeable {
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient client;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public SendpulseTransport(int maxConnections, int connectTimeout, int socketTimeout) {
+        connectionManager = new PoolingHttpClientConnectionManager(60, TimeUnit.SECONDS);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        connectionManager.setValidateAfterInactivity(2000);
+
+        client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(connectTimeout)
+                        .setConnectionRequestTimeout(connectTimeout)
+                        .setSocketTimeout(socketTimeout)
+                        .build())
+                .evictIdleConnections(30, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * @param data sent as query string for GET and as form body for other methods; form with {@link StreamedValue} is sent chunked
+     * @param token bearer token, or null
+     * @return "http_code" and "data" (JSONObject, JSONArray or null)
+     */
+    public Map<String, Object> execute(String method, String url, Map<String, Object> data, String token) throws IOException {
+        HttpRequestBase request;
+        if (method.equals("GET")) {
+            List<NameValuePair> params = toParams(data);
+            request = new HttpGet(params.isEmpty() ? url : url + "?" + URLEncodedUtils.format(params, StandardCharsets.UTF_8));
+        } else {
+            HttpEntityEnclosingRequestBase entityRequest = new EntityRequest(method);
+            entityRequest.setURI(URI.create(url));
+            entityRequest.setEntity(hasStreamedValues(data) ? new StreamedFormEntity(data) : new UrlEncodedFormEntity(toParams(data), StandardCharsets.UTF_8));
+            request = entityRequest;
+        }
+        if (token != null) request.setHeader("Authorization", "Bearer " + token);
+
+        try (CloseableHttpResponse response = client.execute(request)) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("http_code", response.getStatusLine().getStatusCode());
+            result.put("data", parse(response.getEntity()));
+            return result;
+        }
+    }
+
+    private static List<NameValuePair> toParams(Map<String, Object> data) {
+        List<NameValuePair> params = new ArrayList<>();
+        if (data != null) data.forEach((key, value) -> params.add(new BasicNameValuePair(key, String.valueOf(value))));
+        return params;
+    }
+
+    private static boolean hasStreamedValues(Map<String, Object> data) {
+        if (data == null) return false;
+        for (Object value : data.values()) {
+            if (value instanceof StreamedValue) return true;
+        }
+        return false;
+    }
+
+    private Object parse(HttpEntity entity) throws IOException {
+        if (entity == null) return null;
+
+        // closing the stream reads it to the end and returns connection to the pool
+        try (InputStream content = entity.getContent()) {
+            Object value = mapper.readValue(content, Object.class);
+            if (value instanceof Map) return new JSONObject((Map<?, ?>) value);
+            if (value instanceof List) return new JSONArray((List<?>) value);
+            return null;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("leased", connectionManager.getTotalStats().getLeased());
+        metrics.put("available", connectionManager.getTotalStats().getAvailable());
+        metrics.put("pending", connectionManager.getTotalStats().getPending());
+        metrics.put("max", connectionManager.getTotalStats().getMax());
+        return metrics;
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+
+    /**
+     * Form value which is written into request body as it is produced, e.g. big serialized email.
+     */
+    public interface StreamedValue {
+        void writeTo(Appendable out) throws IOException;
+    }
+
+    /**
+     * Form body of unknown length sent chunked; values are url-encoded on the fly.
+     */
+    private static class StreamedFormEntity extends AbstractHttpEntity {
+        private final Map<String, Object> data;
+
+        private StreamedFormEntity(Map<String, Object> data) {
+            this.data = data;
+            setContentType(URLEncodedUtils.CONTENT_TYPE + "; charset=UTF-8");
+            setChunked(true);
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeTo(out);
+            return new ByteArrayInputStream(out.toByteArray());
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            FormEncoder encoder = new FormEncoder(out);
+            boolean first = true;
+            for (Map.Entry<String, Object> entry : data.entrySet()) {
+                if (!first) encoder.write('&');
+                first = false;
+                encoder.append(entry.getKey());
+                encoder.write('=');
+                if (entry.getValue() instanceof StreamedValue) ((StreamedValue) entry.getValue()).writeTo(encoder);
+                else encoder.append(String.valueOf(entry.getValue()));
+            }
+            encoder.flush();
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+
+    /**
+     * application/x-www-form-urlencoded encoding of chars in UTF-8, the same as {@link java.net.URLEncoder} does.
+     */
+    static class FormEncoder implements Appendable {
+        private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+        private final OutputStream out;
+        private final byte[] buffer = new byte[8192];
+        private int count;
+        private char highSurrogate;
+
+        FormEncoder(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            for (int i = start; i < end; i++) append(csq.charAt(i));
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            // up to '?' for unpaired surrogate and 4 bytes of UTF-8, each is %XX
+            if (count > buffer.length - 15) flushBuffer();
+
+            if (highSurrogate != 0) {
+                char high = highSurrogate;
+                highSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    encode(Character.toCodePoint(high, c));
+                    return this;
+                }
+                encode('?');
+            }
+
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '.' || c == '-' || c == '*' || c == '_') {
+                buffer[count++] = (byte) c;
+            } else if (c == ' ') {
+                buffer[count++] = '+';
+            } else if (Character.isHighSurrogate(c)) {
+                highSurrogate = c;
+            } else {
+                encode(Character.isLowSurrogate(c) ? '?' : c);
+            }
+            return this;
+        }
+
+        /**
+         * Writes separator char as is.
+         */
+        void write(char c) throws IOException {
+            if (count == buffer.length) flushBuffer();
+            buffer[count++] = (byte) c;
+        }
+
+        private void encode(int codePoint) {
+            if (codePoint < 0x80) {
+                percent(codePoint);
+            } else if (codePoint < 0x800) {
+                percent(0xC0 | (codePoint >> 6));
+                percent(0x80 | (codePoint & 0x3F));
+            } else if (codePoint < 0x10000) {
+                percent(0xE0 | (codePoint >> 12));
+                percent(0x80 | ((codePoint >> 6) & 0x3F));
+                percent(0x80 | (codePoint & 0x3F));
+            } else {
+                percent(0xF0 | (codePoint >> 18));
+                percent(0x80 | ((codePoint >> 12) & 0x3F));
+                percent(0x80 | ((codePoint >> 6) & 0x3F));
+                percent(0x80 | (codePoint & 0x3F));
+            }
+        }
+
+        private void percent(int b) {
+            buffer[count++] = '%';
+            buffer[count++] = (byte) HEX[(b >> 4) & 0xF];
+            buffer[count++] = (byte) HEX[b & 0xF];
+        }
+
+        private void flushBuffer() throws IOException {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+
+        void flush() throws IOException {
+            if (highSurrogate != 0) {
+                highSurrogate = 0;
+                if (count > buffer.length - 3) flushBuffer();
+                encode('?');
+            }
+            flushBuffer();
+            out.flush();
+        }
+    }
+
+    private static class EntityRequest extends HttpEntityEnclosingRequestBase {
+        private final String method;
+
+        private EntityRequest(String method) {
+            this.method = method;
+        }
+
+        @Override
+        public String getMethod() {
+            return method;
+        }
+    }
+}
@@ -23,6 +23,8 @@
 
 package com.ftec.utils.local_sendpulse.restapi.pherialize;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.Charset;
 
 
@@ -83,6 +85,28 @@ public class Pherialize
     }
 
 
+    /**
+     * Writes the serialized representation of the specified object to the
+     * specified output, without building it in memory as a whole.
+     *
+     * @param object
+     *            The object to serialize
+     * @param out
+     *            The output to write to
+     * @throws IOException
+     *             When output fails
+     */
+
+    public static void serialize(final Object object, final Appendable out)
+        throws IOException
+    {
+        Serializer pherialize;
+
+        pherialize = new Serializer();
+        pherialize.serialize(object, out);
+    }
+
+
     /**
      * Returns the unserialized object of the specified PHP serialize format
      * string. The returned object is wrapped in a Mixed object allowing easy
@@ -127,4 +151,25 @@ public class Pherialize
         unserializer = new Unserializer(data);
         return unserializer.unserializeObject();
     }
+
+
+    /**
+     * Returns the unserialized object read from the specified stream, as
+     * {@link #unserialize(String, Charset)} does. Only the bytes of the
+     * object are parsed, without reading the whole stream into a String.
+     *
+     * @param in
+     *            The stream of serialized data
+     * @param charset
+     *            The charset of data.
+     * @return The unserialized object
+     */
+
+    public static Mixed unserialize(final InputStream in, Charset charset)
+    {
+        Unserializer unserializer;
+
+        unserializer = new Unserializer(in, charset);
+        return unserializer.unserializeObject();
+    }
 }
@@ -23,13 +23,15 @@
 
 package com.ftec.utils.local_sendpulse.restapi.pherialize;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -39,17 +41,49 @@ import com.ftec.utils.local_sendpulse.restapi.pherialize.exceptions.SerializeExc
 /**
  * Serializes Java objects in a PHP serializer format string.
  *
+ * Output is built in a StringBuilder, or written to an Appendable in chunks
+ * of {@link #CHUNK_SIZE} chars, so big payloads can go straight to a request
+ * body. String lengths are byte counts in the charset; for UTF-8 they are
+ * counted from the chars without encoding the string.
+ *
+ * References ("R:n;") to already serialized objects are only written when
+ * reference tracking is enabled. Without it shared objects are serialized
+ * again and cyclic data fails with a SerializeException.
+ *
+ * Serializer is not thread-safe, use one instance per thread.
+ *
  * @author Klaus Reimer (k.reimer@iplabs.de)
  * @version $Revision$
  */
 
 public class Serializer
 {
+    /** Chars buffered before they are written to the output */
+    static final int CHUNK_SIZE = 8192;
+
+    /** Maximum nesting of arrays and objects without reference tracking */
+    private static final int MAX_DEPTH = 512;
+
     /** The original charset of the input data. */
     private final Charset charset;
 
-    /** The object history for resolving references */
-    private final List<Object> history;
+    /** If charset is UTF-8, so byte lengths can be counted without encoding */
+    private final boolean utf8;
+
+    /** Serialized objects and their PHP value numbers, null without reference tracking */
+    private final Map<Object, Integer> references;
+
+    /** Number of values serialized so far, as counted by PHP for references */
+    private int valueCount;
+
+    /** Current nesting of arrays and objects */
+    private int depth;
+
+    /** The buffer serialized data is appended to */
+    private StringBuilder buffer;
+
+    /** Where the buffer is flushed to, null when serializing into a String */
+    private Appendable out;
 
 
     /**
@@ -58,7 +92,7 @@ public class Serializer
 
     public Serializer()
     {
-        this(Charset.forName("UTF-8"));
+        this(StandardCharsets.UTF_8);
     }
 
 
@@ -67,10 +101,26 @@ public class Serializer
      */
 
     public Serializer(Charset charset)
+    {
+        this(charset, false);
+    }
+
+
+    /**
+     * Constructor
+     *
+     * @param charset
+     *            The charset string lengths are counted in
+     * @param trackReferences
+     *            If objects serialized more than once are written as references
+     */
+
+    public Serializer(Charset charset, boolean trackReferences)
     {
         super();
         this.charset = charset;
-        this.history = new ArrayList<Object>();
+        this.utf8 = StandardCharsets.UTF_8.equals(charset);
+        this.references = trackReferences ? new IdentityHashMap<Object, Integer>() : null;
     }
 
 
@@ -84,28 +134,66 @@ public class Serializer
 
     public String serialize(final Object object)
     {
-        StringBuffer buffer;
-
-        buffer = new StringBuffer();
-        serializeObject(object, buffer);
-        return buffer.toString();
+        reset(new StringBuilder(256), null);
+        try
+        {
+            serializeObject(object, true);
+        }
+        catch (final IOException e)
+        {
+            // StringBuilder doesn't throw it
+            throw new SerializeException(e);
+        }
+        return this.buffer.toString();
     }
 
 
     /**
-     * This method is used internally for recursively scanning the object while
-     * serializing. It just calls the other serializeObject method defaulting
-     * to allowing references.
+     * Serializes the specified object into the specified output without
+     * building the whole serialized data in memory.
      *
      * @param object
-     *            The object to serialize
-     * @param buffer
-     *            The string buffer to append serialized data to
+     *            The object
+     * @param out
+     *            The output to write serialized data to
+     * @throws IOException
+     *             When output fails
+     */
+
+    public void serialize(final Object object, final Appendable out)
+        throws IOException
+    {
+        reset(new StringBuilder(CHUNK_SIZE), out);
+        serializeObject(object, true);
+        flush();
+    }
+
+
+    /**
+     * Prepares serializer for the next object.
      */
 
-    private void serializeObject(final Object object, final StringBuffer buffer)
+    private void reset(final StringBuilder buffer, final Appendable out)
     {
-        serializeObject(object, buffer, true);
+        this.buffer = buffer;
+        this.out = out;
+        this.valueCount = 0;
+        this.depth = 0;
+        if (this.references != null) this.references.clear();
+    }
+
+
+    /**
+     * Writes buffered data to the output.
+     */
+
+    private void flush() throws IOException
+    {
+        if (this.out != null && this.buffer.length() > 0)
+        {
+            this.out.append(this.buffer);
+            this.buffer.setLength(0);
+        }
     }
 
 
@@ -113,87 +201,76 @@ public class Serializer
      * This method is used internally for recursively scanning the object while
      * serializing. If references are allowed or not can be specified with the
      * last parameter. For example Array/Map-Keys are not allowed to be a
-     * reference.
+     * reference. Most common types are checked first.
      *
      * @param object
      *            The object to serialize
-     * @param buffer
-     *            The string buffer to append serialized data to
      * @param allowReference
      *            If reference is allowed for this object
      */
 
-    private void serializeObject(final Object object, final StringBuffer buffer,
-        final boolean allowReference)
+    private void serializeObject(final Object object, final boolean allowReference)
+        throws IOException
     {
         if (object == null)
         {
-            serializeNull(buffer);
-        }
-        else if (allowReference && serializeReference(object, buffer))
-        {
-            return;
+            this.buffer.append("N;");
+            countValue(null);
         }
         else if (object instanceof String)
         {
-            serializeString((String) object, buffer);
+            serializeString((String) object);
+            countValue(object);
         }
-        else if (object instanceof Character)
+        else if (allowReference && serializeReference(object))
         {
-            serializeCharacter((Character) object, buffer);
+            return;
         }
-        else if (object instanceof Integer)
+        else if (object instanceof Map<?, ?>)
         {
-            serializeInteger(((Integer) object).intValue(), buffer);
+            serializeMap((Map<?, ?>) object);
         }
-        else if (object instanceof Short)
+        else if (object instanceof Collection<?>)
         {
-            serializeInteger(((Short) object).intValue(), buffer);
+            serializeCollection((Collection<?>) object);
         }
-        else if (object instanceof Byte)
+        else if (object instanceof Integer || object instanceof Short
+            || object instanceof Byte)
         {
-            serializeInteger(((Byte) object).intValue(), buffer);
+            this.buffer.append("i:").append(((Number) object).intValue()).append(';');
+            countValue(object);
         }
         else if (object instanceof Long)
         {
-            serializeLong(((Long) object).longValue(), buffer);
+            serializeLong(((Long) object).longValue());
+            countValue(object);
         }
-        else if (object instanceof Double)
+        else if (object instanceof Double || object instanceof Float)
         {
-            serializeDouble(((Double) object).doubleValue(), buffer);
+            this.buffer.append("d:").append(((Number) object).doubleValue()).append(';');
+            countValue(object);
         }
-        else if (object instanceof Float)
+        else if (object instanceof Boolean)
         {
-            serializeDouble(((Float) object).doubleValue(), buffer);
+            this.buffer.append(((Boolean) object).booleanValue() ? "b:1;" : "b:0;");
+            countValue(object);
         }
-        else if (object instanceof Boolean)
+        else if (object instanceof Character)
         {
-            serializeBoolean((Boolean) object, buffer);
+            serializeString(object.toString());
+            countValue(object);
         }
         else if (object instanceof Mixed)
         {
-            serializeMixed((Mixed) object, buffer);
-            return;
+            serializeObject(((Mixed) object).getValue(), true);
         }
         else if (object instanceof Object[])
         {
-            serializeArray((Object[]) object, buffer);
-            return;
-        }
-        else if (object instanceof Collection<?>)
-        {
-            serializeCollection((Collection<?>) object, buffer);
-            return;
-        }
-        else if (object instanceof Map<?, ?>)
-        {
-            serializeMap((Map<?, ?>) object, buffer);
-            return;
+            serializeArray((Object[]) object);
         }
         else if (object instanceof Serializable)
         {
-            serializeSerializable((Serializable) object, buffer);
-            return;
+            serializeSerializable((Serializable) object);
         }
         else
         {
@@ -201,292 +278,256 @@ public class Serializer
                 + object.getClass().getName());
         }
 
-        this.history.add(object);
+        if (this.out != null && this.buffer.length() >= CHUNK_SIZE) flush();
     }
 
 
     /**
-     * Tries to serialize a reference if the specified object was already
-     * serialized. It returns true in this case. If the object was not
-     * serialized before then false is returned.
+     * Counts the serialized value, so references point to right values, and
+     * remembers the object if it can be referenced later.
      *
      * @param object
-     *            The object to serialize
-     * @param buffer
-     *            The string buffer to append serialized data to
-     * @return If a reference was serialized or not
+     *            The serialized object
      */
 
-    private boolean serializeReference(final Object object, final StringBuffer buffer)
+    private void countValue(final Object object)
     {
-        Iterator<?> iterator;
-        int index;
-        boolean isReference;
+        this.valueCount++;
 
         // Don't allow references for simple types because here PHP and
         // Java are VERY different and the best way it to simply disallow
         // References for these types
-        if (object instanceof Number || object instanceof Boolean ||
-            object instanceof String)
+        if (this.references != null && object != null
+            && !(object instanceof Number || object instanceof Boolean
+                || object instanceof String))
         {
-            return false;
-        }
-
-        iterator = this.history.iterator();
-        index = 0;
-        isReference = false;
-        while (iterator.hasNext())
-        {
-            if (iterator.next() == object)
-            {
-                buffer.append("R:");
-                buffer.append(index + 1);
-                buffer.append(';');
-                isReference = true;
-                break;
-            }
-            index++;
+            if (!this.references.containsKey(object))
+                this.references.put(object, Integer.valueOf(this.valueCount));
         }
-        return isReference;
     }
 
 
     /**
-     * Serializes the specified mixed object and appends it to the serialization
-     * buffer.
+     * Tries to serialize a reference if the specified object was already
+     * serialized. It returns true in this case. If the object was not
+     * serialized before or references are not tracked then false is returned.
      *
-     * @param mixed
+     * @param object
      *            The object to serialize
-     * @param buffer
-     *            The string buffer to append serialized data to
+     * @return If a reference was serialized or not
      */
 
-    private void serializeMixed(final Mixed mixed, final StringBuffer buffer)
+    private boolean serializeReference(final Object object)
     {
-        serializeObject(mixed.getValue(), buffer);
+        if (this.references == null) return false;
+
+        final Integer index = this.references.get(object);
+        if (index == null) return false;
+
+        this.buffer.append("R:").append(index.intValue()).append(';');
+        return true;
     }
 
 
     /**
      * Serializes the specified string and appends it to the serialization
-     * buffer.
+     * buffer. Long strings are written to the output directly.
      *
      * @param string
      *            The string to serialize
-     * @param buffer
-     *            The string buffer to append serialized data to
      */
 
-    private void serializeString(final String string, final StringBuffer buffer)
+    private void serializeString(final String string) throws IOException
     {
-        String decoded = Unserializer.decode(string, charset);
-
-        buffer.append("s:");
-        buffer.append(decoded.length());
-        buffer.append(":\"");
-        buffer.append(string);
-        buffer.append("\";");
+        this.buffer.append("s:").append(byteLength(string)).append(":\"");
+        if (this.out != null && string.length() >= CHUNK_SIZE)
+        {
+            flush();
+            this.out.append(string);
+        }
+        else
+        {
+            this.buffer.append(string);
+        }
+        this.buffer.append("\";");
     }
 
 
     /**
-     * Serializes the specified character and appends it to the serialization
-     * buffer.
+     * Returns length of the string in bytes of the charset, as PHP counts it.
      *
-     * @param value
-     *            The value to serialize
-     * @param buffer
-     *            The string buffer to append serialized data to
+     * @param string
+     *            The string
+     * @return The byte length
      */
 
-    private void serializeCharacter(final Character value, final StringBuffer buffer)
+    private int byteLength(final String string)
     {
-        buffer.append("s:1:\"");
-        buffer.append(value);
-        buffer.append("\";");
+        return this.utf8 ? utf8Length(string) : string.getBytes(this.charset).length;
     }
 
 
     /**
-     * Adds a serialized NULL to the serialization buffer.
+     * Returns length of the string encoded in UTF-8, without encoding it.
+     * Unpaired surrogates are counted as one byte, as String.getBytes replaces
+     * them with '?'.
      *
-     * @param buffer
-     *            The string buffer to append serialized data to
+     * @param string
+     *            The string
+     * @return The byte length
      */
 
-    private void serializeNull(final StringBuffer buffer)
+    static int utf8Length(final String string)
     {
-        buffer.append("N;");
-    }
-
-
-    /**
-     * Serializes the specified integer number and appends it to the
-     * serialization buffer.
-     *
-     * @param number
-     *            The integer number to serialize
-     * @param buffer
-     *            The string buffer to append serialized data to
-     */
+        final int length = string.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++)
+        {
+            final char c = string.charAt(i);
+            if (c < 0x80) continue;
 
-    private void serializeInteger(final int number, final StringBuffer buffer)
-    {
-        buffer.append("i:");
-        buffer.append(number);
-        buffer.append(';');
+            if (c < 0x800)
+            {
+                bytes += 1;
+            }
+            else if (!Character.isSurrogate(c))
+            {
+                bytes += 2;
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < length
+                && Character.isLowSurrogate(string.charAt(i + 1)))
+            {
+                // 4 bytes for 2 chars
+                bytes += 2;
+                i++;
+            }
+        }
+        return bytes;
     }
 
 
     /**
-     * Serializes the specified lonf number and appends it to the serialization
-     * buffer.
+     * Serializes the specified long number and appends it to the
+     * serialization buffer.
      *
      * @param number
-     *            The lonf number to serialize
-     * @param buffer
-     *            The string buffer to append serialized data to
+     *            The long number to serialize
      */
 
-    private void serializeLong(final long number, final StringBuffer buffer)
+    private void serializeLong(final long number)
     {
         if ((number >= Integer.MIN_VALUE) && (number <= Integer.MAX_VALUE))
         {
-            buffer.append("i:");
+            this.buffer.append("i:");
         }
         else
         {
-            buffer.append("d:");
+            this.buffer.append("d:");
         }
-        buffer.append(number);
-        buffer.append(';');
+        this.buffer.append(number).append(';');
     }
 
 
     /**
-     * Serializes the specfied double number and appends it to the serialization
-     * buffer.
+     * Serializes the specified array key. Keys are not counted as values and
+     * are never references.
      *
-     * @param number
-     *            The number to serialize
-     * @param buffer
-     *            The string buffer to append serialized data to
+     * @param key
+     *            The key to serialize
      */
 
-    private void serializeDouble(final double number, final StringBuffer buffer)
+    private void serializeKey(final Object key) throws IOException
     {
-        buffer.append("d:");
-        buffer.append(number);
-        buffer.append(';');
+        final int count = this.valueCount;
+        serializeObject(key, false);
+        this.valueCount = count;
     }
 
 
     /**
-     * Serializes the specfied boolean and appends it to the serialization
-     * buffer.
+     * Starts serializing an array or object: counts it and checks nesting.
      *
-     * @param value
-     *            The value to serialize
-     * @param buffer
-     *            The string buffer to append serialized data to
+     * @param object
+     *            The array or object
      */
 
-    private void serializeBoolean(final Boolean value, final StringBuffer buffer)
+    private void enter(final Object object)
     {
-        buffer.append("b:");
-        buffer.append(value.booleanValue() ? 1 : 0);
-        buffer.append(';');
+        countValue(object);
+        if (++this.depth > MAX_DEPTH && this.references == null)
+        {
+            throw new SerializeException("Data is nested deeper than "
+                + MAX_DEPTH + " levels, cyclic data needs reference tracking");
+        }
     }
 
 
     /**
-     * Serializes the specfied collection and appends it to the serialization
-     * buffer.
+     * Serializes the specified collection and appends it to the
+     * serialization buffer.
      *
      * @param collection
      *            The collection to serialize
-     * @param buffer
-     *            The string buffer to append serialized data to
      */
 
-    private void serializeCollection(final Collection<?> collection, final StringBuffer buffer)
+    private void serializeCollection(final Collection<?> collection)
+        throws IOException
     {
-        Iterator<?> iterator;
         int index;
 
-        this.history.add(collection);
-        buffer.append("a:");
-        buffer.append(collection.size());
-        buffer.append(":{");
-        iterator = collection.iterator();
+        enter(collection);
+        this.buffer.append("a:").append(collection.size()).append(":{");
         index = 0;
-        while (iterator.hasNext())
+        for (final Object value : collection)
         {
-            serializeObject(Integer.valueOf(index), buffer, false);
-            this.history.remove(this.history.size() - 1);
-            serializeObject(iterator.next(), buffer);
-            index++;
+            this.buffer.append("i:").append(index++).append(';');
+            serializeObject(value, true);
         }
-        buffer.append('}');
+        this.buffer.append('}');
+        this.depth--;
     }
 
 
     /**
-     * Serializes the specfied array and appends it to the serialization
+     * Serializes the specified array and appends it to the serialization
      * buffer.
      *
      * @param array
      *            The array to serialize
-     * @param buffer
-     *            The string buffer to append serialized data to
      */
 
-    private void serializeArray(final Object[] array, final StringBuffer buffer)
+    private void serializeArray(final Object[] array) throws IOException
     {
-        int max;
-
-        this.history.add(array);
-        buffer.append("a:");
-        max = array.length;
-        buffer.append(max);
-        buffer.append(":{");
-        for (int i = 0; i < max; i++)
+        enter(array);
+        this.buffer.append("a:").append(array.length).append(":{");
+        for (int i = 0; i < array.length; i++)
         {
-            serializeObject(Integer.valueOf(i), buffer, false);
-            this.history.remove(this.history.size() - 1);
-            serializeObject(array[i], buffer);
+            this.buffer.append("i:").append(i).append(';');
+            serializeObject(array[i], true);
         }
-        buffer.append('}');
+        this.buffer.append('}');
+        this.depth--;
     }
 
 
     /**
-     * Serializes the specfied map and appends it to the serialization buffer.
+     * Serializes the specified map and appends it to the serialization buffer.
      *
      * @param map
      *            The map to serialize
-     * @param buffer
-     *            The string buffer to append serialized data to
      */
 
-    private void serializeMap(final Map<?, ?> map, final StringBuffer buffer)
+    private void serializeMap(final Map<?, ?> map) throws IOException
     {
-        Iterator<?> iterator;
-        Object key;
-
-        this.history.add(map);
-        buffer.append("a:");
-        buffer.append(map.size());
-        buffer.append(":{");
-        iterator = map.keySet().iterator();
-        while (iterator.hasNext())
+        enter(map);
+        this.buffer.append("a:").append(map.size()).append(":{");
+        for (final Map.Entry<?, ?> entry : map.entrySet())
         {
-            key = iterator.next();
-            serializeObject(key, buffer, false);
-            this.history.remove(this.history.size() - 1);
-            serializeObject(map.get(key), buffer);
+            serializeKey(entry.getKey());
+            serializeObject(entry.getValue(), true);
         }
-        buffer.append('}');
+        this.buffer.append('}');
+        this.depth--;
     }
 
 
@@ -495,70 +536,53 @@ public class Serializer
      *
      * @param object
      *            The serializable object
-     * @param buffer
-     *            The string buffer to append serialized data to
      */
 
-    private void serializeSerializable(final Serializable object, final StringBuffer buffer)
+    private void serializeSerializable(final Serializable object)
+        throws IOException
     {
-        String className;
         Class<?> c;
-        Field[] fields;
-        int i, max;
-        Field field;
-        String key;
-        Object value;
-        StringBuffer fieldBuffer;
-        int fieldCount;
-
-        this.history.add(object);
+        String className;
+        List<Object> fields;
+
+        enter(object);
         c = object.getClass();
         className = c.getSimpleName();
-        buffer.append("O:");
-        buffer.append(className.length());
-        buffer.append(":\"");
-        buffer.append(className);
-        buffer.append("\":");
-
-        fieldBuffer = new StringBuffer();
-        fieldCount = 0;
+        this.buffer.append("O:").append(byteLength(className)).append(":\"")
+            .append(className).append("\":");
+
+        // names and values of readable fields, so their count is known before they are written
+        fields = new ArrayList<Object>();
         while (c != null)
         {
-            fields = c.getDeclaredFields();
-            for (i = 0, max = fields.length; i < max; i++)
+            for (final Field field : c.getDeclaredFields())
             {
-                field = fields[i];
                 if (Modifier.isStatic(field.getModifiers())) continue;
                 if (Modifier.isVolatile(field.getModifiers())) continue;
 
                 try
                 {
                     field.setAccessible(true);
-                    key = field.getName();
-                    value = field.get(object);
-                    serializeObject(key, fieldBuffer);
-                    this.history.remove(this.history.size() - 1);
-                    serializeObject(value, fieldBuffer);
-                    fieldCount++;
-                }
-                catch (final SecurityException e)
-                {
-                    // Field is just ignored when this exception is thrown
-                }
-                catch (final IllegalArgumentException e)
-                {
-                    // Field is just ignored when this exception is thrown
+                    final Object value = field.get(object);
+                    fields.add(field.getName());
+                    fields.add(value);
                 }
-                catch (final IllegalAccessException e)
+                catch (final SecurityException | IllegalArgumentException
+                    | IllegalAccessException e)
                 {
                     // Field is just ignored when this exception is thrown
                 }
             }
             c = c.getSuperclass();
         }
-        buffer.append(fieldCount);
-        buffer.append(":{");
-        buffer.append(fieldBuffer);
-        buffer.append("}");
+
+        this.buffer.append(fields.size() / 2).append(":{");
+        for (int i = 0; i < fields.size(); i += 2)
+        {
+            serializeKey(fields.get(i));
+            serializeObject(fields.get(i + 1), true);
+        }
+        this.buffer.append('}');
+        this.depth--;
     }
 }
@@ -23,8 +23,10 @@
 
 package com.ftec.utils.local_sendpulse.restapi.pherialize;
 
-import java.io.UnsupportedEncodingException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -34,17 +36,40 @@ import com.ftec.utils.local_sendpulse.restapi.pherialize.exceptions.UnserializeE
 /**
  * Unserializes a PHP serialize format string into a Java object.
  *
+ * Data is parsed as bytes with a cursor, from a byte array or an input stream
+ * read in chunks of {@link #BUFFER_SIZE} bytes, as PHP string lengths are byte
+ * counts. Numbers are parsed in place; only strings are decoded with the
+ * charset, straight from the bytes. Anything unusual in a number is left to
+ * Integer/Double parsing, so results and errors are the same as before.
+ *
  * @author Klaus Reimer (k@ailis.de)
  * @version $Revision$
  */
 
 public class Unserializer
 {
-    /** The current pointer in the data */
+    /** Bytes read from the input stream at once */
+    static final int BUFFER_SIZE = 8192;
+
+    /** Maximum initial capacity of arrays, the count in data is not trusted */
+    private static final int MAX_INITIAL_CAPACITY = 1024;
+
+    /** Powers of ten exactly representable as double */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    /** The input stream, null when all data is in the buffer */
+    private final InputStream in;
+
+    /** The data to unserialize, or the part of it read so far */
+    private byte[] buffer;
+
+    /** The current pointer in the buffer */
     private int pos;
 
-    /** The data to unserialize */
-    private final String data;
+    /** The end of data in the buffer */
+    private int limit;
 
     /** The original charset of the input data. */
     private final Charset charset;
@@ -52,6 +77,9 @@ public class Unserializer
     /** The object history for resolving references */
     private final List<Object> history;
 
+    /** Characters of the number being parsed */
+    private final StringBuilder number = new StringBuilder(24);
+
 
     /**
      * Constructor
@@ -62,7 +90,7 @@ public class Unserializer
 
     public Unserializer(final String data)
     {
-        this(data, Charset.forName("UTF-8"));
+        this(data, StandardCharsets.UTF_8);
     }
 
 
@@ -74,11 +102,44 @@ public class Unserializer
      */
 
     public Unserializer(final String data, Charset charset)
+    {
+        this(data.getBytes(charset), charset);
+    }
+
+
+    /**
+     * Constructor
+     *
+     * @param data
+     *            The data to unserialize, in the specified charset
+     */
+
+    public Unserializer(final byte[] data, Charset charset)
+    {
+        super();
+        this.in = null;
+        this.buffer = data;
+        this.limit = data.length;
+        this.charset = charset;
+        this.history = new ArrayList<Object>();
+    }
+
+
+    /**
+     * Constructor
+     *
+     * @param in
+     *            The stream to read the data to unserialize from, in the
+     *            specified charset. It is read only as far as needed.
+     */
+
+    public Unserializer(final InputStream in, Charset charset)
     {
         super();
-        this.data = decode(data, charset);
+        this.in = in;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.limit = 0;
         this.charset = charset;
-        this.pos = 0;
         this.history = new ArrayList<Object>();
     }
 
@@ -94,7 +155,7 @@ public class Unserializer
         char type;
         Mixed result;
 
-        type = this.data.charAt(this.pos);
+        type = (char) (read() & 0xFF);
         switch (type)
         {
             case 's':
@@ -134,6 +195,111 @@ public class Unserializer
     }
 
 
+    /**
+     * Makes sure the specified number of bytes is in the buffer, reading more
+     * from the stream if needed.
+     *
+     * @param count
+     *            The number of bytes, not more than the buffer size
+     * @return If there are so many bytes left
+     */
+
+    private boolean require(final int count)
+    {
+        if (this.limit - this.pos >= count) return true;
+        if (this.in == null) return false;
+
+        if (this.pos > 0)
+        {
+            System.arraycopy(this.buffer, this.pos, this.buffer, 0, this.limit - this.pos);
+            this.limit -= this.pos;
+            this.pos = 0;
+        }
+        try
+        {
+            while (this.limit < count)
+            {
+                final int read = this.in.read(this.buffer, this.limit, this.buffer.length - this.limit);
+                if (read < 0) return false;
+                this.limit += read;
+            }
+        }
+        catch (final IOException e)
+        {
+            throw new UnserializeException("Unable to read data", e);
+        }
+        return true;
+    }
+
+
+    /**
+     * Returns the next byte.
+     *
+     * @return The byte
+     */
+
+    private byte read()
+    {
+        if (!require(1)) throw new UnserializeException("Unexpected end of data");
+        return this.buffer[this.pos++];
+    }
+
+
+    /**
+     * Skips the specified number of bytes.
+     *
+     * @param count
+     *            The number of bytes
+     */
+
+    private void skip(final int count)
+    {
+        for (int i = 0; i < count; i++) read();
+    }
+
+
+    /**
+     * Parses an integer number up to the specified terminator, which is
+     * skipped too. Numbers not made of an optional minus and up to 9 digits
+     * are parsed by Integer.parseInt.
+     *
+     * @param terminator
+     *            The char after the number
+     * @return The number
+     */
+
+    private int readInt(final char terminator)
+    {
+        byte b;
+        boolean negative;
+        int result, digits;
+
+        skip(1);
+        b = read();
+        negative = b == '-';
+        if (negative) b = read();
+
+        result = 0;
+        for (digits = 0; b >= '0' && b <= '9' && digits < 9; digits++)
+        {
+            result = result * 10 + (b - '0');
+            b = read();
+        }
+        if (b == terminator && digits > 0) return negative ? -result : result;
+
+        // sign, overflow or garbage: let Integer report it
+        this.number.setLength(0);
+        if (negative) this.number.append('-');
+        this.number.append(result == 0 && digits == 0 ? "" : Integer.toString(result));
+        while (b != terminator)
+        {
+            this.number.append((char) (b & 0xFF));
+            b = read();
+        }
+        return Integer.parseInt(this.number.toString());
+    }
+
+
     /**
      * Unserializes the next object in the data stream into a String.
      *
@@ -142,13 +308,35 @@ public class Unserializer
 
     private Mixed unserializeString()
     {
-        int pos, length;
+        int length;
+        String result;
 
-        pos = this.data.indexOf(':', this.pos + 2);
-        length = Integer.parseInt(this.data.substring(this.pos + 2, pos));
-        this.pos = pos + length + 4;
-        String unencoded = this.data.substring(pos + 2, pos + 2 + length);
-        return new Mixed(encode(unencoded, charset));
+        length = readInt(':');
+        skip(1);
+        if (length < 0) throw new UnserializeException("Negative string length " + length);
+
+        if (this.in == null || length <= this.buffer.length)
+        {
+            if (!require(length)) throw new UnserializeException("Unexpected end of data");
+            result = new String(this.buffer, this.pos, length, this.charset);
+            this.pos += length;
+        }
+        else
+        {
+            final byte[] bytes = new byte[length];
+            int copied = 0;
+            while (copied < length)
+            {
+                if (!require(1)) throw new UnserializeException("Unexpected end of data");
+                final int count = Math.min(length - copied, this.limit - this.pos);
+                System.arraycopy(this.buffer, this.pos, bytes, copied, count);
+                this.pos += count;
+                copied += count;
+            }
+            result = new String(bytes, this.charset);
+        }
+        skip(2);
+        return new Mixed(result);
     }
 
 
@@ -160,31 +348,91 @@ public class Unserializer
 
     private Mixed unserializeInteger()
     {
-        Integer result;
-        int pos;
-
-        pos = this.data.indexOf(';', this.pos + 2);
-        result = Integer.valueOf(this.data.substring(this.pos + 2, pos));
-        this.pos = pos + 1;
-        return new Mixed(result);
+        return new Mixed(Integer.valueOf(readInt(';')));
     }
 
 
     /**
-     * Unserializes the next object in the data stream into an Double.
+     * Unserializes the next object in the data stream into an Double. Plain
+     * decimals with up to 15 significant digits are converted exactly by one
+     * multiplication or division, other numbers by Double.parseDouble.
      *
      * @return The unserialized Double
      */
 
     private Mixed unserializeDouble()
     {
-        Double result;
-        int pos;
+        byte b;
+        boolean negative, simple;
+        long mantissa;
+        int digits, exponent, explicitExponent;
+
+        skip(1);
+        this.number.setLength(0);
+        negative = false;
+        simple = true;
+        mantissa = 0;
+        digits = 0;
+        exponent = 0;
+
+        b = read();
+        if (b == '-')
+        {
+            negative = true;
+            this.number.append('-');
+            b = read();
+        }
+        simple &= b >= '0' && b <= '9';
+        for (; b >= '0' && b <= '9'; b = read())
+        {
+            this.number.append((char) b);
+            if (mantissa != 0 || b != '0') digits++;
+            mantissa = mantissa * 10 + (b - '0');
+        }
+        if (b == '.')
+        {
+            this.number.append('.');
+            for (b = read(); b >= '0' && b <= '9'; b = read())
+            {
+                this.number.append((char) b);
+                if (mantissa != 0 || b != '0') digits++;
+                mantissa = mantissa * 10 + (b - '0');
+                exponent--;
+            }
+        }
+        if (b == 'E' || b == 'e')
+        {
+            this.number.append((char) b);
+            b = read();
+            boolean negativeExponent = b == '-';
+            if (negativeExponent || b == '+')
+            {
+                this.number.append((char) b);
+                b = read();
+            }
+            simple &= b >= '0' && b <= '9';
+            explicitExponent = 0;
+            for (; b >= '0' && b <= '9'; b = read())
+            {
+                this.number.append((char) b);
+                if (explicitExponent < 1000) explicitExponent = explicitExponent * 10 + (b - '0');
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        while (b != ';')
+        {
+            simple = false;
+            this.number.append((char) (b & 0xFF));
+            b = read();
+        }
 
-        pos = this.data.indexOf(';', this.pos + 2);
-        result = Double.valueOf(this.data.substring(this.pos + 2, pos));
-        this.pos = pos + 1;
-        return new Mixed(result);
+        if (simple && digits <= 15 && exponent >= -22 && exponent <= 22)
+        {
+            double result = mantissa;
+            result = exponent < 0 ? result / POWERS_OF_TEN[-exponent] : result * POWERS_OF_TEN[exponent];
+            return new Mixed(Double.valueOf(negative ? -result : result));
+        }
+        return new Mixed(Double.valueOf(this.number.toString()));
     }
 
 
@@ -196,13 +444,7 @@ public class Unserializer
 
     private Mixed unserializeReference()
     {
-        int index;
-        int pos;
-
-        pos = this.data.indexOf(';', this.pos + 2);
-        index = Integer.parseInt(this.data.substring(this.pos + 2, pos));
-        this.pos = pos + 1;
-        return (Mixed) this.history.get(index - 1);
+        return (Mixed) this.history.get(readInt(';') - 1);
     }
 
 
@@ -216,8 +458,9 @@ public class Unserializer
     {
         Boolean result;
 
-        result = Boolean.valueOf(this.data.charAt(this.pos + 2) == '1');
-        this.pos += 4;
+        skip(1);
+        result = Boolean.valueOf(read() == '1');
+        skip(1);
         return new Mixed(result);
     }
 
@@ -230,7 +473,7 @@ public class Unserializer
 
     private Mixed unserializeNull()
     {
-        this.pos += 2;
+        skip(1);
         return null;
     }
 
@@ -247,15 +490,13 @@ public class Unserializer
     {
         Mixed result;
         MixedArray array;
-        int pos;
         int max;
         int i;
         Object key, value;
 
-        pos = this.data.indexOf(':', this.pos + 2);
-        max = Integer.parseInt(this.data.substring(this.pos + 2, pos));
-        this.pos = pos + 2;
-        array = new MixedArray(max);
+        max = readInt(':');
+        skip(1);
+        array = new MixedArray(Math.max(0, Math.min(max, MAX_INITIAL_CAPACITY)));
         result = new Mixed(array);
         this.history.add(result);
         for (i = 0; i < max; i++)
@@ -265,27 +506,7 @@ public class Unserializer
             value = unserializeObject();
             array.put(key, value);
         }
-        this.pos++;
+        skip(1);
         return result;
     }
-
-
-    static String decode(String encoded, Charset charset)
-    {
-        try {
-            return new String(encoded.getBytes(charset), "ISO-8859-1");
-        } catch (UnsupportedEncodingException e) {
-            return encoded;
-        }
-    }
-
-
-    static String encode(String decoded, Charset charset)
-    {
-        try {
-            return new String(decoded.getBytes("ISO-8859-1"), charset);
-        } catch (UnsupportedEncodingException e) {
-            return decoded;
-        }
-    }
 }
@@ -0,0 +1,157 @@
+package com.ftec.utils.logging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Appends log messages to files from one background thread.
+ * Callers only put messages into {@link LogRingBuffer}; the writer drains it in batches, groups messages by file
+ * and appends every group with one write to a kept-open FileChannel.
+ * A file is rotated (renamed with timestamp suffix) when it grows over maxFileSize or is older than rotationIntervalMs.
+ */
+public class AsyncLogWriter {
+
+    private static final int BATCH_SIZE = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final LogRingBuffer<LogEntry> buffer;
+    private final long maxFileSize;
+    private final long rotationIntervalMs;
+    private final Map<Path, OpenFile> files = new HashMap<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public AsyncLogWriter(int capacity, long maxFileSize, long rotationIntervalMs) {
+        this.buffer = new LogRingBuffer<>(capacity);
+        this.maxFileSize = maxFileSize;
+        this.rotationIntervalMs = rotationIntervalMs;
+
+        this.thread = new Thread(this::run, "logger-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * @return {@code false} if the buffer is full and message was dropped
+     */
+    public boolean append(Path file, String message) {
+        boolean offered = buffer.offer(new LogEntry(file, message));
+        if (buffer.size() >= BATCH_SIZE) LockSupport.unpark(thread);
+        return offered;
+    }
+
+    private void run() {
+        while (running) {
+            if (!writeBatch()) LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+        while (writeBatch()) ;
+        closeAll();
+    }
+
+    private boolean writeBatch() {
+        Map<Path, StringBuilder> batch = new LinkedHashMap<>();
+        int drained = buffer.drain(entry -> batch.computeIfAbsent(entry.file, f -> new StringBuilder()).append(entry.message), BATCH_SIZE);
+
+        long dropped = buffer.takeDropped();
+        if (dropped > 0) System.err.println(new Date() + " logger buffer is full, " + dropped + " messages dropped");
+
+        batch.forEach(this::write);
+        return drained > 0;
+    }
+
+    private void write(Path path, CharSequence text) {
+        try {
+            OpenFile file = open(path);
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(text.toString());
+            while (bytes.hasRemaining()) file.channel.write(bytes);
+        } catch (IOException e) {
+            System.err.println(new Date() + " can't write log to " + path + ": " + e.getMessage());
+            close(path);
+        }
+    }
+
+    private OpenFile open(Path path) throws IOException {
+        OpenFile file = files.get(path);
+        if (file != null && needsRotation(file)) {
+            close(path);
+            rotate(path);
+            file = null;
+        }
+        if (file == null) {
+            if (path.getParent() != null) Files.createDirectories(path.getParent());
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            file = new OpenFile(channel, System.currentTimeMillis());
+            files.put(path, file);
+        }
+        return file;
+    }
+
+    private boolean needsRotation(OpenFile file) throws IOException {
+        return file.channel.size() >= maxFileSize || System.currentTimeMillis() - file.openedAt >= rotationIntervalMs;
+    }
+
+    private void rotate(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) == 0) return;
+
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String suffix = "." + new SimpleDateFormat("yyyy-MM-dd-HHmmss-SSS").format(new Date());
+        String rotated = dot > 0 ? name.substring(0, dot) + suffix + name.substring(dot) : name + suffix;
+        Files.move(path, path.resolveSibling(rotated));
+    }
+
+    private void close(Path path) {
+        OpenFile file = files.remove(path);
+        if (file == null) return;
+        try {
+            file.channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void closeAll() {
+        new ArrayList<>(files.keySet()).forEach(this::close);
+    }
+
+    /**
+     * Stops the writer after everything buffered so far is written.
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class LogEntry {
+        private final Path file;
+        private final String message;
+
+        private LogEntry(Path file, String message) {
+            this.file = file;
+            this.message = message;
+        }
+    }
+
+    private static class OpenFile {
+        private final FileChannel channel;
+        private final long openedAt;
+
+        private OpenFile(FileChannel channel, long openedAt) {
+            this.channel = channel;
+            this.openedAt = openedAt;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.ftec.utils.logging;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Deduplicates logged exceptions. Exceptions with the same class and top stack frames share a fingerprint;
+ * the full trace of a fingerprint is written once, repeats inside the window are only counted
+ * and reported as a "xN suppressed" summary when the window ends.
+ */
+public class ExceptionSink {
+
+    private static final int FINGERPRINT_FRAMES = 3;
+
+    private final LongSupplier windowMs;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public ExceptionSink(LongSupplier windowMs) {
+        this.windowMs = windowMs;
+    }
+
+    /**
+     * @return what should be written for this occurrence
+     */
+    public Occurrence record(Class<?> caller, String location, Exception e, long now) {
+        String key = fingerprint(e);
+        Counter counter = counters.computeIfAbsent(key, k -> new Counter(Integer.toHexString(k.hashCode()), caller, location, e, now));
+
+        synchronized (counter) {
+            counter.total++;
+            counter.lastSeen = now;
+            counter.lastMessage = e.getMessage();
+
+            if (counter.total == 1) return new Occurrence(true, null);
+            if (now - counter.windowStart < windowMs.getAsLong()) {
+                counter.suppressed++;
+                return new Occurrence(false, null);
+            }
+
+            // window is over: report what was suppressed, a flood that is still going on stays suppressed
+            String summary = counter.suppressed > 0 ? takeSummary(counter, now) : null;
+            if (summary != null) {
+                counter.suppressed = 1;
+                return new Occurrence(false, summary);
+            }
+            counter.windowStart = now;
+            return new Occurrence(true, null);
+        }
+    }
+
+    /**
+     * @return summaries of windows which are over and have suppressed occurrences, keyed by caller
+     */
+    public List<Summary> takeSummaries(long now) {
+        List<Summary> summaries = new ArrayList<>();
+        for (Counter counter : counters.values()) {
+            synchronized (counter) {
+                if (counter.suppressed > 0 && now - counter.windowStart >= windowMs.getAsLong()) {
+                    summaries.add(new Summary(counter.caller, takeSummary(counter, now)));
+                }
+            }
+        }
+        return summaries;
+    }
+
+    private String takeSummary(Counter counter, long now) {
+        String summary = "\n\n" + counter.location + " x" + counter.suppressed + " suppressed ["
+                + counter.id + "]\n" + counter.exceptionClass + ", message: " + counter.lastMessage + "\n";
+        counter.suppressed = 0;
+        counter.windowStart = now;
+        return summary;
+    }
+
+    public List<Map<String, Object>> getCounters() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Counter counter : counters.values()) {
+            synchronized (counter) {
+                Map<String, Object> map = new LinkedHashMap<>();
+                map.put("fingerprint", counter.id);
+                map.put("exception", counter.exceptionClass);
+                map.put("topFrames", counter.topFrames);
+                map.put("location", counter.location);
+                map.put("total", counter.total);
+                map.put("suppressed", counter.suppressed);
+                map.put("firstSeen", new Date(counter.firstSeen));
+                map.put("lastSeen", new Date(counter.lastSeen));
+                result.add(map);
+            }
+        }
+        result.sort(Comparator.comparing(m -> -(long) m.get("total")));
+        return result;
+    }
+
+    static String fingerprint(Exception e) {
+        StringBuilder key = new StringBuilder(e.getClass().getName());
+        for (String frame : topFrames(e)) key.append('|').append(frame);
+        return key.toString();
+    }
+
+    private static List<String> topFrames(Exception e) {
+        StackTraceElement[] trace = e.getStackTrace();
+        List<String> frames = new ArrayList<>();
+        for (int i = 0; i < Math.min(FINGERPRINT_FRAMES, trace.length); i++) frames.add(trace[i].toString());
+        return frames;
+    }
+
+    public static class Occurrence {
+        private final boolean writeTrace;
+        private final String summary;
+
+        private Occurrence(boolean writeTrace, String summary) {
+            this.writeTrace = writeTrace;
+            this.summary = summary;
+        }
+
+        public boolean isWriteTrace() {
+            return writeTrace;
+        }
+
+        /**
+         * @return summary of the previous window to write before anything else, or {@code null}
+         */
+        public String getSummary() {
+            return summary;
+        }
+    }
+
+    public static class Summary {
+        private final Class<?> caller;
+        private final String text;
+
+        private Summary(Class<?> caller, String text) {
+            this.caller = caller;
+            this.text = text;
+        }
+
+        public Class<?> getCaller() {
+            return caller;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    private static class Counter {
+        private final String id;
+        private final Class<?> caller;
+        private final String location;
+        private final String exceptionClass;
+        private final List<String> topFrames;
+        private final long firstSeen;
+        private String lastMessage;
+        private long windowStart;
+        private long lastSeen;
+        private long total;
+        private long suppressed;
+
+        private Counter(String id, Class<?> caller, String location, Exception e, long now) {
+            this.id = id;
+            this.caller = caller;
+            this.location = location;
+            this.exceptionClass = e.getClass().getName();
+            this.topFrames = topFrames(e);
+            this.lastMessage = e.getMessage();
+            this.firstSeen = now;
+            this.windowStart = now;
+        }
+    }
+}
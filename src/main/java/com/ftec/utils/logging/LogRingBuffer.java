@@ -0,0 +1,79 @@
+package com.ftec.utils.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer.
+ * Producers claim a slot with CAS on tail and publish the element into it; the consumer clears slots in order.
+ * When the buffer is full the element is dropped instead of blocking the caller.
+ */
+public class LogRingBuffer<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long head;
+
+    public LogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return {@code false} if buffer is full and element was dropped.
+     */
+    public boolean offer(T element) {
+        while (true) {
+            long t = tail.get();
+            if (t - head >= slots.length()) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            if (tail.compareAndSet(t, t + 1)) {
+                slots.lazySet((int) (t & mask), element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Passes up to {@code max} published elements to consumer. Must be called from one thread only.
+     *
+     * @return number of drained elements
+     */
+    public int drain(Consumer<T> consumer, int max) {
+        int drained = 0;
+        long h = head;
+        while (drained < max) {
+            int index = (int) (h & mask);
+            T element = slots.get(index);
+            // slot is claimed but not published yet, or buffer is empty
+            if (element == null) break;
+
+            slots.lazySet(index, null);
+            head = ++h;
+            consumer.accept(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    public boolean isEmpty() {
+        return head == tail.get();
+    }
+
+    public int size() {
+        return (int) (tail.get() - head);
+    }
+
+    /**
+     * @return number of elements dropped since the last call
+     */
+    public long takeDropped() {
+        return dropped.getAndSet(0);
+    }
+}
@@ -0,0 +1,79 @@
+package com.ftec.benchmarks;
+
+import com.ftec.resources.Resources;
+import com.ftec.services.EmailTemplates;
+import com.ftec.services.MailService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering of one campaign for 10k recipients: the old way (header + template + footer concatenation and
+ * String.replace per placeholder) against pre-parsed templates. Run main() with test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailTemplateBenchmark {
+
+    private static final int RECIPIENTS = 10000;
+
+    private EmailTemplates.Email email;
+    private String header;
+    private String template;
+    private String footer;
+    private List<Map<String, String>> recipients;
+
+    @Setup
+    public void setUp() {
+        EmailTemplates emailTemplates = new EmailTemplates(new Resources());
+        Locale locale = new Locale("en");
+        email = emailTemplates.get(MailService.Emails.ForgotPassword, locale);
+
+        template = email.renderText(Collections.emptyMap());
+        String html = email.renderHtml(Collections.emptyMap());
+        header = html.substring(0, html.indexOf(template));
+        footer = html.substring(header.length() + template.length());
+
+        recipients = new ArrayList<>(RECIPIENTS);
+        for (int i = 0; i < RECIPIENTS; i++) {
+            Map<String, String> params = new HashMap<>();
+            params.put("$Login$", "user" + i);
+            params.put("$Link$", "http://localhost:8080/restore?hash=" + UUID.randomUUID());
+            params.put("$LinkName$", "Restore password");
+            recipients.add(params);
+        }
+    }
+
+    @Benchmark
+    public void stringReplace(Blackhole blackhole) {
+        for (Map<String, String> params : recipients) {
+            String body = template;
+            for (String key : params.keySet()) {
+                body = body.replace(key, params.get(key));
+            }
+            blackhole.consume(header + body + footer);
+            blackhole.consume(body);
+        }
+    }
+
+    @Benchmark
+    public void preParsed(Blackhole blackhole) {
+        for (Map<String, String> params : recipients) {
+            blackhole.consume(email.renderHtml(params));
+            blackhole.consume(email.renderText(params));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(EmailTemplateBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,114 @@
+package com.ftec.benchmarks;
+
+import com.ftec.resources.Resources;
+import com.ftec.services.EmailTemplates;
+import com.ftec.services.MailService;
+import com.ftec.utils.local_sendpulse.restapi.pherialize.LegacySerializer;
+import com.ftec.utils.local_sendpulse.restapi.pherialize.Serializer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of smtp/emails payload (base64 html of a rendered template, text, sender and recipients):
+ * previous StringBuffer serializer against the new one, into a String and streamed.
+ * Run main() with test classpath; allocation rates are printed by the gc profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PherializeSerializerBenchmark {
+
+    private Map<String, Object> email;
+
+    @Setup
+    public void setUp() {
+        email = email();
+    }
+
+    /**
+     * smtp/emails payload of restore password email to 50 recipients.
+     */
+    static Map<String, Object> email() {
+        Map<String, String> params = new HashMap<>();
+        params.put("$Login$", "user");
+        params.put("$Link$", "http://localhost:8080/restore?hash=" + UUID.randomUUID());
+        params.put("$LinkName$", "Restore password");
+        EmailTemplates.Email template = new EmailTemplates(new Resources()).get(MailService.Emails.ForgotPassword, new Locale("en"));
+
+        Map<String, Object> from = new HashMap<>();
+        from.put("name", "Ftec");
+        from.put("email", "noreply@ftec.com");
+
+        List<Map<String, Object>> to = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Map<String, Object> receiver = new HashMap<>();
+            receiver.put("name", "Пользователь " + i);
+            receiver.put("email", "user" + i + "@mail.com");
+            to.add(receiver);
+        }
+
+        Map<String, Object> email = new HashMap<>();
+        email.put("html", Base64.getEncoder().encodeToString(template.renderHtml(params).getBytes(StandardCharsets.UTF_8)));
+        email.put("text", template.renderText(params));
+        email.put("subject", "Восстановление пароля");
+        email.put("from", from);
+        email.put("bcc", to);
+        return email;
+    }
+
+    @Benchmark
+    public String legacyStringBuffer() {
+        return new LegacySerializer().serialize(email);
+    }
+
+    @Benchmark
+    public String intoString() {
+        return new Serializer().serialize(email);
+    }
+
+    @Benchmark
+    public long streamed() throws IOException {
+        CountingAppendable out = new CountingAppendable();
+        new Serializer().serialize(email, out);
+        return out.count;
+    }
+
+    /**
+     * Stands for request body.
+     */
+    private static class CountingAppendable implements Appendable {
+        private long count;
+
+        @Override
+        public Appendable append(CharSequence csq) {
+            count += csq.length();
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            count += end - start;
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            count++;
+            return this;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PherializeSerializerBenchmark.class.getSimpleName()).addProfiler("gc").build()).run();
+    }
+}
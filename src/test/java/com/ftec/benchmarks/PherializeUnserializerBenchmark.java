@@ -0,0 +1,55 @@
+package com.ftec.benchmarks;
+
+import com.ftec.utils.local_sendpulse.restapi.pherialize.LegacyUnserializer;
+import com.ftec.utils.local_sendpulse.restapi.pherialize.Mixed;
+import com.ftec.utils.local_sendpulse.restapi.pherialize.Pherialize;
+import com.ftec.utils.local_sendpulse.restapi.pherialize.Unserializer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unserialization of smtp/emails payload: previous indexOf/substring unserializer against the cursor-based one,
+ * from a String and streamed from bytes. Run main() with test classpath; allocation rates are printed by the gc profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PherializeUnserializerBenchmark {
+
+    private String serialized;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        serialized = Pherialize.serialize(PherializeSerializerBenchmark.email());
+        bytes = serialized.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Mixed legacySubstring() {
+        return new LegacyUnserializer(serialized).unserializeObject();
+    }
+
+    @Benchmark
+    public Mixed fromString() {
+        return new Unserializer(serialized).unserializeObject();
+    }
+
+    @Benchmark
+    public Mixed fromStream() {
+        return new Unserializer(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8).unserializeObject();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PherializeUnserializerBenchmark.class.getSimpleName()).addProfiler("gc").build()).run();
+    }
+}
@@ -0,0 +1,84 @@
+package com.ftec.benchmarks;
+
+import com.ftec.utils.local_sendpulse.restapi.Sendpulse;
+import com.ftec.utils.local_sendpulse.restapi.SendpulseStub;
+import com.ftec.utils.local_sendpulse.restapi.SendpulseTransport;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of smtp/emails calls against local stub server from 8 threads:
+ * shared pooled Sendpulse client against a new HttpURLConnection per call, as Sendpulse did before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class SendpulseTransportBenchmark {
+
+    private SendpulseStub stub;
+    private Sendpulse sendpulse;
+    private String token;
+
+    @Setup
+    public void setUp() throws IOException {
+        stub = new SendpulseStub();
+        sendpulse = new Sendpulse("id", "secret", stub.getUrl(), new SendpulseTransport(8, 1000, 5000));
+        sendpulse.smtpSendMail(email());
+        token = "token-" + stub.getIssuedTokens();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        sendpulse.close();
+        stub.close();
+    }
+
+    private static Map<String, Object> email() {
+        Map<String, Object> email = new HashMap<>();
+        email.put("html", "<p>Hello</p>");
+        email.put("text", "Hello");
+        email.put("subject", "Subject");
+        return email;
+    }
+
+    @Benchmark
+    public Object pooledClient() {
+        return sendpulse.smtpSendMail(email());
+    }
+
+    @Benchmark
+    public Object connectionPerRequest() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(stub.getUrl() + "/smtp/emails").openConnection();
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Authorization", "Bearer " + token);
+        connection.setDoOutput(true);
+        try (Writer writer = new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8)) {
+            writer.write("email=stub");
+        }
+        StringBuffer response = new StringBuffer();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) response.append(line);
+        }
+        connection.disconnect();
+        return response;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SendpulseTransportBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,81 @@
+package com.ftec.benchmarks;
+
+import com.ftec.configs.ApplicationConfig;
+import com.ftec.resources.Resources;
+import com.ftec.services.Implementations.SignedTokenServiceImpl;
+import com.ftec.services.Implementations.TokenServiceImpl;
+import com.ftec.services.TokenCache;
+import com.ftec.repositories.UserDAO;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares validation of DB backed tokens (with and without token cache) and signed tokens.
+ * Needs the same database as tests (jenkins-tests profile). Run main() with test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenServiceBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private TokenServiceImpl dbTokenService;
+    private TokenCache tokenCache;
+    private SignedTokenServiceImpl signedTokenService;
+
+    private String dbToken;
+    private String signedToken;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(ApplicationConfig.class)
+                .profiles("jenkins-tests", "test")
+                .web(WebApplicationType.NONE)
+                .run();
+
+        dbTokenService = context.getBean(TokenServiceImpl.class);
+        tokenCache = context.getBean(TokenCache.class);
+
+        Resources resources = new Resources();
+        resources.setTokenSecret("benchmark_secret");
+        signedTokenService = new SignedTokenServiceImpl(context.getBean(UserDAO.class), resources);
+
+        dbToken = dbTokenService.createSaveAndGetNewToken(1L);
+        signedToken = signedTokenService.createSaveAndGetNewToken(1L);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void dbTokenFromCache() {
+        dbTokenService.processToken(dbToken);
+    }
+
+    @Benchmark
+    public void dbTokenFromDB() {
+        tokenCache.evict(dbToken);
+        dbTokenService.processToken(dbToken);
+    }
+
+    @Benchmark
+    public void signedToken() {
+        signedTokenService.processToken(signedToken);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TokenServiceBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -8,7 +8,9 @@ import com.ftec.services.Implementations.UserServiceImpl;
 import com.ftec.services.interfaces.AuthorizationService;
 import com.ftec.services.interfaces.RegistrationService;
 import com.ftec.services.interfaces.TokenService;
+import com.ftec.utils.AsyncMvc;
 import com.ftec.utils.EntityGenerator;
+import com.ftec.utils.PasswordUtils;
 import org.json.JSONObject;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -24,6 +26,7 @@ import org.springframework.test.web.servlet.ResultHandler;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -67,13 +70,13 @@ public class AuthorizationControllerTest {
         payload.put("username", username);
         payload.put("password", pass);
 
-        mvc.perform(post(AuthorizationController.AUTHORIZATION_URL)
+        AsyncMvc.perform(mvc, post(AuthorizationController.AUTHORIZATION_URL)
                 .contentType(MediaType.APPLICATION_JSON_VALUE)
                 .content(payload.toString())).andExpect(status().is(200));
 
         payload.put("password", "invalidPass");
 
-        MvcResult mvcResult1 = mvc.perform(MockMvcRequestBuilders.post("http://localhost:8080/login")
+        MvcResult mvcResult1 = AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("http://localhost:8080/login")
                 .content(payload.toString())
                 .contentType(MediaType.APPLICATION_JSON)
                 .accept(MediaType.APPLICATION_JSON))
@@ -82,7 +85,7 @@ public class AuthorizationControllerTest {
         payload.put("username", "invalidLog");
         payload.put("password", pass);
 
-        MvcResult mvcResult2 = mvc.perform(MockMvcRequestBuilders.post("http://localhost:8080/login")
+        MvcResult mvcResult2 = AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("http://localhost:8080/login")
                 .content(payload.toString())
                 .contentType(MediaType.APPLICATION_JSON)
                 .accept(MediaType.APPLICATION_JSON))
@@ -97,6 +100,25 @@ public class AuthorizationControllerTest {
 
     }
 
+    @Test
+    public void legacyPasswordMigratedOnLogin() throws Exception {
+        User u = EntityGenerator.getNewUser();
+        String pass = u.getPassword();
+        u.setTwoStepVerification(false);
+        u.setPassword(PasswordUtils.generateSecurePassword(pass, u.getSalt()));
+        userDAO.save(u);
+
+        JSONObject payload = new JSONObject();
+        payload.put("username", u.getUsername());
+        payload.put("password", pass);
+
+        AsyncMvc.perform(mvc, post(AuthorizationController.AUTHORIZATION_URL)
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(payload.toString())).andExpect(status().is(200));
+
+        assertTrue(userDAO.findById(u.getId()).get().getPassword().startsWith("pbkdf2_sha256$"));
+    }
+
     @Test
     public void authWithout2FaCode() throws Exception {
 
@@ -111,7 +133,7 @@ public class AuthorizationControllerTest {
         payload.put("username", username);
         payload.put("password", pass);
 
-        MvcResult mvcResult = mvc.perform(MockMvcRequestBuilders.post("http://localhost:8080/login")
+        MvcResult mvcResult = AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("http://localhost:8080/login")
                 .content(payload.toString())
                 .contentType(MediaType.APPLICATION_JSON)
                 .accept(MediaType.APPLICATION_JSON))
@@ -134,7 +156,7 @@ public class AuthorizationControllerTest {
         payload.put("password", pass);
         payload.put("code", "with_test_pofile_its_ok");
 
-        MvcResult mvcResult = mvc.perform(MockMvcRequestBuilders.post("http://localhost:8080/login")
+        MvcResult mvcResult = AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("http://localhost:8080/login")
                 .content(payload.toString())
                 .contentType(MediaType.APPLICATION_JSON)
                 .accept(MediaType.APPLICATION_JSON))
@@ -9,9 +9,10 @@ import com.ftec.repositories.UserDAO;
 import com.ftec.resources.Resources;
 import com.ftec.services.interfaces.ChangeSettingsService;
 import com.ftec.services.interfaces.RegistrationService;
+import com.ftec.services.interfaces.PasswordHasher;
 import com.ftec.services.interfaces.TokenService;
+import com.ftec.utils.AsyncMvc;
 import com.ftec.utils.EntityGenerator;
-import com.ftec.utils.PasswordUtils;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -51,6 +52,9 @@ public class ChangeUserDataTest {
 	@Autowired
 	UserDAO userDAO;
 
+	@Autowired
+	PasswordHasher passwordHasher;
+
 	private ObjectMapper objectMapper = new ObjectMapper();
 
 
@@ -65,12 +69,12 @@ public class ChangeUserDataTest {
 		updatedUserData.setPassword("neWStrong123");
 		updatedUserData.setEmail("new_email@gmail.com");
 
-		changeSettingsService.updatePreferences(updatedUserData, id);
+		changeSettingsService.updatePreferences(updatedUserData, id, passwordHasher.hash(updatedUserData.getPassword()));
 		Optional<User> user = userDAO.findById(id);
 		if(!user.isPresent()) throw new NullPointerException();
 		User userAfterChange = user.get();
 
-		assert userAfterChange.getPassword().equals(PasswordUtils.generateSecurePassword("neWStrong123", u.getSalt()));
+		assert passwordHasher.matches("neWStrong123", userAfterChange.getPassword(), u.getSalt());
 		assert userAfterChange.getEmail().equals("new_email@gmail.com");
 		assert !userAfterChange.getTwoStepVerification();
 	}
@@ -80,7 +84,7 @@ public class ChangeUserDataTest {
 		User u = EntityGenerator.getNewUser();
 		registrationService.registerNewUserAccount(u);
 
-		changeSettingsService.updatePreferences(new UserUpdate(), u.getId());
+		changeSettingsService.updatePreferences(new UserUpdate(), u.getId(), null);
 
 		Optional<User> user = userDAO.findById(u.getId());
 		if(!user.isPresent()) throw new NullPointerException();
@@ -104,7 +108,7 @@ public class ChangeUserDataTest {
 		UserUpdate userUpdate = new UserUpdate();
 		userUpdate.setEmail("invalidEmail");
 
-		mvc.perform(MockMvcRequestBuilders.post("http://localhost:8080/changeUserSetting")
+		AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("http://localhost:8080/changeUserSetting")
 				.content( objectMapper.writeValueAsString(userUpdate)).contentType(MediaType.APPLICATION_JSON)
 				.accept(MediaType.APPLICATION_JSON)
 				.header(TokenService.TOKEN_NAME, token))
@@ -112,7 +116,7 @@ public class ChangeUserDataTest {
 
 		userUpdate.setEmail("validEmail@Gmail.com");
 
-		mvc.perform(MockMvcRequestBuilders.post("http://localhost:8080/changeUserSetting")
+		AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("http://localhost:8080/changeUserSetting")
 				.content( objectMapper.writeValueAsString(userUpdate)).contentType(MediaType.APPLICATION_JSON)
 				.accept(MediaType.APPLICATION_JSON)
 				.header(TokenService.TOKEN_NAME, token))
@@ -121,7 +125,7 @@ public class ChangeUserDataTest {
 		userUpdate.setPassword("invalidpass");
 		userUpdate.setEmail(null);
 
-		mvc.perform(MockMvcRequestBuilders.post("http://localhost:8080/changeUserSetting")
+		AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("http://localhost:8080/changeUserSetting")
 				.content( objectMapper.writeValueAsString(userUpdate)).contentType(MediaType.APPLICATION_JSON)
 				.accept(MediaType.APPLICATION_JSON)
 				.header(TokenService.TOKEN_NAME, token))
@@ -130,11 +134,12 @@ public class ChangeUserDataTest {
 		userUpdate.setPassword("validPass1231");
 		userUpdate.setEmail(null);
 
-		mvc.perform(MockMvcRequestBuilders.post("http://localhost:8080/changeUserSetting")
+		AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("http://localhost:8080/changeUserSetting")
 				.content( objectMapper.writeValueAsString(userUpdate)).contentType(MediaType.APPLICATION_JSON)
 				.accept(MediaType.APPLICATION_JSON)
 				.header(TokenService.TOKEN_NAME, token))
 				.andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {}).andExpect(status().isOk());
+		assert passwordHasher.matches("validPass1231", userDAO.findById(u.getId()).get().getPassword(), u.getSalt());
 
 		userDAO.deleteAll();
 	}
@@ -155,7 +160,7 @@ public class ChangeUserDataTest {
 
 		userUpdate.setEmail("dublicate_email@wda.net");
 
-		mvc.perform(MockMvcRequestBuilders.post("http://localhost:8080/changeUserSetting")
+		AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("http://localhost:8080/changeUserSetting")
 				.content( objectMapper.writeValueAsString(userUpdate)).contentType(MediaType.APPLICATION_JSON)
 				.accept(MediaType.APPLICATION_JSON)
 				.header(TokenService.TOKEN_NAME, token))
@@ -7,6 +7,7 @@ import com.ftec.repositories.ReferralDAO;
 import com.ftec.repositories.UserDAO;
 import com.ftec.resources.Resources;
 import com.ftec.services.interfaces.ReferralService;
+import com.ftec.utils.AsyncMvc;
 import com.ftec.utils.EntityGenerator;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -53,7 +54,7 @@ public class ReferralTest {
         //Saving User without referrer Id (Main users)
         RegistrationController.UserRegistration userRegWithoutRef = EntityGenerator.getNewRegisrtUser();
 
-        mvc.perform(MockMvcRequestBuilders.post("/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("/registration").
                 content(objectMapper.writeValueAsString(userRegWithoutRef)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {
@@ -66,7 +67,7 @@ public class ReferralTest {
         RegistrationController.UserRegistration userRegWithRef = EntityGenerator.getNewRegisrtUser();
         userRegWithRef.setReferrerId(userWithoutRef.getId());
 
-        mvc.perform(MockMvcRequestBuilders.post("/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("/registration").
                 content(objectMapper.writeValueAsString(userRegWithRef)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {
@@ -86,7 +87,7 @@ public class ReferralTest {
         //Saving User without referrer Id (Main users)
         RegistrationController.UserRegistration userRegWithoutRef = EntityGenerator.getNewRegisrtUser();
 
-        mvc.perform(MockMvcRequestBuilders.post("/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("/registration").
                 content(objectMapper.writeValueAsString(userRegWithoutRef)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {
@@ -99,7 +100,7 @@ public class ReferralTest {
         RegistrationController.UserRegistration userRegWithRef = EntityGenerator.getNewRegisrtUser();
         userRegWithRef.setReferrerId(userWithoutRef.getId());
 
-        mvc.perform(MockMvcRequestBuilders.post("/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("/registration").
                 content(objectMapper.writeValueAsString(userRegWithRef)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {
@@ -112,7 +113,7 @@ public class ReferralTest {
         RegistrationController.UserRegistration userRegWithRef2 = EntityGenerator.getNewRegisrtUser();
         userRegWithRef2.setReferrerId(userWithRef1.getId());
 
-        mvc.perform(MockMvcRequestBuilders.post("/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("/registration").
                 content(objectMapper.writeValueAsString(userRegWithRef2)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {
@@ -132,7 +133,7 @@ public class ReferralTest {
         //Saving User without referrer Id (Main users)
         RegistrationController.UserRegistration userRegWithoutRef = EntityGenerator.getNewRegisrtUser();
 
-        mvc.perform(MockMvcRequestBuilders.post("/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("/registration").
                 content(objectMapper.writeValueAsString(userRegWithoutRef)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {
@@ -145,7 +146,7 @@ public class ReferralTest {
         RegistrationController.UserRegistration userRegWithRef = EntityGenerator.getNewRegisrtUser();
         userRegWithRef.setReferrerId(userWithoutRef.getId());
 
-        mvc.perform(MockMvcRequestBuilders.post("/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("/registration").
                 content(objectMapper.writeValueAsString(userRegWithRef)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {
@@ -158,7 +159,7 @@ public class ReferralTest {
         RegistrationController.UserRegistration userRegWithRef2 = EntityGenerator.getNewRegisrtUser();
         userRegWithRef2.setReferrerId(userWithRef1.getId());
 
-        mvc.perform(MockMvcRequestBuilders.post("/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("/registration").
                 content(objectMapper.writeValueAsString(userRegWithRef2)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {
@@ -171,7 +172,7 @@ public class ReferralTest {
         RegistrationController.UserRegistration userRegWithRef3 = EntityGenerator.getNewRegisrtUser();
         userRegWithRef3.setReferrerId(userWithRef2.getId());
 
-        mvc.perform(MockMvcRequestBuilders.post("/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("/registration").
                 content(objectMapper.writeValueAsString(userRegWithRef3)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {
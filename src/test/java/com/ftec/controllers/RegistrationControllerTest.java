@@ -5,6 +5,7 @@ import com.ftec.configs.ApplicationConfig;
 import com.ftec.repositories.UserDAO;
 import com.ftec.resources.Resources;
 import com.ftec.services.Implementations.UserServiceImpl;
+import com.ftec.utils.AsyncMvc;
 import com.ftec.utils.EntityGenerator;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -43,7 +44,7 @@ public class RegistrationControllerTest {
     public void createValidUser() throws Exception {
         RegistrationController.UserRegistration userRegistration = EntityGenerator.getNewRegisrtUser();
 
-        mvc.perform(MockMvcRequestBuilders.post("/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("/registration").
                 content(objectMapper.writeValueAsString(userRegistration)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {}).andExpect(status().is(200));
@@ -60,12 +61,12 @@ public class RegistrationControllerTest {
         assertFalse(userDAO.findByUsername(userRegistration1.getUsername()).isPresent());
         assertFalse(userDAO.findByUsername(userRegistration2.getUsername()).isPresent());
 
-        mvc.perform(MockMvcRequestBuilders.post("http://localhost:8080/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("http://localhost:8080/registration").
                 content(objectMapper.writeValueAsString(userRegistration1)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().is(200));
 
-        mvc.perform(MockMvcRequestBuilders.post("http://localhost:8080/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("http://localhost:8080/registration").
                 content(objectMapper.writeValueAsString(userRegistration2)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().is(200));
@@ -83,7 +84,7 @@ public class RegistrationControllerTest {
         userRegistration.setEmail("NullUsername_@gmail.com");
 
         //should be status 400
-        mvc.perform(MockMvcRequestBuilders.post("http://localhost:8080/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("http://localhost:8080/registration").
                 content(objectMapper.writeValueAsString(userRegistration)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {
@@ -100,7 +101,7 @@ public class RegistrationControllerTest {
         userRegistration.setEmail("ShortUsername_@gmail.com");
 
         //should be status 400
-        mvc.perform(MockMvcRequestBuilders.post("http://localhost:8080/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("http://localhost:8080/registration").
                 content(objectMapper.writeValueAsString(userRegistration)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {
@@ -114,14 +115,14 @@ public class RegistrationControllerTest {
         RegistrationController.UserRegistration userRegistration = EntityGenerator.getNewRegisrtUser();
         String userName = userRegistration.getUsername();
 
-        mvc.perform(MockMvcRequestBuilders.post("http://localhost:8080/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("http://localhost:8080/registration").
                 content(objectMapper.writeValueAsString(userRegistration)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {
                 }).andExpect(status().is(200));
 
         //should be status 400
-        mvc.perform(MockMvcRequestBuilders.post("http://localhost:8080/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("http://localhost:8080/registration").
                 content(objectMapper.writeValueAsString(userRegistration)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {
@@ -138,7 +139,7 @@ public class RegistrationControllerTest {
         userRegistration.setEmail("NullPassword_@gmail.com");
 
         //should be status 400
-        mvc.perform(MockMvcRequestBuilders.post("http://localhost:8080/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("http://localhost:8080/registration").
                 content(objectMapper.writeValueAsString(userRegistration)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {
@@ -155,7 +156,7 @@ public class RegistrationControllerTest {
         userRegistration.setEmail("ShortPassword_@gmail.com");
 
         //should be status 400
-        mvc.perform(MockMvcRequestBuilders.post("http://localhost:8080/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("http://localhost:8080/registration").
                 content(objectMapper.writeValueAsString(userRegistration)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {
@@ -172,7 +173,7 @@ public class RegistrationControllerTest {
         userRegistration.setEmail("WrongPatternPass_@gmail.com");
 
         //should be status 400
-        mvc.perform(MockMvcRequestBuilders.post("http://localhost:8080/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("http://localhost:8080/registration").
                 content(objectMapper.writeValueAsString(userRegistration)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {
@@ -189,7 +190,7 @@ public class RegistrationControllerTest {
         userRegistration.setEmail(null);
 
         //should be status 400
-        mvc.perform(MockMvcRequestBuilders.post("http://localhost:8080/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("http://localhost:8080/registration").
                 content(objectMapper.writeValueAsString(userRegistration)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {
@@ -206,7 +207,7 @@ public class RegistrationControllerTest {
         userRegistration.setEmail("VeryVeryVeryVeryVeryVeryVeryLong@gmail.com");
 
         //should be status 400
-        mvc.perform(MockMvcRequestBuilders.post("http://localhost:8080/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("http://localhost:8080/registration").
                 content(objectMapper.writeValueAsString(userRegistration)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {
@@ -229,14 +230,14 @@ public class RegistrationControllerTest {
         userRegistration1.setPassword("Strongpass1");
         userRegistration1.setEmail(email);
 
-        mvc.perform(MockMvcRequestBuilders.post("http://localhost:8080/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("http://localhost:8080/registration").
                 content(objectMapper.writeValueAsString(userRegistration1)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {
                 }).andExpect(status().is(200));
 
         //should be status 400
-        mvc.perform(MockMvcRequestBuilders.post("http://localhost:8080/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("http://localhost:8080/registration").
                 content(objectMapper.writeValueAsString(userRegistration2)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {
@@ -10,6 +10,7 @@ import com.ftec.repositories.UserDAO;
 import com.ftec.resources.Resources;
 import com.ftec.resources.enums.TutorialSteps;
 import com.ftec.services.interfaces.TokenService;
+import com.ftec.utils.AsyncMvc;
 import com.ftec.utils.EntityGenerator;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -57,7 +58,7 @@ public class AuthorizationTest {
         String username = user.getUsername();
         String password = user.getPassword();
 
-		MvcResult result = mvc.perform(post("/registration")
+		MvcResult result = AsyncMvc.perform(mvc, post("/registration")
 				.contentType(MediaType.APPLICATION_JSON_VALUE)
 				.content(objectMapper.writeValueAsString(user)))
 				.andExpect(status().is(200)).andReturn();
@@ -77,17 +78,17 @@ public class AuthorizationTest {
 				.andExpect(status().is(200)).andReturn().getResponse().getContentAsString();
 
 		//with removed token
-        mvc.perform(post(ChangeSettingController.CHANGE_USER_SETTING_URL)
+        AsyncMvc.perform(mvc, post(ChangeSettingController.CHANGE_USER_SETTING_URL)
                 .header(TokenService.TOKEN_NAME,token)
         ).andExpect(status().is(403)).andDo(Resources.doPrintStatic ? print() : (ResultHandler) r -> {});
 
         //with invalid token
-        mvc.perform(post(ChangeSettingController.CHANGE_USER_SETTING_URL)
+        AsyncMvc.perform(mvc, post(ChangeSettingController.CHANGE_USER_SETTING_URL)
                 .header(TokenService.TOKEN_NAME,"23_DWWDAAWDDWA")
         ).andExpect(status().is(403)).andDo(Resources.doPrintStatic ? print() : (ResultHandler) r -> {});
 
         //without token
-        mvc.perform(post(ChangeSettingController.CHANGE_USER_SETTING_URL)
+        AsyncMvc.perform(mvc, post(ChangeSettingController.CHANGE_USER_SETTING_URL)
         ).andExpect(status().is(403)).andDo(Resources.doPrintStatic ? print() : (ResultHandler) r -> {});
 
         JSONObject jsonLogoutRes = new JSONObject(logoutResult);
@@ -97,7 +98,7 @@ public class AuthorizationTest {
 		payload.put("username",invalidLogin);
 		payload.put("password",invalidPassword);
 
-		String invalidCredentialsAnswer = mvc.perform(post(AuthorizationController.AUTHORIZATION_URL)
+		String invalidCredentialsAnswer = AsyncMvc.perform(mvc, post(AuthorizationController.AUTHORIZATION_URL)
                 .contentType(MediaType.APPLICATION_JSON_VALUE)
 				.content(payload.toString())).andExpect(status().is(403)).andReturn().getResponse().getContentAsString();
 
@@ -107,7 +108,7 @@ public class AuthorizationTest {
 
 		payload.put("username",username);
 		payload.put("password",password);
-        MvcResult resultLogin = mvc.perform(post(AuthorizationController.AUTHORIZATION_URL)
+        MvcResult resultLogin = AsyncMvc.perform(mvc, post(AuthorizationController.AUTHORIZATION_URL)
                 .contentType(MediaType.APPLICATION_JSON_VALUE)
                 .content(payload.toString())).andExpect(status().is(200)).andReturn();
 
@@ -118,7 +119,7 @@ public class AuthorizationTest {
 
         assertFalse(userDAO.findByUsername(username).get().getTwoStepVerification());
 
-        mvc.perform(post(ChangeSettingController.CHANGE_USER_SETTING_URL)
+        AsyncMvc.perform(mvc, post(ChangeSettingController.CHANGE_USER_SETTING_URL)
                 .header(TokenService.TOKEN_NAME,tokenAfterLogin)
                 .contentType(MediaType.APPLICATION_JSON_VALUE)
                 .content(objectMapper.writeValueAsString(updateSetting))
@@ -133,7 +134,7 @@ public class AuthorizationTest {
         assertFalse(tokenService.findByToken(tokenAfterLogin).isPresent());
 
         //null 2fa
-        String contentOfNull2fa = mvc.perform(post(AuthorizationController.AUTHORIZATION_URL)
+        String contentOfNull2fa = AsyncMvc.perform(mvc, post(AuthorizationController.AUTHORIZATION_URL)
                 .contentType(MediaType.APPLICATION_JSON_VALUE)
                 .content(payload.toString())).andExpect(status().is(403)).andReturn().getResponse().getContentAsString();
 
@@ -141,7 +142,7 @@ public class AuthorizationTest {
 
         payload.put("code","");
         //empty 2fa
-        String contentOfEmpty2fa = mvc.perform(post(AuthorizationController.AUTHORIZATION_URL)
+        String contentOfEmpty2fa = AsyncMvc.perform(mvc, post(AuthorizationController.AUTHORIZATION_URL)
                 .contentType(MediaType.APPLICATION_JSON_VALUE)
                 .content(payload.toString()))
                 .andExpect(status().is(403)).andReturn().getResponse().getContentAsString();
@@ -151,7 +152,7 @@ public class AuthorizationTest {
         payload.put("code","123sad");
 
         //any 2fa (should works with profile test)
-        String contentOfAny2Fa = mvc.perform(post(AuthorizationController.AUTHORIZATION_URL)
+        String contentOfAny2Fa = AsyncMvc.perform(mvc, post(AuthorizationController.AUTHORIZATION_URL)
                 .contentType(MediaType.APPLICATION_JSON_VALUE)
                 .content(payload.toString()))
                 .andExpect(status().is(200)).andReturn().getResponse().getContentAsString();
@@ -9,6 +9,7 @@ import com.ftec.repositories.UserDAO;
 import com.ftec.resources.Resources;
 import com.ftec.resources.enums.ConfirmScope;
 import com.ftec.services.interfaces.RegistrationService;
+import com.ftec.utils.AsyncMvc;
 import com.ftec.utils.EntityGenerator;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -56,7 +57,7 @@ public class ConfirmEmailTest {
         registration.setUsername(user.getUsername());
         registration.setPassword(user.getPassword());
 
-        mvc.perform(post("/registration")
+        AsyncMvc.perform(mvc, post("/registration")
                 .contentType(MediaType.APPLICATION_JSON_VALUE)
                 .content(mapper.writeValueAsString(registration)))
                 .andExpect(status().is(200)).andReturn();
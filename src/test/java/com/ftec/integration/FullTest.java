@@ -13,6 +13,7 @@ import com.ftec.resources.enums.ConfirmScope;
 import com.ftec.resources.enums.TicketStatus;
 import com.ftec.resources.enums.TutorialSteps;
 import com.ftec.services.interfaces.*;
+import com.ftec.utils.AsyncMvc;
 import com.ftec.utils.EntityGenerator;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -71,7 +72,7 @@ public class FullTest {
         //registration
         User user = EntityGenerator.getNewUser();
 
-        MvcResult result = mvc.perform(post("/registration")
+        MvcResult result = AsyncMvc.perform(mvc, post("/registration")
                 .contentType(MediaType.APPLICATION_JSON_VALUE)
                 .content(mapper.writeValueAsString(user)))
                 .andExpect(status().is(200)).andReturn();
@@ -98,7 +99,7 @@ public class FullTest {
         userAuth.put("password", user.getPassword());
         userAuth.put("username", user.getUsername());
 
-        MvcResult result2 = mvc.perform(post(AuthorizationController.AUTHORIZATION_URL)
+        MvcResult result2 = AsyncMvc.perform(mvc, post(AuthorizationController.AUTHORIZATION_URL)
                 .contentType(MediaType.APPLICATION_JSON_VALUE)
                 .content(userAuth.toString())
         ).andExpect(status().is(200)).andReturn();
@@ -112,7 +113,7 @@ public class FullTest {
         ChangeSettingController.UserUpdate updateSetting = new ChangeSettingController.UserUpdate();
         updateSetting.setPassword("new_STRONG_pass123");
 
-        mvc.perform(post(ChangeSettingController.CHANGE_USER_SETTING_URL)
+        AsyncMvc.perform(mvc, post(ChangeSettingController.CHANGE_USER_SETTING_URL)
                 .header(TokenService.TOKEN_NAME, token2)
                 .contentType(MediaType.APPLICATION_JSON_VALUE)
                 .content(mapper.writeValueAsString(updateSetting))
@@ -126,7 +127,7 @@ public class FullTest {
         userAuth2.put("password", user.getPassword());
         userAuth2.put("username", user.getUsername());
 
-        MvcResult result3 = mvc.perform(post(AuthorizationController.AUTHORIZATION_URL)
+        MvcResult result3 = AsyncMvc.perform(mvc, post(AuthorizationController.AUTHORIZATION_URL)
                 .contentType(MediaType.APPLICATION_JSON_VALUE)
                 .content(userAuth2.toString())
         ).andExpect(status().is(200)).andDo(print()).andReturn();
@@ -187,7 +188,7 @@ public class FullTest {
 
         String hash = confirmDataDAO.findByUserIdAndScope(user.getId(), ConfirmScope.RestorePass).get().getHash();
 
-        mvc.perform(post("/changePass")
+        AsyncMvc.perform(mvc, post("/changePass")
                 .contentType(MediaType.APPLICATION_JSON_VALUE)
                 .param("hash", hash)
                 .param("new_pass", new_raw_pass))
@@ -197,7 +198,7 @@ public class FullTest {
         JSONObject userAuth3 = new JSONObject();
         userAuth3.put("password", new_raw_pass);
         userAuth3.put("username", user.getUsername());
-        mvc.perform(post(AuthorizationController.AUTHORIZATION_URL)
+        AsyncMvc.perform(mvc, post(AuthorizationController.AUTHORIZATION_URL)
                 .contentType(MediaType.APPLICATION_JSON_VALUE)
                 .content(userAuth3.toString())
         ).andExpect(status().is(200));
@@ -230,7 +231,7 @@ public class FullTest {
         //Saving User without referrer Id (Main users)
         RegistrationController.UserRegistration userRegWithoutRef = EntityGenerator.getNewRegisrtUser();
 
-        mvc.perform(MockMvcRequestBuilders.post("/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("/registration").
                 content(mapper.writeValueAsString(userRegWithoutRef)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {
@@ -243,7 +244,7 @@ public class FullTest {
         RegistrationController.UserRegistration userRegWithRef = EntityGenerator.getNewRegisrtUser();
         userRegWithRef.setReferrerId(userWithoutRef.getId());
 
-        mvc.perform(MockMvcRequestBuilders.post("/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("/registration").
                 content(mapper.writeValueAsString(userRegWithRef)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {
@@ -257,7 +258,7 @@ public class FullTest {
         RegistrationController.UserRegistration userRegWithRef2 = EntityGenerator.getNewRegisrtUser();
         userRegWithRef2.setReferrerId(userWithRef1.getId());
 
-        mvc.perform(MockMvcRequestBuilders.post("/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("/registration").
                 content(mapper.writeValueAsString(userRegWithRef2)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {
@@ -271,7 +272,7 @@ public class FullTest {
         RegistrationController.UserRegistration userRegWithRef3 = EntityGenerator.getNewRegisrtUser();
         userRegWithRef3.setReferrerId(userWithRef2.getId());
 
-        mvc.perform(MockMvcRequestBuilders.post("/registration").
+        AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("/registration").
                 content(mapper.writeValueAsString(userRegWithRef3)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {
@@ -8,9 +8,10 @@ import com.ftec.repositories.UserDAO;
 import com.ftec.resources.Resources;
 import com.ftec.resources.enums.ConfirmScope;
 import com.ftec.services.interfaces.RegistrationService;
+import com.ftec.services.interfaces.PasswordHasher;
 import com.ftec.services.interfaces.TokenService;
+import com.ftec.utils.AsyncMvc;
 import com.ftec.utils.EntityGenerator;
-import com.ftec.utils.PasswordUtils;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -46,6 +47,9 @@ public class RestorePassTest {
     @Autowired
     TokenService tokenService;
 
+    @Autowired
+    PasswordHasher passwordHasher;
+
     @Test
     public void fullTest() throws Exception {
         userDAO.deleteByEmail(Resources.sendToStatic != null ? Resources.sendToStatic : "ndmawjkdnawjk@gmail.com");
@@ -67,7 +71,7 @@ public class RestorePassTest {
         String hash = confirmDataDAO.findByUserIdAndScope(u.getId(), ConfirmScope.RestorePass).get().getHash();
 
         String new_clean_pass = "newStrongPass123";
-        mvc.perform(post("/changePass")
+        AsyncMvc.perform(mvc, post("/changePass")
                 .contentType(MediaType.APPLICATION_JSON_VALUE)
                 .param("hash", hash)
                 .param("new_pass", new_clean_pass))
@@ -78,7 +82,7 @@ public class RestorePassTest {
         String new_pass = userDAO.findById(u.getId()).get().getPassword();
 
         assertNotEquals(old_pass,new_pass);
-        assertEquals(new_pass,PasswordUtils.encodeUserPassword(new_clean_pass, userDAO.findById(u.getId()).get().getSalt()));
+        assertTrue(passwordHasher.matches(new_clean_pass, new_pass, userDAO.findById(u.getId()).get().getSalt()));
 
         userDAO.deleteById(u.getId());
     }
@@ -112,6 +112,17 @@ public class TicketIntegrationTest {
         deleteRoleTest();
     }
 
+    @Test
+    public void anonymousCannotDeleteTicket() throws Exception {
+        Ticket t = EntityGenerator.getNewTicket();
+        ticketService.save(t);
+
+        mvc.perform(post("/deleteTicket/" + t.getId())
+                .contentType(MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(status().is(403));
+        assertTrue(ticketService.findById(t.getId()).isPresent());
+    }
+
     private void deleteRoleTest() throws Exception {
         Ticket t = EntityGenerator.getNewTicket();
         t.setUserId(1); //user with id 1 should exist
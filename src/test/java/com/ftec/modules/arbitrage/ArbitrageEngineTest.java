@@ -0,0 +1,89 @@
+package com.ftec.modules.arbitrage;
+
+import com.ftec.resources.Stocks;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class ArbitrageEngineTest {
+
+    private static final long ALL = ArbitrageEngine.mask(new Stocks[0]);
+
+    private static ArbitrageEngine replay(long quoteTtl) throws IOException, InterruptedException {
+        ArbitrageEngine engine = new ArbitrageEngine(quoteTtl);
+        try (Reader reader = new InputStreamReader(ArbitrageEngineTest.class.getResourceAsStream("/arbitrage/quotes.csv"), StandardCharsets.UTF_8)) {
+            assertEquals(5, ReplayQuoteFeed.replay(reader, engine::onQuote, 0));
+        }
+        return engine;
+    }
+
+    private static List<String> names(List<ArbitrageWindow> windows) {
+        return windows.stream()
+                .map(window -> window.getPairName() + ":" + window.getStockToBuy() + "->" + window.getStockToSell())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void windowsAreSortedByProfit() throws Exception {
+        List<ArbitrageWindow> windows = replay(60000).query(0, 0, ALL, 0);
+
+        assertEquals(names(windows).toString(), 4, windows.size());
+        assertEquals("ETH_USD:Binance->Poloniex", names(windows).get(0));
+        assertEquals((510 - 501) / 501.0 * 100, windows.get(0).getProfitPercent(), 1e-9);
+        assertEquals(501, windows.get(0).getPriceToBuy(), 0);
+        assertEquals(510, windows.get(0).getPriceToSell(), 0);
+        assertTrue(windows.get(0).isLockedOnSell());
+        assertFalse(windows.get(0).isLockedOnBuy());
+        assertEquals("BTC_USD:Bitfinex->Kraken", names(windows).get(1));
+        assertEquals("BTC_USD:Binance->Kraken", names(windows).get(2));
+        assertEquals("BTC_USD:Bitfinex->Binance", names(windows).get(3));
+
+        assertEquals(2, replay(60000).query(0, 1, ALL, 0).size());
+        assertEquals(8, replay(60000).query(0, -100, ALL, 0).size());
+    }
+
+    @Test
+    public void windowsAreFilteredByStocksAndVolume() throws Exception {
+        ArbitrageEngine engine = replay(60000);
+
+        assertEquals(3, engine.query(0, 0, ArbitrageEngine.mask(new Stocks[]{Stocks.Binance, Stocks.Kraken, Stocks.Bitfinex}), 0).size());
+        assertEquals(1, engine.query(0, 0, ArbitrageEngine.mask(new Stocks[]{Stocks.Binance, Stocks.Poloniex}), 0).size());
+        assertEquals(0, engine.query(0, 0, ArbitrageEngine.mask(new Stocks[]{Stocks.Binance}), 0).size());
+
+        assertEquals(names(engine.query(1, 0, ALL, 0)).toString(), 2, engine.query(1, 0, ALL, 0).size());
+        assertEquals("[BTC_USD:Bitfinex->Binance]", names(engine.query(0, 0, ALL, 2)).toString());
+    }
+
+    @Test
+    public void quotesUpdateWindows() throws Exception {
+        ArbitrageEngine engine = replay(60000);
+
+        engine.onQuote(new Quote("BTC_USD", Stocks.Kraken, 9900, 1, 9920, 1, false, 2000));
+        assertEquals("[ETH_USD:Binance->Poloniex, BTC_USD:Kraken->Binance, BTC_USD:Bitfinex->Binance, BTC_USD:Kraken->Bitfinex]", names(engine.query(0, 0, ALL, 0)).toString());
+
+        // exchange stopped trading the pair
+        engine.onQuote(new Quote("ETH_USD", Stocks.Poloniex, 0, 0, 0, 0, false, 2001));
+        assertEquals("[BTC_USD:Kraken->Binance, BTC_USD:Bitfinex->Binance, BTC_USD:Kraken->Bitfinex]", names(engine.query(0, 0, ALL, 0)).toString());
+        assertEquals(2, engine.getMetrics().get("pairs"));
+    }
+
+    @Test
+    public void staleQuotesAreSkipped() throws Exception {
+        ArbitrageEngine engine = replay(50);
+        assertEquals(4, engine.query(0, 0, ALL, 0).size());
+
+        Thread.sleep(100);
+        assertEquals(0, engine.query(0, 0, ALL, 0).size());
+
+        engine.onQuote(new Quote("BTC_USD", Stocks.Kraken, 10100, 0.5, 10120, 1, false, 3000));
+        engine.onQuote(new Quote("BTC_USD", Stocks.Bitfinex, 9950, 3, 9960, 4, false, 3000));
+        assertEquals("[BTC_USD:Bitfinex->Kraken]", names(engine.query(0, 0, ALL, 0)).toString());
+    }
+}
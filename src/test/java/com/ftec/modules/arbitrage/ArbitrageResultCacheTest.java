@@ -0,0 +1,92 @@
+package com.ftec.modules.arbitrage;
+
+import com.ftec.resources.Stocks;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ArbitrageResultCacheTest {
+
+    private static final ArbitrageResultCache.Query QUERY = new ArbitrageResultCache.Query(-1L, 1, 0.5);
+
+    private static List<ArbitrageWindow> windows() {
+        return new ArrayList<>(Collections.singletonList(
+                new ArbitrageWindow("BTC_USD", Stocks.Binance, 100, Stocks.Kraken, 101, false, false, 2, 3, 1)));
+    }
+
+    @Test
+    public void concurrentMissesLoadOnce() throws Exception {
+        ArbitrageResultCache cache = new ArbitrageResultCache(60000);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<List<ArbitrageWindow>>> results = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                results.add(executor.submit(() -> cache.get(QUERY, () -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return windows();
+                })));
+            }
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            // let the other threads reach the cache while the first one is loading
+            Thread.sleep(100);
+            release.countDown();
+
+            List<ArbitrageWindow> first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<List<ArbitrageWindow>> result : results) assertSame(first, result.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1L, cache.getMetrics().get("misses"));
+    }
+
+    @Test
+    public void expiredResultIsReloaded() throws Exception {
+        ArbitrageResultCache cache = new ArbitrageResultCache(50);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(QUERY, () -> { loads.incrementAndGet(); return windows(); });
+        cache.get(new ArbitrageResultCache.Query(-1L, 1, 0.5), () -> { loads.incrementAndGet(); return windows(); });
+        assertEquals(1, loads.get());
+
+        cache.get(new ArbitrageResultCache.Query(-1L, 2, 0.5), () -> { loads.incrementAndGet(); return windows(); });
+        assertEquals(2, loads.get());
+
+        Thread.sleep(80);
+        cache.get(QUERY, () -> { loads.incrementAndGet(); return windows(); });
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void failuresAreNotCached() {
+        ArbitrageResultCache cache = new ArbitrageResultCache(60000);
+        try {
+            cache.get(QUERY, () -> { throw new IllegalStateException("engine"); });
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("engine", e.getMessage());
+        }
+        assertEquals(1, cache.get(QUERY, ArbitrageResultCacheTest::windows).size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void sharedResultIsReadOnly() {
+        new ArbitrageResultCache(60000).get(QUERY, ArbitrageResultCacheTest::windows).clear();
+    }
+}
@@ -5,9 +5,12 @@ import com.ftec.controllers.AuthorizationController;
 import com.ftec.entities.User;
 import com.ftec.exceptions.AuthorizationException;
 import com.ftec.exceptions.TwoStepVerificationException;
+import com.ftec.repositories.UserDAO;
 import com.ftec.services.interfaces.AuthorizationService;
+import com.ftec.services.interfaces.PasswordHasher;
 import com.ftec.services.interfaces.RegistrationService;
 import com.ftec.utils.EntityGenerator;
+import com.ftec.utils.PasswordUtils;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,6 +21,11 @@ import org.springframework.test.context.junit4.SpringRunner;
 
 import java.util.Optional;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
 @ActiveProfiles(value = "jenkins-tests,test", inheritProfiles = false)
 @RunWith(SpringRunner.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = ApplicationConfig.class)
@@ -30,6 +38,12 @@ public class AuthorizationServiceTest {
     @Autowired
     RegistrationService registrationService;
 
+    @Autowired
+    PasswordHasher passwordHasher;
+
+    @Autowired
+    UserDAO userDAO;
+
     @Test
     public void authorizationModuleTest() throws AuthorizationException, TwoStepVerificationException {
         User u = EntityGenerator.getNewUser();
@@ -44,6 +58,27 @@ public class AuthorizationServiceTest {
         authorizationService.authorizate(optional, userAuth);
     }
 
+    @Test
+    public void legacyPasswordMigratedOnLogin() throws AuthorizationException, TwoStepVerificationException {
+        User u = EntityGenerator.getNewUser();
+        String raw_pass = u.getPassword();
+        u.setPassword(PasswordUtils.generateSecurePassword(raw_pass, u.getSalt()));
+        userDAO.save(u);
+
+        AuthorizationController.UserAuth userAuth = new AuthorizationController.UserAuth();
+        userAuth.setUsername(u.getUsername());
+        userAuth.setPassword(raw_pass);
+        String newHash = authorizationService.authorizate(userDAO.findById(u.getId()), userAuth);
+        assertNotNull(newHash);
+        authorizationService.updatePasswordHash(u, newHash);
+
+        String migrated = userDAO.findById(u.getId()).get().getPassword();
+        assertTrue(migrated.startsWith("pbkdf2_sha256$"));
+        assertFalse(passwordHasher.needsRehash(migrated));
+
+        assertNull(authorizationService.authorizate(userDAO.findById(u.getId()), userAuth));
+    }
+
     @Test(expected = AuthorizationException.class)
     public void authorizationFailedModuleTest() throws AuthorizationException, TwoStepVerificationException {
         User u = EntityGenerator.getNewUser();
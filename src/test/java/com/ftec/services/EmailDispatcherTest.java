@@ -0,0 +1,147 @@
+package com.ftec.services;
+
+import com.ftec.resources.Resources;
+import com.ftec.utils.local_sendpulse.restapi.SendpulseInterface;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class EmailDispatcherTest {
+
+    private final SendpulseInterface sendpulse = mock(SendpulseInterface.class);
+    private EmailDispatcher dispatcher;
+
+    @After
+    public void tearDown() {
+        dispatcher.destroy();
+    }
+
+    private EmailDispatcher createDispatcher() {
+        return createDispatcher(1000);
+    }
+
+    private EmailDispatcher createDispatcher(double ratePerSecond) {
+        Resources resources = new Resources();
+        resources.setEmailSenderThreads(4);
+        resources.setEmailQueueSize(10);
+        resources.setEmailRatePerSecond(ratePerSecond);
+        resources.setEmailMaxAttempts(3);
+        resources.setEmailRetryBackoff(1);
+        resources.setEmailBatchSize(50);
+        return dispatcher = new EmailDispatcher(resources, sendpulse);
+    }
+
+    private static Map<String, Object> response(int code) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("http_code", code);
+        return result;
+    }
+
+    private static List<MailService.Email_UsernameOnly> users(int count) {
+        List<MailService.Email_UsernameOnly> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(new MailService.Email_UsernameOnly("user" + i + "@mail.com", i % 10 != 0, "en", "user" + i));
+        }
+        return users;
+    }
+
+    @Test
+    public void campaignIsSentInBackground() throws InterruptedException {
+        when(sendpulse.smtpSendMail(any())).thenReturn(response(200));
+        createDispatcher();
+
+        EmailDispatcher.Campaign campaign = dispatcher.dispatch("TrialEnded", users(100), user -> new HashMap<>(user.createParams()));
+
+        assertTrue(campaign.await(10, TimeUnit.SECONDS));
+        assertTrue(campaign.isFinished());
+        assertEquals(90, campaign.getSent());
+        assertEquals(10, campaign.getSkipped());
+        assertEquals(0, campaign.getFailed());
+        verify(sendpulse, times(90)).smtpSendMail(any());
+        assertEquals(campaign.getId(), dispatcher.getCampaigns().get(0).getId());
+    }
+
+    @Test
+    public void throttledEmailsAreRetried() throws InterruptedException {
+        when(sendpulse.smtpSendMail(any())).thenReturn(response(429), response(503), response(200));
+        createDispatcher();
+
+        EmailDispatcher.Campaign campaign = dispatcher.dispatch("TrialEnded", users(2).subList(1, 2), user -> new HashMap<>(user.createParams()));
+
+        assertTrue(campaign.await(10, TimeUnit.SECONDS));
+        assertEquals(1, campaign.getSent());
+        assertEquals(2, campaign.getRetried());
+        verify(sendpulse, times(3)).smtpSendMail(any());
+    }
+
+    @Test
+    public void clientErrorsAndExhaustedRetriesFail() throws InterruptedException {
+        when(sendpulse.smtpSendMail(any())).thenReturn(response(400));
+        createDispatcher();
+
+        EmailDispatcher.Campaign rejected = dispatcher.dispatch("TrialEnded", users(2).subList(1, 2), user -> new HashMap<>(user.createParams()));
+        assertTrue(rejected.await(10, TimeUnit.SECONDS));
+        assertEquals(1, rejected.getFailed());
+        assertEquals(0, rejected.getRetried());
+
+        when(sendpulse.smtpSendMail(any())).thenThrow(new NullPointerException());
+        EmailDispatcher.Campaign unreachable = dispatcher.dispatch("TrialEnded", users(2).subList(1, 2), user -> new HashMap<>(user.createParams()));
+        assertTrue(unreachable.await(10, TimeUnit.SECONDS));
+        assertEquals(1, unreachable.getFailed());
+        assertEquals(2, unreachable.getRetried());
+    }
+
+    private static Map<String, Object> sameEmail(MailService.Email_UsernameOnly user) {
+        Map<String, Object> emailData = new HashMap<>();
+        emailData.put("subject", "News");
+        emailData.put("html", "Same for everyone");
+        emailData.put("from", Collections.singletonMap("email", "noreply@ftec.com"));
+        emailData.put("to", Collections.singletonList(Collections.singletonMap("email", user.email)));
+        return emailData;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void identicalEmailsAreSentInBatches() throws InterruptedException {
+        List<Map<String, Object>> requests = Collections.synchronizedList(new ArrayList<>());
+        when(sendpulse.smtpSendMail(any())).thenAnswer(invocation -> {
+            requests.add(invocation.getArgument(0));
+            return response(200);
+        });
+        createDispatcher();
+
+        EmailDispatcher.Campaign campaign = dispatcher.dispatch("News", users(100), EmailDispatcherTest::sameEmail);
+
+        assertTrue(campaign.await(10, TimeUnit.SECONDS));
+        assertEquals(90, campaign.getSent());
+        assertEquals(2, campaign.getRequests());
+
+        Set<Object> recipients = new HashSet<>();
+        for (Map<String, Object> request : requests) {
+            // the sender, so recipients in bcc don't see each other
+            assertEquals(Collections.singletonList(request.get("from")), request.get("to"));
+            for (Map<String, Object> receiver : (List<Map<String, Object>>) request.get("bcc")) recipients.add(receiver.get("email"));
+        }
+        assertEquals(90, recipients.size());
+    }
+
+    @Test
+    public void rateLimitCountsRecipientsOfBatch() throws InterruptedException {
+        when(sendpulse.smtpSendMail(any())).thenReturn(response(200));
+        createDispatcher(50);
+
+        long start = System.currentTimeMillis();
+        EmailDispatcher.Campaign campaign = dispatcher.dispatch("News", users(100), EmailDispatcherTest::sameEmail);
+
+        assertTrue(campaign.await(10, TimeUnit.SECONDS));
+        assertEquals(2, campaign.getRequests());
+        // 50 recipients of the first call take a second of 50 per second budget before the second call
+        assertTrue(System.currentTimeMillis() - start >= 900);
+    }
+}
@@ -0,0 +1,115 @@
+package com.ftec.services;
+
+import com.ftec.configs.ApplicationConfig;
+import com.ftec.entities.OutboxEmail;
+import com.ftec.entities.User;
+import com.ftec.repositories.ConfirmDataDAO;
+import com.ftec.repositories.OutboxEmailDAO;
+import com.ftec.services.interfaces.RegistrationService;
+import com.ftec.resources.enums.ConfirmScope;
+import com.ftec.resources.enums.OutboxStatus;
+import com.ftec.utils.EntityGenerator;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+@ActiveProfiles(value = "jenkins-tests,test", inheritProfiles = false)
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ApplicationConfig.class)
+public class EmailOutboxTest {
+
+    @Autowired
+    EmailOutbox emailOutbox;
+
+    @Autowired
+    OutboxEmailDAO outboxEmailDAO;
+
+    @Autowired
+    ConfirmEmailService confirmEmailService;
+
+    @Autowired
+    ConfirmDataDAO confirmDataDAO;
+
+    @Autowired
+    RegistrationService registrationService;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Test
+    public void confirmEmailIsSavedAndRelayed() {
+        User user = EntityGenerator.getNewUser();
+        registrationService.registerNewUserAccount(user);
+
+        confirmEmailService.sendConfirmEmailUrl(user.getEmail(), user.getId());
+
+        String hash = confirmDataDAO.findByUserIdAndScope(user.getId(), ConfirmScope.ConfirmEmail).get().getHash();
+        String key = ConfirmScope.ConfirmEmail.name() + ":" + hash;
+        assertTrue(outboxEmailDAO.findByIdempotencyKey(key).isPresent());
+
+        emailOutbox.relay();
+
+        OutboxEmail email = outboxEmailDAO.findByIdempotencyKey(key).get();
+        assertEquals(OutboxStatus.SENT, email.getStatus());
+        assertEquals(user.getEmail(), email.getRecipient());
+        assertEquals(1, email.getAttempts());
+        assertNotNull(email.getSentAt());
+    }
+
+    @Test
+    public void sameKeyIsSavedOnce() {
+        String key = "test:" + EntityGenerator.getNewUser().getUsername();
+
+        transactionTemplate.execute(status -> {
+            emailOutbox.enqueueSimple(key, "first@mail.com", "Subject", "Text");
+            emailOutbox.enqueueSimple(key, "second@mail.com", "Subject", "Text");
+            return null;
+        });
+        transactionTemplate.execute(status -> {
+            emailOutbox.enqueue(key, new MailService.Email_UsernameOnly("third@mail.com", true, Locale.ENGLISH, "login"), MailService.Emails.TrialEnded);
+            return null;
+        });
+
+        assertEquals("first@mail.com", outboxEmailDAO.findByIdempotencyKey(key).get().getRecipient());
+    }
+
+    @Test(expected = IllegalTransactionStateException.class)
+    public void enqueueRequiresTransaction() {
+        emailOutbox.enqueueSimple("test:no_transaction", "first@mail.com", "Subject", "Text");
+    }
+
+    @Test
+    public void failingEmailBecomesDead() {
+        OutboxEmail email = new OutboxEmail();
+        email.setIdempotencyKey("test:" + EntityGenerator.getNewUser().getUsername());
+        email.setEmailType("RemovedEmailType");
+        email.setRecipient("dead@mail.com");
+        email.setParams("{}");
+        email.setCreatedAt(new Date());
+        email.setNextAttemptAt(new Date());
+        email.setAttempts(8);
+        email = outboxEmailDAO.save(email);
+
+        emailOutbox.relay();
+        OutboxEmail retried = outboxEmailDAO.findById(email.getId()).get();
+        assertEquals(OutboxStatus.PENDING, retried.getStatus());
+        assertEquals(9, retried.getAttempts());
+        assertTrue(retried.getNextAttemptAt().after(new Date()));
+        assertNotNull(retried.getLastError());
+
+        retried.setNextAttemptAt(new Date());
+        outboxEmailDAO.save(retried);
+        emailOutbox.relay();
+        assertEquals(OutboxStatus.DEAD, outboxEmailDAO.findById(email.getId()).get().getStatus());
+    }
+}
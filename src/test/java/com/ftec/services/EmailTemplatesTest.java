@@ -0,0 +1,57 @@
+package com.ftec.services;
+
+import com.ftec.resources.Resources;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class EmailTemplatesTest {
+
+    private final EmailTemplates emailTemplates = new EmailTemplates(new Resources());
+
+    @Test
+    public void renderReplacesKnownPlaceholdersOnly() {
+        EmailTemplates.Template template = EmailTemplates.Template.parse("$Login$, your $Stock$ bot costs $5 and $Unknown$.$");
+
+        Map<String, String> params = new HashMap<>();
+        params.put("$Login$", "trader");
+        params.put("$Stock$", "Binance");
+
+        assertEquals("trader, your Binance bot costs $5 and $Unknown$.$", template.render(params));
+        assertEquals("plain", EmailTemplates.Template.parse("plain").render(params));
+    }
+
+    @Test
+    public void renderMatchesFileContent() {
+        Map<String, String> params = new HashMap<>();
+        params.put("$Login$", "trader");
+        params.put("$Link$", "http://localhost/restore");
+        params.put("$LinkName$", "restore");
+
+        EmailTemplates.Email email = emailTemplates.get(MailService.Emails.ForgotPassword, new Locale("ru"));
+        String text = email.renderText(params);
+        String html = email.renderHtml(params);
+
+        assertTrue(text.contains("trader"));
+        assertTrue(text.contains("http://localhost/restore"));
+        assertFalse(text.contains("$Login$"));
+        assertTrue(html.contains(text));
+        assertTrue(html.length() > text.length());
+    }
+
+    @Test
+    public void missingLanguageFallsBackToEnglish() {
+        Map<String, String> params = Collections.singletonMap("$Login$", "trader");
+
+        String german = emailTemplates.get(MailService.Emails.TrialEnded, Locale.GERMAN).renderHtml(params);
+        String english = emailTemplates.get(MailService.Emails.TrialEnded, Locale.ENGLISH).renderHtml(params);
+
+        assertEquals(english, german);
+        assertSame(emailTemplates.get(MailService.Emails.TrialEnded, Locale.GERMAN), emailTemplates.get(MailService.Emails.TrialEnded, Locale.GERMAN));
+    }
+}
@@ -0,0 +1,60 @@
+package com.ftec.services;
+
+import com.ftec.resources.Resources;
+import com.ftec.services.Implementations.Pbkdf2PasswordHasher;
+import com.ftec.utils.PasswordUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PasswordHasherTest {
+
+    private final Pbkdf2PasswordHasher passwordHasher = new Pbkdf2PasswordHasher(new Resources());
+
+    @Test
+    public void hashIsSelfDescribing() {
+        String hash = passwordHasher.hash("myPassword123");
+
+        String[] parts = hash.split("\\$");
+        assertEquals(4, parts.length);
+        assertEquals("pbkdf2_sha256", parts[0]);
+        assertEquals(passwordHasher.getIterations(), Integer.parseInt(parts[1]));
+        assertTrue(passwordHasher.getIterations() >= 10000);
+
+        assertTrue(passwordHasher.matches("myPassword123", hash, null));
+        assertFalse(passwordHasher.matches("myPassword124", hash, null));
+        assertFalse(passwordHasher.needsRehash(hash));
+    }
+
+    @Test
+    public void saltIsRandom() {
+        assertNotEquals(passwordHasher.hash("myPassword123"), passwordHasher.hash("myPassword123"));
+    }
+
+    @Test
+    public void legacyHashAccepted() {
+        String salt = PasswordUtils.getSalt(10);
+        String legacy = PasswordUtils.generateSecurePassword("myPassword123", salt);
+
+        assertTrue(passwordHasher.matches("myPassword123", legacy, salt));
+        assertFalse(passwordHasher.matches("myPassword123", legacy.toLowerCase(), salt));
+        assertFalse(passwordHasher.matches("myPassword124", legacy, salt));
+        assertTrue(passwordHasher.needsRehash(legacy));
+    }
+
+    @Test
+    public void cheaperHashNeedsRehash() {
+        String hash = passwordHasher.hash("myPassword123");
+        String[] parts = hash.split("\\$");
+        String cheaper = parts[0] + "$1000$" + parts[2] + "$" + parts[3];
+
+        assertTrue(passwordHasher.needsRehash(cheaper));
+        assertFalse(passwordHasher.matches("myPassword123", cheaper, null));
+    }
+
+    @Test
+    public void malformedHashRejected() {
+        assertFalse(passwordHasher.matches("myPassword123", "pbkdf2_sha256$abc$$", null));
+        assertFalse(passwordHasher.matches("myPassword123", "not base64!", "salt"));
+    }
+}
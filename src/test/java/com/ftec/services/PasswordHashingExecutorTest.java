@@ -0,0 +1,94 @@
+package com.ftec.services;
+
+import com.ftec.resources.Resources;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.*;
+
+public class PasswordHashingExecutorTest {
+
+    private PasswordHashingExecutor executor;
+
+    @Before
+    public void setUp() {
+        Resources resources = new Resources();
+        resources.setPasswordHashThreads(1);
+        resources.setPasswordHashQueueSize(1);
+        executor = new PasswordHashingExecutor(resources);
+    }
+
+    @After
+    public void tearDown() {
+        executor.destroy();
+    }
+
+    @Test
+    public void taskResultReturned() throws Exception {
+        assertEquals("hash", executor.submit(() -> "hash").get());
+    }
+
+    @Test
+    public void taskExceptionPropagated() throws Exception {
+        try {
+            executor.submit(() -> {
+                throw new IllegalStateException("failed");
+            }).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void chainedStepsRunOffHashingThreads() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> chained = executor.submit(() -> {
+            release.await();
+            return "hash";
+        }).thenApply(hash -> Thread.currentThread().getName());
+        release.countDown();
+
+        assertTrue(chained.get().startsWith("password-hashing-callback-"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void rejectedWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        CompletableFuture<Object> running = executor.submit(() -> {
+            started.countDown();
+            release.await();
+            return null;
+        });
+        started.await();
+        CompletableFuture<Object> queued = executor.submit(() -> null);
+        CompletableFuture<Object> rejected = executor.submit(() -> null);
+
+        try {
+            rejected.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertTrue(rejected.handle((result, e) -> PasswordHashingExecutor.isRejected(e)).get());
+        assertFalse(PasswordHashingExecutor.isRejected(new IllegalStateException()));
+
+        release.countDown();
+        running.get();
+        queued.get();
+
+        Map<String, Object> metrics = executor.getMetrics();
+        assertEquals(1L, metrics.get("rejected"));
+        assertEquals(2L, ((Map<String, Object>) metrics.get("hashDuration")).get("count"));
+    }
+}
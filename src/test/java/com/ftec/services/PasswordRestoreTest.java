@@ -10,9 +10,10 @@ import com.ftec.repositories.UserDAO;
 import com.ftec.resources.Resources;
 import com.ftec.resources.enums.ConfirmScope;
 import com.ftec.services.interfaces.RegistrationService;
+import com.ftec.services.interfaces.PasswordHasher;
 import com.ftec.services.interfaces.TokenService;
+import com.ftec.utils.AsyncMvc;
 import com.ftec.utils.EntityGenerator;
-import com.ftec.utils.PasswordUtils;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -54,6 +55,9 @@ public class PasswordRestoreTest {
     @Autowired
     TokenService tokenService;
 
+    @Autowired
+    PasswordHasher passwordHasher;
+
     @Test
     public void publicMethodsTest() throws Exception, InvalidUserDataException {
       User u = EntityGenerator.getNewUser();
@@ -62,8 +66,9 @@ public class PasswordRestoreTest {
 
       String hash = confirmDataDAO.findByUserIdAndScope(u.getId(), ConfirmScope.RestorePass).get().getHash();
 
-      passwordRestoreService.processChangingPass(hash, "new_strong_pasS123");
-      assertEquals(PasswordUtils.generateSecurePassword("new_strong_pasS123", u.getSalt()),userDAO.findById(u.getId()).get().getPassword());
+      passwordRestoreService.checkChangingPass(hash, "new_strong_pasS123");
+      passwordRestoreService.processChangingPass(hash, passwordHasher.hash("new_strong_pasS123"));
+      assertTrue(passwordHasher.matches("new_strong_pasS123", userDAO.findById(u.getId()).get().getPassword(), u.getSalt()));
     }
 
     @Test
@@ -151,7 +156,7 @@ public class PasswordRestoreTest {
 
         //uncomment this if test does not works Thread.sleep(1500);
 
-                mvc.perform(post("/changePass")
+                AsyncMvc.perform(mvc, post("/changePass")
                 .contentType(MediaType.APPLICATION_JSON_VALUE)
                 .param("hash", test_hash)
                 .param("new_pass", "newStrongPass123"))
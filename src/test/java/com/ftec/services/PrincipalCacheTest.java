@@ -0,0 +1,82 @@
+package com.ftec.services;
+
+import com.ftec.configs.ApplicationConfig;
+import com.ftec.controllers.ChangeSettingController;
+import com.ftec.entities.User;
+import com.ftec.repositories.UserDAO;
+import com.ftec.resources.models.UserPrincipal;
+import com.ftec.services.interfaces.ChangeSettingsService;
+import com.ftec.services.interfaces.TokenService;
+import com.ftec.utils.EntityGenerator;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.junit.Assert.*;
+
+@ActiveProfiles(value = "jenkins-tests,test", inheritProfiles = false)
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ApplicationConfig.class)
+public class PrincipalCacheTest {
+
+    @Autowired
+    PrincipalCache principalCache;
+
+    @Autowired
+    ChangeSettingsService changeSettingsService;
+
+    @Autowired
+    TokenService tokenService;
+
+    @Autowired
+    UserDAO userDAO;
+
+    @Test
+    public void principalIsCached() {
+        User user = EntityGenerator.getNewUser();
+        userDAO.save(user);
+
+        UserPrincipal principal = principalCache.get(user.getId()).get();
+        assertEquals(user.getUsername(), principal.getUsername());
+        assertSame(principal, principalCache.get(user.getId()).get());
+    }
+
+    @Test
+    public void principalEvictedOnSettingsChange() throws Exception {
+        User user = EntityGenerator.getNewUser();
+        userDAO.save(user);
+        UserPrincipal principal = principalCache.get(user.getId()).get();
+
+        ChangeSettingController.UserUpdate update = new ChangeSettingController.UserUpdate();
+        update.setSubscribeForEmail(false);
+        changeSettingsService.updatePreferences(update, user.getId(), null);
+
+        assertNotSame(principal, principalCache.get(user.getId()).get());
+    }
+
+    @Test
+    public void principalResolvedOncePerRequest() {
+        User user = EntityGenerator.getNewUser();
+        userDAO.save(user);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(TokenService.TOKEN_NAME, tokenService.createSaveAndGetNewToken(user.getId()));
+
+        UserPrincipal principal = principalCache.resolve(request).get();
+        assertEquals(user.getId(), principal.getId());
+        assertSame(principal, request.getAttribute(UserPrincipal.REQUEST_ATTRIBUTE));
+
+        principalCache.evict(user.getId());
+        assertSame(principal, principalCache.resolve(request).get());
+    }
+
+    @Test
+    public void absentPrincipalForUnknownUser() {
+        assertFalse(principalCache.get(-1).isPresent());
+        assertFalse(principalCache.resolve(new MockHttpServletRequest()).isPresent());
+    }
+}
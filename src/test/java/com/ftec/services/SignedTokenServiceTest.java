@@ -0,0 +1,124 @@
+package com.ftec.services;
+
+import com.ftec.configs.ApplicationConfig;
+import com.ftec.entities.User;
+import com.ftec.exceptions.token.InvalidTokenException;
+import com.ftec.exceptions.token.TokenException;
+import com.ftec.repositories.UserDAO;
+import com.ftec.resources.Resources;
+import com.ftec.resources.enums.UserRole;
+import com.ftec.services.Implementations.SignedTokenServiceImpl;
+import com.ftec.services.interfaces.RegistrationService;
+import com.ftec.services.interfaces.TokenService;
+import com.ftec.utils.EntityGenerator;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.junit.Assert.*;
+
+@ActiveProfiles(value = "jenkins-tests,test", inheritProfiles = false)
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = ApplicationConfig.class)
+public class SignedTokenServiceTest {
+
+    @Autowired
+    UserDAO userDAO;
+
+    @Autowired
+    RegistrationService registrationService;
+
+    SignedTokenServiceImpl signedTokenService;
+
+    @Before
+    public void setUp() {
+        Resources resources = new Resources();
+        resources.setTokenSecret("test_secret");
+        signedTokenService = new SignedTokenServiceImpl(userDAO, resources);
+    }
+
+    @Test
+    public void tokenCarriesUserIdAndRole() {
+        User u = EntityGenerator.getNewUser();
+        registrationService.registerNewUserAccount(u);
+
+        String token = signedTokenService.createSaveAndGetNewToken(u.getId());
+        signedTokenService.processToken(token);
+
+        assertEquals(Long.valueOf(u.getId()), TokenService.getUserIdFromToken(token));
+        assertEquals(UserRole.USER, signedTokenService.getRoleFromToken(token).get());
+        assertTrue(signedTokenService.findByToken(token).isPresent());
+    }
+
+    @Test(expected = InvalidTokenException.class)
+    public void forgedRoleRejected() {
+        String token = signedTokenService.createSaveAndGetNewToken(EntityGenerator.getNextNum());
+
+        signedTokenService.processToken(token.replace("_USER.", "_SUPPORT."));//should throw an exception
+    }
+
+    @Test(expected = InvalidTokenException.class)
+    public void dbTokenFormatRejected() {
+        signedTokenService.processToken(TokenService.generateToken(EntityGenerator.getNextNum()));//should throw an exception
+    }
+
+    @Test(expected = TokenException.class)
+    public void revokedOnLogout() {
+        String token = signedTokenService.createSaveAndGetNewToken(EntityGenerator.getNextNum());
+        signedTokenService.processToken(token);
+
+        signedTokenService.deleteByToken(token);
+
+        assertFalse(signedTokenService.findByToken(token).isPresent());
+        signedTokenService.processToken(token);//should throw an exception
+    }
+
+    @Test(expected = TokenException.class)
+    public void revokedOnDeleteByUserId() {
+        long userId = EntityGenerator.getNextNum();
+        String token = signedTokenService.createSaveAndGetNewToken(userId);
+
+        signedTokenService.deleteByUserId(userId);
+
+        signedTokenService.processToken(token);//should throw an exception
+    }
+
+    @Test
+    public void tokenIssuedRightAfterRevocationIsValid() {
+        long userId = EntityGenerator.getNextNum();
+        // likely in the same millisecond at least once
+        for (int i = 0; i < 100; i++) {
+            String revoked = signedTokenService.createSaveAndGetNewToken(userId);
+            signedTokenService.deleteByUserId(userId);
+            String token = signedTokenService.createSaveAndGetNewToken(userId);
+
+            assertFalse(signedTokenService.findByToken(revoked).isPresent());
+            signedTokenService.processToken(token);
+        }
+    }
+
+    @Test
+    public void saveDoesNothing() {
+        String token = signedTokenService.createSaveAndGetNewToken(EntityGenerator.getNextNum());
+
+        signedTokenService.save(signedTokenService.findByToken(token).get());
+
+        assertTrue(signedTokenService.getAll().isEmpty());
+    }
+
+    @Test
+    public void dbTokenBeansAreNotCreated() {
+        new ApplicationContextRunner()
+                .withPropertyValues("ftec.tokenType=signed")
+                .withUserConfiguration(TokenCache.class, TokenExpirationWriter.class)
+                .run(context -> {
+                    assertFalse(context.containsBean("tokenCache"));
+                    assertTrue(context.getBeansOfType(TokenExpirationWriter.class).isEmpty());
+                });
+    }
+}
@@ -0,0 +1,153 @@
+package com.ftec.services;
+
+import com.ftec.configs.ApplicationConfig;
+import com.ftec.entities.Ticket;
+import com.ftec.entities.User;
+import com.ftec.exceptions.TicketException;
+import com.ftec.resources.enums.TicketStatus;
+import com.ftec.resources.enums.UserRole;
+import com.ftec.services.interfaces.CommentService;
+import com.ftec.services.interfaces.RegistrationService;
+import com.ftec.services.interfaces.TicketService;
+import com.ftec.services.interfaces.TokenService;
+import com.ftec.utils.EntityGenerator;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.Date;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles(value = "jenkins-tests,test", inheritProfiles = false)
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = ApplicationConfig.class)
+@AutoConfigureMockMvc
+public class TicketEventsTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    TicketEvents ticketEvents;
+
+    @Autowired
+    TicketService ticketService;
+
+    @Autowired
+    CommentService commentService;
+
+    @Autowired
+    RegistrationService registrationService;
+
+    @Autowired
+    TokenService tokenService;
+
+    @After
+    public void closeSubscriptions() {
+        ticketEvents.closeAll();
+    }
+
+    private User registerUser(UserRole role) {
+        User user = EntityGenerator.getNewUser();
+        user.setUserRole(role);
+        registrationService.registerNewUserAccount(user);
+        return user;
+    }
+
+    private MockHttpServletResponse subscribe(User user, Long supporterId) throws Exception {
+        MockHttpServletRequestBuilder subscription = get("/support/events")
+                .header(TokenService.TOKEN_NAME, tokenService.createSaveAndGetNewToken(user.getId()));
+        if (supporterId != null) subscription.param("supporter_id", supporterId.toString());
+        return mvc.perform(subscription).andExpect(request().asyncStarted()).andReturn().getResponse();
+    }
+
+    private long saveTicket(long userId) {
+        Ticket t = EntityGenerator.getNewTicket();
+        t.setUserId(userId);
+        ticketService.save(t);
+        return t.getId();
+    }
+
+    // event name is written before its data, so wait for the data
+    private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!response.getContentAsString().contains(expected) && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        return response.getContentAsString();
+    }
+
+    @Test
+    public void eventsArePushedToOwnerAndSupport() throws Exception {
+        User owner = registerUser(UserRole.USER);
+        User other = registerUser(UserRole.USER);
+        User support = registerUser(UserRole.SUPPORT);
+
+        MockHttpServletResponse ownerEvents = subscribe(owner, null);
+        MockHttpServletResponse otherEvents = subscribe(other, null);
+        MockHttpServletResponse supportEvents = subscribe(support, null);
+        MockHttpServletResponse assignedEvents = subscribe(support, support.getId());
+
+        long ticketId = saveTicket(owner.getId());
+        commentService.addCommentToTicket(ticketId, new Date(), "first comment", support.getId());
+        ticketService.setTicketSupport(ticketId, support.getId());
+        ticketService.changeTicketStatus(ticketId, TicketStatus.IN_PROGRESS);
+
+        String content = awaitContent(ownerEvents, "\"status\":\"IN_PROGRESS\"");
+        assertTrue(content.contains("event:STATUS_CHANGED"));
+        assertTrue(content.contains("event:COMMENT_ADDED"));
+        assertTrue(content.contains("\"commentMessage\":\"first comment\""));
+
+        content = awaitContent(supportEvents, "\"status\":\"IN_PROGRESS\"");
+        assertTrue(content.contains("event:SUPPORTER_ASSIGNED"));
+
+        // subscribed for support's tickets, so it gets events after the ticket is assigned only
+        content = awaitContent(assignedEvents, "\"status\":\"IN_PROGRESS\"");
+        assertTrue(content.contains("event:SUPPORTER_ASSIGNED"));
+        assertFalse(content.contains("COMMENT_ADDED"));
+
+        assertEquals("", otherEvents.getContentAsString());
+        assertEquals(4, ticketEvents.getMetrics().get("subscribers"));
+    }
+
+    @Test
+    public void failedChangeIsNotPushed() throws Exception {
+        User owner = registerUser(UserRole.USER);
+        MockHttpServletResponse ownerEvents = subscribe(owner, null);
+
+        try {
+            ticketService.changeTicketStatus(Long.MAX_VALUE, TicketStatus.CLOSED);
+            fail();
+        } catch (TicketException e) {
+            // nothing to update
+        }
+        ticketService.changeTicketStatus(saveTicket(owner.getId()), TicketStatus.CLOSED);
+
+        String content = awaitContent(ownerEvents, "\"status\":\"CLOSED\"");
+        assertEquals(1, content.split("event:").length - 1);
+    }
+
+    @Test
+    public void anonymousCannotSubscribe() throws Exception {
+        mvc.perform(get("/support/events")).andExpect(status().is(403));
+    }
+
+    @Test
+    public void forgedTokenCannotSubscribe() throws Exception {
+        User support = registerUser(UserRole.SUPPORT);
+
+        mvc.perform(get("/support/events").header(TokenService.TOKEN_NAME, support.getId() + "_forged"))
+                .andExpect(status().is(403));
+        assertEquals(0, ticketEvents.getMetrics().get("subscribers"));
+    }
+}
@@ -0,0 +1,90 @@
+package com.ftec.services;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class TicketSearchIndexTest {
+
+    private final TicketSearchIndex index = new TicketSearchIndex(null, null);
+
+    @Test
+    public void wordsAreLowerCasedRunsOfLettersAndDigits() {
+        Map<String, Integer> terms = TicketSearchIndex.addTerms("Can't LOGIN: код 2FA, code2fa... a", 1, new HashMap<>());
+
+        Map<String, Integer> expected = new HashMap<>();
+        for (String term : Arrays.asList("can", "login", "код", "2fa", "code2fa")) expected.put(term, 1);
+        assertEquals(expected, terms);
+    }
+
+    @Test
+    public void subjectRanksAboveMessageAndComments() {
+        index.indexTicket(1, "Withdrawal delayed", "Where is my money");
+        index.indexTicket(2, "Login problem", "Password reset does not work, withdrawal is unrelated");
+        index.indexTicket(3, "Referral bonus", "Nothing here");
+        index.addComment(3, "The withdrawal button is grey");
+
+        TicketSearchIndex.Hits hits = index.search("withdrawal", 0, 10);
+        assertEquals(3, hits.getTotal());
+        assertEquals(Long.valueOf(1), hits.getTicketIds().get(0));
+
+        assertEquals(Collections.singletonList(3L), index.search("GREY button", 0, 10).getTicketIds().subList(0, 1));
+        assertEquals(0, index.search("bitcoin", 0, 10).getTotal());
+    }
+
+    @Test
+    public void matchingMoreWordsRanksHigher() {
+        index.indexTicket(1, "Email", "confirmation email never arrived");
+        index.indexTicket(2, "Email", "change email address");
+        index.indexTicket(3, "Other", "confirmation code");
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), index.search("email confirmation", 0, 10).getTicketIds());
+    }
+
+    @Test
+    public void updatesReplaceIndexedText() {
+        index.indexTicket(1, "Old subject", "old message");
+        index.addComment(1, "comment words");
+
+        index.indexTicket(1, "New subject", "new message");
+        assertEquals(0, index.search("old", 0, 10).getTotal());
+        assertEquals(1, index.search("new", 0, 10).getTotal());
+        assertEquals(1, index.search("comment", 0, 10).getTotal());
+
+        index.remove(1);
+        assertEquals(0, index.search("new comment subject", 0, 10).getTotal());
+        assertEquals(0, index.getMetrics().get("terms"));
+    }
+
+    @Test
+    public void resultsArePaged() {
+        for (long id = 1; id <= 7; id++) index.indexTicket(id, "Deposit " + id, "deposit");
+
+        TicketSearchIndex.Hits first = index.search("deposit", 0, 3);
+        TicketSearchIndex.Hits last = index.search("deposit", 6, 3);
+        assertEquals(7, first.getTotal());
+        // equal scores go by id, the newest first
+        assertEquals(Arrays.asList(7L, 6L, 5L), first.getTicketIds());
+        assertEquals(Collections.singletonList(1L), last.getTicketIds());
+        assertEquals(0, index.search("deposit", 9, 3).getTicketIds().size());
+        // page * limit of the controller, past int range
+        assertEquals(0, index.search("deposit", (long) Integer.MAX_VALUE * 200, 200).getTicketIds().size());
+    }
+
+    @Test
+    public void commentsOfNotIndexedTicketsAreIgnored() {
+        index.indexTicket(1, "Deposit", "deposit");
+        index.remove(1);
+
+        index.addComment(1, "late comment");
+        index.addComment(2, "comment of unknown ticket");
+
+        assertEquals(0, index.search("comment", 0, 10).getTotal());
+        assertEquals(0, index.getMetrics().get("tickets"));
+    }
+}
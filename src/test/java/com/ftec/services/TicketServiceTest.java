@@ -2,15 +2,24 @@ package com.ftec.services;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ftec.configs.ApplicationConfig;
+import com.ftec.controllers.TicketController;
+import com.ftec.entities.Comment;
 import com.ftec.entities.Ticket;
 import com.ftec.entities.User;
 import com.ftec.exceptions.TicketException;
 import com.ftec.resources.Resources;
+import com.ftec.resources.enums.TicketCategory;
 import com.ftec.resources.enums.TicketStatus;
+import com.ftec.resources.enums.UserRole;
+import com.ftec.resources.models.TicketSummary;
+import com.ftec.services.interfaces.CommentService;
 import com.ftec.services.interfaces.RegistrationService;
 import com.ftec.services.interfaces.TicketService;
 import com.ftec.services.interfaces.TokenService;
 import com.ftec.utils.EntityGenerator;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.junit.Test;
@@ -26,8 +35,10 @@ import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultHandler;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import javax.persistence.EntityManagerFactory;
 import javax.validation.constraints.NotNull;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -55,6 +66,153 @@ public class TicketServiceTest {
     @Autowired
     TokenService tokenService;
 
+    @Autowired
+    CommentService commentService;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    TicketSearchIndex searchIndex;
+
+    @Autowired
+    PrincipalCache principalCache;
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        return statistics;
+    }
+
+    private long saveTicketWithComments(long userId, int comments) {
+        Ticket t = EntityGenerator.getNewTicket();
+        t.setUserId(userId);
+        ticketService.save(t);
+        for (int i = 0; i < comments; i++) commentService.addCommentToTicket(t.getId(), new Date(), "Comment_" + i, userId);
+        return t.getId();
+    }
+
+    private String supportToken() {
+        User support = EntityGenerator.getNewUser();
+        support.setUserRole(UserRole.SUPPORT);
+        registrationService.registerNewUserAccount(support);
+        // ids start over when another test context recreates the schema, so the id may be cached with other role
+        principalCache.evict(support.getId());
+        return tokenService.createSaveAndGetNewToken(support.getId());
+    }
+
+    @Test
+    public void commentsAreNotLoadedWithTickets() {
+        long userId = 1_000_001;
+        for (int i = 0; i < 3; i++) saveTicketWithComments(userId, 2);
+
+        Statistics statistics = statistics();
+        List<Ticket> tickets = ticketService.findAllByUserId(userId);
+        assertEquals(3, tickets.size());
+        assertFalse(Hibernate.isInitialized(tickets.get(0).getCommentList()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        long ticketId = tickets.get(0).getId();
+        assertTrue(ticketService.findById(ticketId).isPresent());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        List<Comment> comments = commentService.getAllByTicketId(ticketId);
+        assertEquals(2, comments.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void ticketCommentsAreReadThroughCommentPages() {
+        long ticketId = saveTicketWithComments(1_000_002, 3);
+
+        Statistics statistics = statistics();
+        Ticket ticket = ticketService.findById(ticketId).get();
+        assertFalse(Hibernate.isInitialized(ticket.getCommentList()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        assertEquals(3, commentService.getPageByTicketId(ticketId, null, 10).size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void commentsArePaged() throws Exception {
+        long ticketId = saveTicketWithComments(1_000_003, 5);
+
+        Statistics statistics = statistics();
+        List<Comment> first = commentService.getPageByTicketId(ticketId, null, 3);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals("Comment_0", first.get(0).getMessage());
+        assertEquals(3, first.size());
+        List<Comment> second = commentService.getPageByTicketId(ticketId, first.get(2).getId(), 3);
+        assertEquals(2, second.size());
+        assertEquals("Comment_4", second.get(1).getMessage());
+
+        String token = supportToken();
+        String content = mvc.perform(MockMvcRequestBuilders.get(TicketController.ADM_PREF + "/ticket/" + ticketId + "/comments")
+                .header(TokenService.TOKEN_NAME, token)
+                .param("limit", "2")
+                .param("after", String.valueOf(first.get(0).getId()))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+        JSONObject response = new JSONObject(content).getJSONObject("response");
+        JSONArray comments = response.getJSONArray("Comments");
+        assertEquals(2, comments.length());
+        assertEquals("Comment_1", comments.getJSONObject(0).getString("message"));
+        assertEquals(first.get(2).getId(), response.getLong("next"));
+
+        mvc.perform(MockMvcRequestBuilders.get(TicketController.ADM_PREF + "/ticket/" + Long.MAX_VALUE + "/comments")
+                .header(TokenService.TOKEN_NAME, token))
+                .andExpect(status().is(400));
+
+        User user = EntityGenerator.getNewUser();
+        registrationService.registerNewUserAccount(user);
+        principalCache.evict(user.getId());
+        mvc.perform(MockMvcRequestBuilders.get(TicketController.ADM_PREF + "/ticket/" + ticketId + "/comments")
+                .header(TokenService.TOKEN_NAME, tokenService.createSaveAndGetNewToken(user.getId())))
+                .andExpect(status().is(403));
+        mvc.perform(MockMvcRequestBuilders.get(TicketController.ADM_PREF + "/ticket/" + ticketId + "/comments")
+                .header(TokenService.TOKEN_NAME, token.substring(0, token.indexOf('_')) + "_forged"))
+                .andExpect(status().is(403));
+    }
+
+    @Test
+    public void ticketMutationsAreSingleStatements() throws TicketException {
+        long ticketId = saveTicketWithComments(1_000_004, 2);
+
+        Statistics statistics = statistics();
+        ticketService.changeTicketStatus(ticketId, TicketStatus.IN_PROGRESS);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(TicketStatus.IN_PROGRESS, ticketService.findById(ticketId).get().getStatus());
+
+        statistics.clear();
+        ticketService.deleteById(ticketId, 1_000_004L);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertFalse(ticketService.findById(ticketId).isPresent());
+        assertEquals(0, commentService.getAllByTicketId(ticketId).size());
+    }
+
+    @Test(expected = TicketException.class)
+    public void changeStatusOfMissingTicket() throws TicketException {
+        ticketService.changeTicketStatus(Long.MAX_VALUE, TicketStatus.CLOSED);
+    }
+
+    @Test
+    public void supportDeletesForeignTicket() throws TicketException {
+        long ticketId = saveTicketWithComments(1_000_005, 1);
+
+        User support = EntityGenerator.getNewUser();
+        support.setUserRole(UserRole.SUPPORT);
+        registrationService.registerNewUserAccount(support);
+
+        ticketService.deleteById(ticketId, support.getId());
+        assertFalse(ticketService.findById(ticketId).isPresent());
+    }
+
     @Test
     public void ticketSetSupporterId(){
         Ticket t = EntityGenerator.getNewTicket();
@@ -115,6 +273,80 @@ public class TicketServiceTest {
 
     }
 
+    @Test
+    public void getPageWalksTicketsNewestFirst() throws Exception {
+        ticketService.deleteAll();
+
+        List<Long> referral = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Ticket t = EntityGenerator.getNewTicket();
+            if (i % 2 == 0) t.setCategory(TicketCategory.Referral);
+            if (i == 3) t.setSupporter_id(42);
+            ticketService.save(t);
+            if (i % 2 == 0) referral.add(0, t.getId());
+        }
+
+        List<Long> walked = new ArrayList<>();
+        Long before = null;
+        List<TicketSummary> page;
+        do {
+            page = ticketService.getPage(before, null, TicketCategory.Referral, null, 3);
+            for (TicketSummary ticket : page) walked.add(ticket.getId());
+            if (!page.isEmpty()) before = page.get(page.size() - 1).getId();
+        } while (page.size() == 3);
+        assertEquals(referral, walked);
+
+        List<TicketSummary> supported = ticketService.getPage(null, TicketStatus.NEW, null, 42L, 10);
+        assertEquals(1, supported.size());
+        assertEquals(TicketCategory.Registration, supported.get(0).getCategory());
+        assertEquals(0, ticketService.getPage(null, TicketStatus.CLOSED, null, null, 10).size());
+
+        String content = mvc.perform(MockMvcRequestBuilders.get("/support/getAllTickets")
+                .param("category", "Referral")
+                .param("limit", "2")
+                .param("before", String.valueOf(referral.get(0)))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+        JSONObject response = new JSONObject(content).getJSONObject("response");
+        JSONArray tickets = response.getJSONArray("Tickets");
+        assertEquals(2, tickets.length());
+        assertEquals(referral.get(1).longValue(), tickets.getJSONObject(0).getLong("id"));
+        assertFalse(tickets.getJSONObject(0).has("message"));
+        assertEquals(referral.get(2).longValue(), response.getLong("next"));
+    }
+
+    @Test
+    public void ticketsAreFoundByWordsOfTextAndComments() throws Exception {
+        Ticket t = EntityGenerator.getNewTicket();
+        t.setSubject("Stuck kycverification");
+        ticketService.save(t);
+        long commented = saveTicketWithComments(1_000_006, 0);
+        commentService.addCommentToTicket(commented, new Date(), "Also stuck on kycverification", 1_000_006);
+
+        String token = supportToken();
+
+        // rebuilt index finds the same as the one updated by writes
+        for (int i = 0; i < 2; i++) {
+            String content = mvc.perform(MockMvcRequestBuilders.get(TicketController.ADM_PREF + "/searchTickets")
+                    .header(TokenService.TOKEN_NAME, token)
+                    .param("q", "KYCVerification")
+                    .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+            JSONObject response = new JSONObject(content).getJSONObject("response");
+            JSONArray tickets = response.getJSONArray("Tickets");
+            assertEquals(2, response.getInt("total"));
+            assertEquals(t.getId(), tickets.getJSONObject(0).getLong("id"));
+            assertEquals(commented, tickets.getJSONObject(1).getLong("id"));
+
+            searchIndex.rebuild();
+        }
+
+        ticketService.deleteById(t.getId(), t.getUserId());
+        assertEquals(1, searchIndex.search("kycverification", 0, 10).getTotal());
+    }
+
     @Test
     public void deleteAll(){
         ticketService.deleteAll();
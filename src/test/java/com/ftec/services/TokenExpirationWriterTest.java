@@ -0,0 +1,49 @@
+package com.ftec.services;
+
+import com.ftec.repositories.TokenDAO;
+import com.ftec.resources.Resources;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+public class TokenExpirationWriterTest {
+
+    private final TokenDAO tokenDAO = mock(TokenDAO.class);
+    private final TokenExpirationWriter writer = new TokenExpirationWriter(tokenDAO, new Resources());
+
+    @After
+    public void tearDown() {
+        writer.destroy();
+    }
+
+    @Test
+    public void failedFlushIsCountedSeparately() {
+        doThrow(new IllegalStateException("connection lost")).when(tokenDAO).updateExpirationDates(any());
+        writer.enqueue("1_token", 1000);
+        writer.enqueue("2_token", 2000);
+
+        writer.flush();
+
+        Map<String, Object> metrics = writer.getMetrics();
+        assertEquals(0L, metrics.get("flushCount"));
+        assertEquals(0L, metrics.get("flushedTokens"));
+        assertEquals(1L, metrics.get("failedFlushes"));
+        // kept for the next flush
+        assertEquals(2, writer.getQueueDepth());
+
+        doReturn(2).when(tokenDAO).updateExpirationDates(any());
+        writer.flush();
+
+        metrics = writer.getMetrics();
+        assertEquals(1L, metrics.get("flushCount"));
+        assertEquals(2L, metrics.get("flushedTokens"));
+        assertEquals(0, writer.getQueueDepth());
+    }
+}
@@ -7,11 +7,14 @@ import com.ftec.entities.Token;
 import com.ftec.entities.User;
 import com.ftec.exceptions.token.InvalidTokenException;
 import com.ftec.exceptions.token.TokenException;
+import com.ftec.repositories.TokenDAO;
 import com.ftec.repositories.UserDAO;
 import com.ftec.resources.Resources;
 import com.ftec.services.Implementations.TokenServiceImpl;
+import com.ftec.services.TokenExpirationWriter;
 import com.ftec.services.interfaces.RegistrationService;
 import com.ftec.services.interfaces.TokenService;
+import com.ftec.utils.AsyncMvc;
 import com.ftec.utils.EntityGenerator;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -27,12 +30,17 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultHandler;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Date;
 import java.util.Optional;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -60,6 +68,15 @@ public class TokenServiceTest {
     @Autowired
     TokenServiceImpl tokenServiceImpl;
 
+    @Autowired
+    TokenExpirationWriter tokenExpirationWriter;
+
+    @Autowired
+    Resources resources;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
     ObjectMapper objectMapper = new ObjectMapper();
 
     @Test
@@ -94,7 +111,7 @@ public class TokenServiceTest {
         User u = EntityGenerator.getNewUser();
         String userName = u.getUsername();
 
-        MvcResult mvcResult = mvc.perform(MockMvcRequestBuilders.post("http://localhost:8080/registration").
+        MvcResult mvcResult = AsyncMvc.perform(mvc, MockMvcRequestBuilders.post("http://localhost:8080/registration").
                 content( objectMapper.writeValueAsString(u)).contentType(MediaType.APPLICATION_JSON).
                 accept(MediaType.APPLICATION_JSON))
                 .andDo(Resources.doPrintStatic ? print() : (ResultHandler) result -> {}).andExpect(status().isOk()).andReturn();
@@ -135,23 +152,32 @@ public class TokenServiceTest {
 
     @Test
     public void deleteAllByUserIdTest() {
-       long userId = 228l;
+       long userId = EntityGenerator.getNextNum();
+       long now = new Date().getTime();
+       for (int i = 0; i < 6; i++) {
+           tokenService.save(new Token(userId + "_excessive" + i, new Date(now + 60000 + i * 1000), userId));
+       }
+       // expires in a day, later than all of the saved ones
+       String newest = tokenService.createSaveAndGetNewToken(userId);
 
-       tokenService.createSaveAndGetNewToken(userId);
-       tokenService.createSaveAndGetNewToken(userId);
-       tokenService.createSaveAndGetNewToken(userId);
-       tokenService.createSaveAndGetNewToken(userId);
-       tokenService.createSaveAndGetNewToken(userId);
-       tokenService.createSaveAndGetNewToken(userId);
-       tokenService.createSaveAndGetNewToken(userId);
-
-        tokenService.findAllByUserId(userId);
-       assertEquals(7, tokenService.findAllByUserId(userId).size());
+       assertEquals(5, tokenService.findAllByUserId(userId).size());
+       assertTrue(tokenService.findByToken(newest).isPresent());
+       assertTrue(tokenService.findByToken(userId + "_excessive5").isPresent());
+       assertFalse(tokenService.findByToken(userId + "_excessive0").isPresent());
+       assertFalse(tokenService.findByToken(userId + "_excessive1").isPresent());
+    }
 
-       tokenService.deleteExcessiveToken(userId);
+    @Test
+    public void sweeperDeletesExcessiveTokens() {
+        long userId = EntityGenerator.getNextNum();
+        for (int i = 0; i < 7; i++) {
+            tokenService.save(new Token(userId + "_sweeper" + i, new Date(new Date().getTime() + 60000 + i), userId));
+        }
+        assertEquals(7, tokenService.findAllByUserId(userId).size());
 
-       assertEquals(5, tokenService.findAllByUserId(userId).size());
+        tokenServiceImpl.deleteAllExcessiveTokens();
 
+        assertEquals(5, tokenService.findAllByUserId(userId).size());
     }
 
     @Test
@@ -167,15 +193,79 @@ public class TokenServiceTest {
 
         ChangeSettingController.UserUpdate nullChanges = new ChangeSettingController.UserUpdate();
 
-        mvc.perform(post(ChangeSettingController.CHANGE_USER_SETTING_URL)
+        AsyncMvc.perform(mvc, post(ChangeSettingController.CHANGE_USER_SETTING_URL)
                 .header(TokenService.TOKEN_NAME, token)
                 .contentType(MediaType.APPLICATION_JSON_VALUE)
                 .content(objectMapper.writeValueAsString(nullChanges))
         ).andExpect(status().is(200));
 
+        tokenExpirationWriter.flush();
         assertTrue(oldDate.before(tokenService.findByToken(token).get().getExpirationTime()));
     }
 
+    @Test
+    public void expirationDatesFlushedInOneBatch() throws InterruptedException {
+        long userId = EntityGenerator.getNextNum();
+        String first = tokenService.createSaveAndGetNewToken(userId);
+        String second = tokenService.createSaveAndGetNewToken(userId);
+        Date firstOld = tokenService.findByToken(first).get().getExpirationTime();
+        Date secondOld = tokenService.findByToken(second).get().getExpirationTime();
+
+        Thread.sleep(1500);
+        tokenService.processToken(first);
+        tokenService.processToken(second);
+
+        tokenExpirationWriter.flush();
+
+        assertEquals(0, tokenExpirationWriter.getQueueDepth());
+        assertTrue(firstOld.before(tokenService.findByToken(first).get().getExpirationTime()));
+        assertTrue(secondOld.before(tokenService.findByToken(second).get().getExpirationTime()));
+    }
+
+    @Test(expected = TokenException.class)
+    public void cachedTokenEvictedOnDeleteByToken() {
+        String token = tokenService.createSaveAndGetNewToken(EntityGenerator.getNextNum());
+        tokenService.processToken(token);
+
+        tokenService.deleteByToken(token);
+
+        tokenService.processToken(token);//should throw an exception
+    }
+
+    @Test(expected = TokenException.class)
+    public void cachedTokenEvictedOnDeleteByUserId() {
+        long userId = EntityGenerator.getNextNum();
+        String token = tokenService.createSaveAndGetNewToken(userId);
+        tokenService.processToken(token);
+
+        tokenService.deleteByUserId(userId);
+
+        tokenService.processToken(token);//should throw an exception
+    }
+
+    @Test(expected = TokenException.class)
+    public void tokenReloadedDuringDeleteIsEvicted() {
+        long userId = EntityGenerator.getNextNum();
+        String token = userId + "_reloaded";
+        TokenDAO tokenDAO = mock(TokenDAO.class);
+        TokenServiceImpl service = new TokenServiceImpl(tokenDAO, new TokenCache(resources), mock(TokenExpirationWriter.class));
+
+        // a request comes in while the delete is not committed yet and still finds the row
+        doReturn(Optional.of(new Token(token, new Date(new Date().getTime() + 60000), userId))).when(tokenDAO).findByToken(token);
+        doAnswer(invocation -> {
+            service.processToken(token);
+            doReturn(Optional.empty()).when(tokenDAO).findByToken(token);
+            return null;
+        }).when(tokenDAO).deleteByToken(token);
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            service.deleteByToken(token);
+            return null;
+        });
+
+        service.processToken(token);//should throw an exception
+    }
+
     @Test
     public void deleteAllExpired() throws InterruptedException {
         tokenService.deleteAll();
@@ -0,0 +1,20 @@
+package com.ftec.utils;
+
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+
+public class AsyncMvc {
+
+    /**
+     * Performs request and, if the handler went async, waits for its result, so expectations apply to the final response.
+     */
+    public static ResultActions perform(MockMvc mvc, RequestBuilder request) throws Exception {
+        ResultActions actions = mvc.perform(request);
+        MvcResult result = actions.andReturn();
+        return result.getRequest().isAsyncStarted() ? mvc.perform(asyncDispatch(result)) : actions;
+    }
+}
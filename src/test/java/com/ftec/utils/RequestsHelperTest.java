@@ -0,0 +1,135 @@
+package com.ftec.utils;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.NameValuePair;
+import org.apache.http.message.BasicNameValuePair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class RequestsHelperTest {
+
+    private HttpServer server;
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.createContext("/echo", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            StringBuilder body = new StringBuilder(exchange.getRequestMethod()).append(' ').append(exchange.getRequestHeaders().getFirst("X-Key")).append(' ');
+            try (InputStream in = exchange.getRequestBody()) {
+                int b;
+                while ((b = in.read()) != -1) body.append((char) b);
+            }
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/echo";
+    }
+
+    private static List<NameValuePair> headers() {
+        return Collections.singletonList(new BasicNameValuePair("X-Key", "secret"));
+    }
+
+    @Test
+    public void connectionsAreReused() {
+        for (int i = 0; i < 20; i++) {
+            assertEquals("GET secret ", RequestsHelper.getHttp(url(), headers()));
+        }
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    public void asyncVariantsReturnResponses() {
+        CompletableFuture<String> form = RequestsHelper.postHttpAsync(url(), Collections.singletonList(new BasicNameValuePair("a", "b c")), headers());
+        CompletableFuture<String> raw = RequestsHelper.postHttpAsync(url(), "{\"a\":1}", headers());
+        CompletableFuture<String> get = RequestsHelper.getHttpAsync(url(), null);
+
+        assertEquals("POST secret a=b+c", form.join());
+        assertEquals("POST secret {\"a\":1}", raw.join());
+        assertEquals("GET null ", get.join());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void asyncRequestsAreRejectedWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        server.createContext("/slow", exchange -> {
+            try {
+                release.await(20, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, 4);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("slow".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        String slowUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/slow";
+        Map<String, Object> async = (Map<String, Object>) RequestsHelper.getMetrics().get("async");
+        long rejectedBefore = (Long) async.get("rejected");
+
+        List<CompletableFuture<String>> accepted = new ArrayList<>();
+        CompletableFuture<String> rejected = null;
+        try {
+            // all threads are busy with slow requests, so the queue fills up
+            while (rejected == null && accepted.size() < 1000) {
+                CompletableFuture<String> future = RequestsHelper.getHttpAsync(slowUrl, null);
+                if (future.isCompletedExceptionally()) rejected = future;
+                else accepted.add(future);
+            }
+        } finally {
+            release.countDown();
+        }
+
+        assertNotNull(rejected);
+        assertTrue(accepted.size() >= RequestsHelper.ASYNC_QUEUE_SIZE);
+        try {
+            rejected.join();
+            fail();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        async = (Map<String, Object>) RequestsHelper.getMetrics().get("async");
+        assertEquals(rejectedBefore + 1, async.get("rejected"));
+
+        for (CompletableFuture<String> future : accepted) assertEquals("slow", future.join());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void latencyIsRecordedPerHost() {
+        RequestsHelper.getHttp(url(), null);
+        assertNull(RequestsHelper.getHttp("http://127.0.0.1:1/unreachable", null));
+
+        Map<String, Object> hosts = (Map<String, Object>) RequestsHelper.getMetrics().get("hosts");
+        Map<String, Object> local = (Map<String, Object>) hosts.get("127.0.0.1");
+        assertTrue((Long) local.get("count") >= 2);
+        assertNotNull(local.get("p99Ms"));
+        assertNotNull(local.get("histogram"));
+    }
+}
@@ -0,0 +1,135 @@
+package com.ftec.utils.local_sendpulse.restapi;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for Sendpulse API: issues tokens "token-N" living {@code expiresIn} seconds and accepts smtp/emails with any live token.
+ */
+public class SendpulseStub implements AutoCloseable {
+
+    private final HttpServer server;
+    private final AtomicInteger issuedTokens = new AtomicInteger();
+    private final AtomicInteger sentEmails = new AtomicInteger();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> tokens = new ConcurrentHashMap<>();
+    private volatile int expiresIn = 3600;
+    private volatile long tokenDelay;
+    private volatile String lastEmail;
+
+    public SendpulseStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(8));
+        server.createContext("/oauth/access_token", exchange -> {
+            sleep(tokenDelay);
+            String token = "token-" + issuedTokens.incrementAndGet();
+            tokens.put(token, System.currentTimeMillis() + expiresIn * 1000L);
+            respond(exchange, 200, "{\"access_token\":\"" + token + "\",\"token_type\":\"Bearer\",\"expires_in\":" + expiresIn + "}");
+        });
+        server.createContext("/smtp/emails", exchange -> {
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            Long expiresAt = authorization == null ? null : tokens.get(authorization.replace("Bearer ", ""));
+            if (expiresAt == null || expiresAt < System.currentTimeMillis()) {
+                respond(exchange, 401, "{\"error\":\"invalid_client\"}");
+                return;
+            }
+            lastEmail = readForm(exchange).get("email");
+            sentEmails.incrementAndGet();
+            respond(exchange, 200, "{\"result\":true}");
+        });
+        server.start();
+    }
+
+    private void respond(HttpExchange exchange, int code, String body) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        try (InputStream in = exchange.getRequestBody()) {
+            while (in.read() != -1) ;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> readForm(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        // closed by respond()
+        InputStream in = exchange.getRequestBody();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) body.write(buffer, 0, read);
+        Map<String, String> form = new HashMap<>();
+        for (String pair : body.toString("US-ASCII").split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) form.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"), URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+        }
+        return form;
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Makes all issued tokens invalid, as if they were revoked.
+     */
+    public void expireTokens() {
+        tokens.clear();
+    }
+
+    public void setExpiresIn(int expiresIn) {
+        this.expiresIn = expiresIn;
+    }
+
+    public void setTokenDelay(long tokenDelay) {
+        this.tokenDelay = tokenDelay;
+    }
+
+    public int getIssuedTokens() {
+        return issuedTokens.get();
+    }
+
+    public int getSentEmails() {
+        return sentEmails.get();
+    }
+
+    /**
+     * @return "email" form field of the last accepted smtp/emails request
+     */
+    public String getLastEmail() {
+        return lastEmail;
+    }
+
+    public int getConnections() {
+        return clientPorts.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
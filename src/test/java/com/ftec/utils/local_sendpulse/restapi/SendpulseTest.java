@@ -0,0 +1,156 @@
+package com.ftec.utils.local_sendpulse.restapi;
+
+import com.ftec.utils.local_sendpulse.restapi.pherialize.Pherialize;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class SendpulseTest {
+
+    private SendpulseStub stub;
+    private Sendpulse sendpulse;
+
+    @Before
+    public void setUp() throws IOException {
+        stub = new SendpulseStub();
+        sendpulse = new Sendpulse("id", "secret", stub.getUrl(), new SendpulseTransport(4, 1000, 1000));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        sendpulse.close();
+        stub.close();
+    }
+
+    private static Map<String, Object> email() {
+        Map<String, Object> from = new HashMap<>();
+        from.put("name", "admin");
+        from.put("email", "admin@mail.com");
+
+        Map<String, Object> receiver = new HashMap<>();
+        receiver.put("name", "user@mail.com");
+        receiver.put("email", "user@mail.com");
+
+        Map<String, Object> email = new HashMap<>();
+        email.put("html", "<p>Hello</p>");
+        email.put("text", "Hello");
+        email.put("subject", "Subject");
+        email.put("from", from);
+        email.put("to", Collections.singletonList(receiver));
+        return email;
+    }
+
+    @Test
+    public void tokenIsRequestedOnceAndConnectionsReused() throws Exception {
+        assertEquals(0, stub.getIssuedTokens());
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Map<String, Object>>> results = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            results.add(executor.submit(() -> sendpulse.smtpSendMail(email())));
+        }
+        for (Future<Map<String, Object>> result : results) {
+            assertEquals(200, result.get().get("http_code"));
+        }
+        executor.shutdown();
+
+        assertEquals(1, stub.getIssuedTokens());
+        assertEquals(200, stub.getSentEmails());
+        assertTrue("connections: " + stub.getConnections(), stub.getConnections() <= 4 + 1);
+    }
+
+    @Test
+    public void concurrentRefreshesAreCoalesced() throws Exception {
+        stub.setTokenDelay(200);
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<Map<String, Object>>> results = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            results.add(executor.submit(() -> sendpulse.smtpSendMail(email())));
+        }
+        for (Future<Map<String, Object>> result : results) {
+            assertEquals(200, result.get().get("http_code"));
+        }
+        executor.shutdown();
+
+        assertEquals(1, stub.getIssuedTokens());
+    }
+
+    @Test
+    public void tokenIsRefreshedBeforeExpiry() throws Exception {
+        stub.setExpiresIn(2);
+        assertEquals(200, sendpulse.smtpSendMail(email()).get("http_code"));
+        assertEquals(1, stub.getIssuedTokens());
+
+        // refresh is due at 3/4 of lifetime, without any request
+        long deadline = System.currentTimeMillis() + 1900;
+        while (stub.getIssuedTokens() < 2 && System.currentTimeMillis() < deadline) Thread.sleep(50);
+        assertEquals(2, stub.getIssuedTokens());
+
+        Thread.sleep(500);
+        assertEquals(200, sendpulse.smtpSendMail(email()).get("http_code"));
+        assertEquals(2, stub.getSentEmails());
+        assertEquals(2, stub.getIssuedTokens());
+    }
+
+    @Test
+    public void refreshAfterUnauthorizedReplacesScheduledOne() throws Exception {
+        stub.setExpiresIn(2);
+        long start = System.currentTimeMillis();
+        assertEquals(200, sendpulse.smtpSendMail(email()).get("http_code"));
+
+        Thread.sleep(500);
+        stub.expireTokens();
+        assertEquals(200, sendpulse.smtpSendMail(email()).get("http_code"));
+        assertEquals(2, stub.getIssuedTokens());
+
+        // the first token's refresh was due at 1.5 s, the second one's is at 2 s
+        Thread.sleep(Math.max(0, start + 2300 - System.currentTimeMillis()));
+        assertEquals(3, stub.getIssuedTokens());
+    }
+
+    @Test
+    public void expiredTokenIsRefreshedAndRequestRepeated() {
+        assertEquals(200, sendpulse.smtpSendMail(email()).get("http_code"));
+
+        stub.expireTokens();
+        Map<String, Object> result = sendpulse.smtpSendMail(email());
+
+        assertEquals(200, result.get("http_code"));
+        assertNull(result.get("is_error"));
+        assertEquals(2, stub.getIssuedTokens());
+        assertEquals(2, stub.getSentEmails());
+    }
+
+    @Test
+    public void emailIsSerializedStraightIntoRequestBody() {
+        Map<String, Object> email = email();
+        email.put("html", "<p>Привет, 世界 \uD83D\uDE00 &amp; 100%</p>" + String.join("", Collections.nCopies(2000, "<br>")));
+
+        assertEquals(200, sendpulse.smtpSendMail(email).get("http_code"));
+
+        // html is sent in base64 by smtpSendMail itself
+        assertEquals(Pherialize.serialize(email), stub.getLastEmail());
+    }
+
+    @Test
+    public void formEncoderMatchesUrlEncoder() throws IOException {
+        String value = "a-z_A.Z*0 9&=+%/?Привет\uD83D\uDE00 \uD83D \uDE00end\uD83D";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SendpulseTransport.FormEncoder encoder = new SendpulseTransport.FormEncoder(out);
+        encoder.append(value);
+        encoder.flush();
+
+        assertEquals(URLEncoder.encode(value, "UTF-8"), out.toString("US-ASCII"));
+    }
+}
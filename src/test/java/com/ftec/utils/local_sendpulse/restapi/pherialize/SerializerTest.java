@@ -0,0 +1,105 @@
+package com.ftec.utils.local_sendpulse.restapi.pherialize;
+
+import com.ftec.utils.local_sendpulse.restapi.pherialize.exceptions.SerializeException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SerializerTest {
+
+    static Map<String, Object> email(String html) {
+        Map<String, Object> from = new LinkedHashMap<>();
+        from.put("name", "Ftec");
+        from.put("email", "noreply@ftec.com");
+
+        List<Object> to = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> receiver = new LinkedHashMap<>();
+            receiver.put("name", "Пользователь " + i);
+            receiver.put("email", "user" + i + "@mail.com");
+            to.add(receiver);
+        }
+
+        Map<String, Object> email = new LinkedHashMap<>();
+        email.put("html", html);
+        email.put("text", "Привет, 世界 😀");
+        email.put("subject", "Тема");
+        email.put("from", from);
+        email.put("to", to);
+        email.put("attempt", 3);
+        email.put("sentAt", 1539820800000L);
+        email.put("score", 0.5f);
+        email.put("subscribed", true);
+        email.put("grade", 'A');
+        email.put("bcc", null);
+        email.put("tags", new Object[]{"news", (short) 1, (byte) 2});
+        return email;
+    }
+
+    @Test
+    public void sameOutputAsLegacySerializer() {
+        Map<String, Object> email = email("<p>Hello \"world\" ; s:5:</p>");
+
+        assertEquals(new LegacySerializer().serialize(email), new Serializer().serialize(email));
+        Charset cp1251 = Charset.forName("windows-1251");
+        assertEquals(new LegacySerializer(cp1251).serialize(email), new Serializer(cp1251).serialize(email));
+    }
+
+    @Test
+    public void stringLengthIsInBytes() {
+        assertEquals("s:3:\"abc\";", new Serializer().serialize("abc"));
+        assertEquals("s:12:\"Привет\";", new Serializer().serialize("Привет"));
+        assertEquals("s:2:\"Ä\";", new Serializer().serialize('Ä'));
+
+        for (String string : Arrays.asList("", "abc", "Привет", "世界", "😀", "a\uD83Db", "\uDE00", "end\uD83D")) {
+            assertEquals(string, string.getBytes(StandardCharsets.UTF_8).length, Serializer.utf8Length(string));
+        }
+    }
+
+    @Test
+    public void streamedOutputIsTheSame() throws IOException {
+        StringBuilder html = new StringBuilder();
+        while (html.length() < 3 * Serializer.CHUNK_SIZE) html.append("<p>Строка письма</p>");
+        Map<String, Object> email = email(html.toString());
+
+        StringBuilder out = new StringBuilder();
+        Pherialize.serialize(email, out);
+
+        assertEquals(Pherialize.serialize(email), out.toString());
+    }
+
+    @Test
+    public void referencesAreWrittenOnlyWhenTracked() {
+        Map<String, Object> shared = new LinkedHashMap<>();
+        shared.put("email", "admin@mail.com");
+        Map<String, Object> email = new LinkedHashMap<>();
+        email.put("from", shared);
+        email.put("replyTo", shared);
+
+        String tracked = new Serializer(StandardCharsets.UTF_8, true).serialize(email);
+        assertEquals(new LegacySerializer().serialize(email), tracked);
+        assertTrue(tracked.contains("R:2;"));
+
+        assertEquals("a:2:{s:4:\"from\";a:1:{s:5:\"email\";s:14:\"admin@mail.com\";}s:7:\"replyTo\";a:1:{s:5:\"email\";s:14:\"admin@mail.com\";}}",
+                new Serializer().serialize(email));
+    }
+
+    @Test
+    public void cyclicDataNeedsReferenceTracking() {
+        List<Object> cyclic = new ArrayList<>();
+        cyclic.add(cyclic);
+
+        assertEquals("a:1:{i:0;R:1;}", new Serializer(StandardCharsets.UTF_8, true).serialize(cyclic));
+        try {
+            new Serializer().serialize(cyclic);
+            fail();
+        } catch (SerializeException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.ftec.utils.local_sendpulse.restapi.pherialize;
+
+import com.ftec.utils.local_sendpulse.restapi.pherialize.exceptions.UnserializeException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class UnserializerTest {
+
+    private static final String ALPHABET = "abcXYZ019 \"';:{}\\\nПриветÄß世界😀";
+
+    private final Random random = new Random(42);
+
+    private Object randomValue(int depth) {
+        switch (random.nextInt(depth > 3 ? 8 : 10)) {
+            case 0: return null;
+            case 1: return random.nextBoolean();
+            case 2: return random.nextInt();
+            case 3: return random.nextInt(100) - 50;
+            case 4: return random.nextLong();
+            case 5: return random.nextDouble() * Math.pow(10, random.nextInt(40) - 20);
+            case 6: return (double) random.nextInt(1000) / 8;
+            case 7: return randomString(random.nextInt(5) == 0 ? Unserializer.BUFFER_SIZE + random.nextInt(100) : random.nextInt(20));
+            case 8: {
+                List<Object> list = new ArrayList<>();
+                for (int i = random.nextInt(5); i > 0; i--) list.add(randomValue(depth + 1));
+                return list;
+            }
+            default: {
+                Map<Object, Object> map = new LinkedHashMap<>();
+                for (int i = random.nextInt(5); i > 0; i--) map.put(random.nextBoolean() ? randomString(8) : random.nextInt(), randomValue(depth + 1));
+                return map;
+            }
+        }
+    }
+
+    private String randomString(int length) {
+        StringBuilder string = new StringBuilder();
+        while (string.length() < length) string.appendCodePoint(ALPHABET.codePointAt(ALPHABET.offsetByCodePoints(0, random.nextInt(ALPHABET.codePointCount(0, ALPHABET.length())))));
+        return string.toString();
+    }
+
+    /**
+     * Returns at most 7 bytes per read, so values cross buffer boundaries.
+     */
+    private InputStream trickle(byte[] data) {
+        return new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1 + random.nextInt(7)));
+            }
+        };
+    }
+
+    @Test
+    public void roundTripMatchesLegacyUnserializer() {
+        for (int i = 0; i < 300; i++) {
+            Object value = randomValue(0);
+            for (Charset charset : Arrays.asList(StandardCharsets.UTF_8, Charset.forName("windows-1251"))) {
+                String serialized = new Serializer(charset, i % 2 == 0).serialize(value);
+
+                String expected = new Serializer(charset, true).serialize(new LegacyUnserializer(serialized, charset).unserializeObject());
+                assertEquals(serialized, expected, new Serializer(charset, true).serialize(Pherialize.unserialize(serialized, charset)));
+                assertEquals(serialized, expected, new Serializer(charset, true).serialize(Pherialize.unserialize(trickle(serialized.getBytes(charset)), charset)));
+            }
+        }
+    }
+
+    @Test
+    public void valuesSurviveRoundTrip() {
+        Map<String, Object> email = SerializerTest.email("<p>" + randomString(3 * Unserializer.BUFFER_SIZE) + "</p>");
+        email.remove("grade");
+        email.remove("tags");
+        // longs out of int range come back as doubles
+        email.remove("sentAt");
+
+        String serialized = Pherialize.serialize(email);
+        MixedArray result = Pherialize.unserialize(serialized).toArray();
+
+        assertEquals(email.get("html"), result.getString("html"));
+        assertEquals("Привет, 世界 😀", result.getString("text"));
+        assertEquals(3, result.getInt("attempt"));
+        assertEquals(0.5, result.getMixed("score").toDouble(), 0);
+        assertTrue(result.getBoolean("subscribed"));
+        assertNull(result.getString("bcc"));
+        assertEquals("user2@mail.com", result.getArray("to").getArray(2).getString("email"));
+        assertEquals(serialized, Pherialize.serialize(result));
+    }
+
+    @Test
+    public void numbersAreParsedAsBefore() {
+        for (String number : Arrays.asList("i:0;", "i:-0;", "i:+5;", "i:007;", "i:2147483647;", "i:-2147483648;",
+                "d:0;", "d:-0.0;", "d:.5;", "d:1.;", "d:1e3;", "d:1.0E-5;", "d:-1.7976931348623157E308;", "d:4.9E-324;",
+                "d:0.1;", "d:123456789012345678;", "d:0.30000000000000004;", "d:NaN;", "d:Infinity;", "d:1e22;", "d:1e23;")) {
+            assertEquals(number, new LegacyUnserializer(number).unserializeObject(), Pherialize.unserialize(number));
+        }
+        for (String malformed : Arrays.asList("i:2147483648;", "i:12a;", "i:;", "i:-;", "d:INF;", "d:1e;", "d:;")) {
+            try {
+                Pherialize.unserialize(malformed);
+                fail(malformed);
+            } catch (NumberFormatException e) {
+                // the same as before
+            }
+        }
+    }
+
+    @Test
+    public void referencesAreResolved() {
+        Mixed result = Pherialize.unserialize("a:2:{i:0;a:1:{i:0;s:1:\"x\";}i:1;R:2;}");
+        assertSame(result.toArray().get(0), result.toArray().get(1));
+    }
+
+    @Test(expected = UnserializeException.class)
+    public void truncatedDataFails() {
+        Pherialize.unserialize("a:1:{i:0;s:10:\"abc");
+    }
+}
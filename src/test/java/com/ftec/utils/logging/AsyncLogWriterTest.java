@@ -0,0 +1,64 @@
+package com.ftec.utils.logging;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncLogWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void messagesAppendedPerFile() throws Exception {
+        Path first = folder.getRoot().toPath().resolve("logs/first.txt");
+        Path second = folder.getRoot().toPath().resolve("logs/second.txt");
+
+        AsyncLogWriter writer = new AsyncLogWriter(1024, Long.MAX_VALUE, Long.MAX_VALUE);
+        for (int i = 0; i < 100; i++) {
+            writer.append(first, "first " + i + "\n");
+            writer.append(second, "second " + i + "\n");
+        }
+        writer.shutdown();
+
+        assertEquals(100, Files.readAllLines(first, StandardCharsets.UTF_8).size());
+        assertEquals(100, Files.readAllLines(second, StandardCharsets.UTF_8).size());
+        assertEquals("first 99", Files.readAllLines(first, StandardCharsets.UTF_8).get(99));
+    }
+
+    @Test
+    public void existingFileAppended() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("log.txt");
+        Files.write(file, "old\n".getBytes(StandardCharsets.UTF_8));
+
+        AsyncLogWriter writer = new AsyncLogWriter(16, Long.MAX_VALUE, Long.MAX_VALUE);
+        writer.append(file, "new\n");
+        writer.shutdown();
+
+        assertEquals("old\nnew\n", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void rotatedBySize() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("log.txt");
+
+        AsyncLogWriter writer = new AsyncLogWriter(16, 10, Long.MAX_VALUE);
+        writer.append(file, "0123456789\n");
+        Thread.sleep(100);
+        writer.append(file, "second\n");
+        writer.shutdown();
+
+        File[] files = folder.getRoot().listFiles();
+        assertEquals(2, files.length);
+        assertEquals("second\n", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        for (File f : files) assertTrue(f.getName().startsWith("log.") && f.getName().endsWith(".txt"));
+    }
+}
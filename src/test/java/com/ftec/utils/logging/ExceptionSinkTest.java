@@ -0,0 +1,68 @@
+package com.ftec.utils.logging;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ExceptionSinkTest {
+
+    private final ExceptionSink sink = new ExceptionSink(() -> 1000);
+
+    // same instance, so it always has the same stack trace
+    private final Exception exception = new IllegalStateException("boom");
+
+    @Test
+    public void traceWrittenOncePerWindow() {
+        assertTrue(sink.record(getClass(), "test", exception, 0).isWriteTrace());
+        for (int i = 1; i < 10; i++) {
+            ExceptionSink.Occurrence occurrence = sink.record(getClass(), "test", exception, i);
+            assertFalse(occurrence.isWriteTrace());
+            assertNull(occurrence.getSummary());
+        }
+
+        List<Map<String, Object>> counters = sink.getCounters();
+        assertEquals(1, counters.size());
+        assertEquals(10L, counters.get(0).get("total"));
+        assertEquals(9L, counters.get(0).get("suppressed"));
+    }
+
+    @Test
+    public void differentFramesAreDifferentFingerprints() {
+        Exception first = exception;
+        Exception second = new IllegalStateException("boom");
+        assertNotEquals(ExceptionSink.fingerprint(first), ExceptionSink.fingerprint(second));
+
+        assertTrue(sink.record(getClass(), "test", first, 0).isWriteTrace());
+        assertTrue(sink.record(getClass(), "test", second, 0).isWriteTrace());
+    }
+
+    @Test
+    public void summaryWrittenWhenWindowIsOver() {
+        sink.record(getClass(), "test", exception, 0);
+        sink.record(getClass(), "test", exception, 10);
+        sink.record(getClass(), "test", exception, 20);
+
+        assertTrue(sink.takeSummaries(500).isEmpty());
+
+        List<ExceptionSink.Summary> summaries = sink.takeSummaries(1000);
+        assertEquals(1, summaries.size());
+        assertTrue(summaries.get(0).getText().contains("x2 suppressed"));
+        assertTrue(sink.takeSummaries(5000).isEmpty());
+
+        // quiet window passed, so trace is written again
+        assertTrue(sink.record(getClass(), "test", exception, 5000).isWriteTrace());
+    }
+
+    @Test
+    public void ongoingFloodReportedBySummaryOnly() {
+        sink.record(getClass(), "test", exception, 0);
+        sink.record(getClass(), "test", exception, 500);
+
+        ExceptionSink.Occurrence occurrence = sink.record(getClass(), "test", exception, 1500);
+        assertFalse(occurrence.isWriteTrace());
+        assertTrue(occurrence.getSummary().contains("x1 suppressed"));
+    }
+}
@@ -0,0 +1,62 @@
+package com.ftec.utils.logging;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class LogRingBufferTest {
+
+    @Test
+    public void drainedInOrder() {
+        LogRingBuffer<Integer> buffer = new LogRingBuffer<>(8);
+        for (int i = 0; i < 5; i++) assertTrue(buffer.offer(i));
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(5, buffer.drain(drained::add, 100));
+        assertEquals(5, drained.size());
+        for (int i = 0; i < 5; i++) assertEquals(i, (int) drained.get(i));
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void droppedWhenFull() {
+        LogRingBuffer<Integer> buffer = new LogRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) assertTrue(buffer.offer(i));
+        assertFalse(buffer.offer(4));
+        assertEquals(1, buffer.takeDropped());
+        assertEquals(0, buffer.takeDropped());
+
+        buffer.drain(i -> {}, 1);
+        assertTrue(buffer.offer(5));
+    }
+
+    @Test
+    public void concurrentProducersLoseNothing() throws Exception {
+        int producers = 4;
+        int perProducer = 20000;
+        LogRingBuffer<Integer> buffer = new LogRingBuffer<>(1024);
+        CountDownLatch done = new CountDownLatch(producers);
+
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(base + i)) Thread.yield();
+                }
+                done.countDown();
+            }).start();
+        }
+
+        Set<Integer> received = new HashSet<>();
+        while (done.getCount() > 0 || !buffer.isEmpty()) {
+            buffer.drain(received::add, 256);
+        }
+        assertEquals(producers * perProducer, received.size());
+    }
+}